@@ -0,0 +1,65 @@
+-- Lápidas de bajas para SincronizadorCatalogos.
+-- Un DELETE no deja fila con ACTUALIZADO_EN; estos triggers dejan la clave borrada (o la vieja, si cambió)
+-- en BAJAS_CATALOGO y los clientes la leen con la misma marca de agua que el delta de cada catálogo.
+-- TABLA va en mayúsculas, con el mismo nombre que pasa la vista a SincronizadorCatalogos.suscribir.
+
+CREATE TABLE BAJAS_CATALOGO (
+    TABLA          VARCHAR2(30)  NOT NULL,
+    CLAVE          VARCHAR2(100) NOT NULL,
+    ACTUALIZADO_EN TIMESTAMP DEFAULT SYSTIMESTAMP NOT NULL
+);
+
+CREATE INDEX IX_BAJAS_CATALOGO ON BAJAS_CATALOGO (TABLA, ACTUALIZADO_EN);
+
+-- La columna del código es la que detecta BienesView.columnaCodigo(); ajustar si no es CODIGO_INVENTARIO
+CREATE OR REPLACE TRIGGER TRG_BIENES_BAJA
+AFTER DELETE OR UPDATE OF CODIGO_INVENTARIO ON BIENES
+FOR EACH ROW
+WHEN (NEW.CODIGO_INVENTARIO IS NULL OR NEW.CODIGO_INVENTARIO <> OLD.CODIGO_INVENTARIO)
+BEGIN
+    INSERT INTO BAJAS_CATALOGO (TABLA, CLAVE) VALUES ('BIENES', :OLD.CODIGO_INVENTARIO);
+END;
+/
+
+CREATE OR REPLACE TRIGGER TRG_EDIFICIOS_BAJA
+AFTER DELETE ON EDIFICIOS
+FOR EACH ROW
+BEGIN
+    INSERT INTO BAJAS_CATALOGO (TABLA, CLAVE) VALUES ('EDIFICIOS', TO_CHAR(:OLD.ID_EDIFICIO));
+END;
+/
+
+CREATE OR REPLACE TRIGGER TRG_PUESTOS_BAJA
+AFTER DELETE ON PUESTOS
+FOR EACH ROW
+BEGIN
+    INSERT INTO BAJAS_CATALOGO (TABLA, CLAVE) VALUES ('PUESTOS', TO_CHAR(:OLD.ID_PUESTO));
+END;
+/
+
+CREATE OR REPLACE TRIGGER TRG_UNIDADES_BAJA
+AFTER DELETE ON UNIDADES
+FOR EACH ROW
+BEGIN
+    INSERT INTO BAJAS_CATALOGO (TABLA, CLAVE) VALUES ('UNIDADES', TO_CHAR(:OLD.ID_UNIDAD));
+END;
+/
+
+CREATE OR REPLACE TRIGGER TRG_UNIDADES_ADMIN_BAJA
+AFTER DELETE ON UNIDADES_ADMINISTRATIVAS
+FOR EACH ROW
+BEGIN
+    INSERT INTO BAJAS_CATALOGO (TABLA, CLAVE) VALUES ('UNIDADES_ADMINISTRATIVAS', TO_CHAR(:OLD.ID));
+END;
+/
+
+-- Purga: una vista pausada más tiempo que esto pierde las bajas de ese lapso hasta su próxima carga completa
+BEGIN
+    DBMS_SCHEDULER.CREATE_JOB(
+        job_name        => 'PURGA_BAJAS_CATALOGO',
+        job_type        => 'PLSQL_BLOCK',
+        job_action      => 'BEGIN DELETE FROM BAJAS_CATALOGO WHERE ACTUALIZADO_EN < SYSTIMESTAMP - INTERVAL ''7'' DAY; COMMIT; END;',
+        repeat_interval => 'FREQ=DAILY; BYHOUR=3',
+        enabled         => TRUE);
+END;
+/
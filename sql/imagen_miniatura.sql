@@ -0,0 +1,6 @@
+-- Miniatura JPEG de cada bien (ProcesadorImagenes.LADO_MINIATURA px), escrita por BienesView al subir la foto.
+-- Es opcional: BienesView revisa una vez por proceso si la columna existe, así que tras correr esto hay que
+-- reiniciar la aplicación. Los bienes ya guardados quedan con NULL y se muestran con la imagen completa
+-- hasta que se vuelva a subir su foto.
+
+ALTER TABLE BIENES ADD (IMAGEN_MINIATURA BLOB);
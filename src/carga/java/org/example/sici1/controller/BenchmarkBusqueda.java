@@ -0,0 +1,148 @@
+package org.example.sici1.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Banco de pruebas de la búsqueda de {@code BienesView}, sin BD ni interfaz: arma {@link IndiceTrigramas}
+ * con {@code --filas} bienes sintéticos y compara, para las mismas consultas, el índice contra el recorrido
+ * lineal que normaliza cada fila en cada búsqueda (lo que hacía la vista antes del índice).
+ * <pre>
+ *   mvn -Pcarga package
+ *   java -cp SICI1.jar org.example.sici1.controller.BenchmarkBusqueda --filas 200000 --consultas 2000
+ * </pre>
+ * Reporta el tiempo de construcción, el heap retenido por el índice (diferencia de heap usado tras GC,
+ * aproximada) y la latencia p50/p99/máx de cada método por longitud de consulta. Las primeras
+ * {@code --calentamiento} consultas de cada método no se miden, para dar tiempo al JIT.
+ */
+public final class BenchmarkBusqueda {
+
+    private static final String[] MARCAS = {"Dell", "HP", "Lenovo", "Epson", "Cisco", "Steren", "Truper", "Ofimuebles"};
+    private static final String[] OBJETOS = {"Computadora", "Monitor", "Impresora", "Silla", "Escritorio",
+            "Proyector", "Switch", "Archivero", "Teléfono", "Pizarrón"};
+    private static final String[] ADJETIVOS = {"ejecutiva", "de escritorio", "portátil", "láser", "giratoria",
+            "metálico", "inalámbrico", "de 24 pulgadas", "multifuncional", "de madera"};
+
+    private int filas = 200_000;
+    private int consultas = 2_000;
+    private int calentamiento = 500;
+    private long semilla = 42;
+
+    public static void main(String[] args) {
+        BenchmarkBusqueda b = new BenchmarkBusqueda();
+        b.leerOpciones(args);
+        b.correr();
+    }
+
+    private void leerOpciones(String[] args) {
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String v = args[i + 1];
+            switch (args[i]) {
+                case "--filas" -> filas = Integer.parseInt(v);
+                case "--consultas" -> consultas = Integer.parseInt(v);
+                case "--calentamiento" -> calentamiento = Integer.parseInt(v);
+                case "--semilla" -> semilla = Long.parseLong(v);
+                default -> throw new IllegalArgumentException("Opción desconocida: " + args[i]);
+            }
+        }
+    }
+
+    private void correr() {
+        SplittableRandom azar = new SplittableRandom(semilla);
+        List<String[]> datos = new ArrayList<>(filas);
+        for (int i = 0; i < filas; i++) datos.add(fila(i, azar));
+
+        long antes = heapTrasGc();
+        long t0 = System.nanoTime();
+        IndiceTrigramas<String[]> indice = new IndiceTrigramas<>(t -> t[0], t -> t);
+        for (int i = 0; i < datos.size(); i += 1000) {
+            indice.agregarTodos(datos.subList(i, Math.min(datos.size(), i + 1000)));
+        }
+        long construccionMs = (System.nanoTime() - t0) / 1_000_000;
+        long retenido = heapTrasGc() - antes;
+        System.out.printf(Locale.ROOT, "Índice: %,d filas en %,d ms, ~%,d KB retenidos (%,d bytes/fila)%n",
+                indice.tamano(), construccionMs, retenido / 1024, filas == 0 ? 0 : retenido / filas);
+
+        for (int largo : new int[]{2, 3, 5, 8}) {
+            List<String> qs = new ArrayList<>(consultas);
+            for (int i = 0; i < calentamiento + consultas; i++) qs.add(consulta(datos, largo, azar));
+
+            Histograma conIndice = new Histograma();
+            Histograma lineal = new Histograma();
+            long coincidencias = 0;
+            for (int i = 0; i < qs.size(); i++) {
+                long inicio = System.nanoTime();
+                int n = indice.buscar(qs.get(i)).size();
+                if (i >= calentamiento) {
+                    conIndice.registrar((System.nanoTime() - inicio) / 1_000);
+                    coincidencias += n;
+                }
+            }
+            long coincidenciasLineal = 0;
+            for (int i = 0; i < qs.size(); i++) {
+                long inicio = System.nanoTime();
+                int n = recorrer(datos, qs.get(i));
+                if (i >= calentamiento) {
+                    lineal.registrar((System.nanoTime() - inicio) / 1_000);
+                    coincidenciasLineal += n;
+                }
+            }
+            System.out.printf(Locale.ROOT, "Consultas de %d caracteres (%,d, %,.1f coincidencias de media):%n",
+                    largo, consultas, consultas == 0 ? 0.0 : (double) coincidencias / consultas);
+            if (coincidencias != coincidenciasLineal) {
+                System.out.printf(Locale.ROOT, "  ¡Diferencia! índice %,d vs lineal %,d coincidencias%n",
+                        coincidencias, coincidenciasLineal);
+            }
+            imprimir("  índice", conIndice);
+            imprimir("  lineal", lineal);
+        }
+    }
+
+    /** Lo que hacía la vista sin índice: normalizar y buscar en cada campo de cada fila. */
+    private static int recorrer(List<String[]> datos, String consulta) {
+        String q = IndiceTrigramas.normalizar(consulta);
+        int n = 0;
+        for (String[] f : datos) {
+            for (String campo : f) {
+                if (IndiceTrigramas.normalizar(campo).contains(q)) {
+                    n++;
+                    break;
+                }
+            }
+        }
+        return n;
+    }
+
+    private static String[] fila(int i, SplittableRandom azar) {
+        String objeto = OBJETOS[azar.nextInt(OBJETOS.length)];
+        return new String[]{
+                String.format("UAA-%07d", i),
+                objeto + " " + ADJETIVOS[azar.nextInt(ADJETIVOS.length)],
+                MARCAS[azar.nextInt(MARCAS.length)],
+                objeto.substring(0, 3).toUpperCase(Locale.ROOT) + "-" + azar.nextInt(1000),
+                Long.toString(azar.nextLong(1L << 40), 36).toUpperCase(Locale.ROOT)
+        };
+    }
+
+    /** Subcadena de un campo de una fila al azar: toda consulta tiene al menos una coincidencia. */
+    private static String consulta(List<String[]> datos, int largo, SplittableRandom azar) {
+        String[] f = datos.get(azar.nextInt(datos.size()));
+        String campo = f[azar.nextInt(f.length)];
+        if (campo.length() <= largo) return campo;
+        int desde = azar.nextInt(campo.length() - largo + 1);
+        return campo.substring(desde, desde + largo);
+    }
+
+    private static void imprimir(String nombre, Histograma h) {
+        System.out.printf(Locale.ROOT, "%s: p50 %.3f ms  p99 %.3f ms  máx %.3f ms%n", nombre,
+                h.percentil(0.50) / 1000.0, h.percentil(0.99) / 1000.0, h.maximoMicros() / 1000.0);
+    }
+
+    private static long heapTrasGc() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,131 @@
+package org.example.sici1.controller;
+
+import net.sf.jasperreports.engine.JasperExportManager;
+import net.sf.jasperreports.engine.JasperFillManager;
+import net.sf.jasperreports.engine.JasperPrint;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Banco de pruebas del reporte de inventario, sin interfaz: llena y exporta a PDF el reporte de un
+ * inventario existente (pensado para uno de ~10 000 renglones de DETALLE_INVENTARIO) varias veces y
+ * reporta tiempo de llenado, tiempo de exportación y pico de heap de cada corrida.
+ * <pre>
+ *   mvn -Pcarga package
+ *   java -Xmx1g -cp SICI1.jar org.example.sici1.controller.BenchmarkReporte --inventario 1234 --repeticiones 5
+ *   java -Xmx1g -cp SICI1.jar org.example.sici1.controller.BenchmarkReporte --inventario 1234 --sin-virtualizador true
+ * </pre>
+ * Sin {@code --url} usa el pool de la aplicación ({@link Conexion}); con {@code --url --usuario --clave}, una
+ * conexión directa. {@code --sin-virtualizador true} llena con {@link JasperFillManager} todo en memoria,
+ * para comparar contra {@link ReporteInventario#llenarEnLote}.
+ * El pico de heap se muestrea cada {@code --muestreo} ms desde un hilo aparte (no toca los picos de los
+ * pools de la JVM) y se reporta sobre el heap usado al empezar cada corrida; la primera corrida incluye
+ * la carga del .jasper compilado.
+ */
+public final class BenchmarkReporte {
+
+    private long inventario = -1;
+    private int repeticiones = 3;
+    private boolean sinVirtualizador;
+    private int muestreoMs = 5;
+    private String url, usuario, clave;
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkReporte b = new BenchmarkReporte();
+        b.leerOpciones(args);
+        b.correr();
+    }
+
+    private void leerOpciones(String[] args) {
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String v = args[i + 1];
+            switch (args[i]) {
+                case "--inventario" -> inventario = Long.parseLong(v);
+                case "--repeticiones" -> repeticiones = Math.max(1, Integer.parseInt(v));
+                case "--sin-virtualizador" -> sinVirtualizador = Boolean.parseBoolean(v);
+                case "--muestreo" -> muestreoMs = Math.max(1, Integer.parseInt(v));
+                case "--url" -> url = v;
+                case "--usuario" -> usuario = v;
+                case "--clave" -> clave = v;
+                default -> throw new IllegalArgumentException("Opción desconocida: " + args[i]);
+            }
+        }
+        if (inventario < 0) throw new IllegalArgumentException("Falta --inventario (ID_INVENTARIO existente)");
+    }
+
+    private void correr() throws Exception {
+        Path pdf = Files.createTempFile("sici-benchmark-", ".pdf");
+        try (Connection cn = conectar()) {
+            System.out.printf(Locale.ROOT, "Inventario %d: %,d renglones, %s, %d corridas%n", inventario,
+                    renglones(cn), sinVirtualizador ? "en memoria" : "virtualizado", repeticiones);
+            for (int i = 1; i <= repeticiones; i++) corrida(cn, i, pdf);
+        } finally {
+            Files.deleteIfExists(pdf);
+        }
+    }
+
+    private void corrida(Connection cn, int numero, Path pdf) throws Exception {
+        System.gc();
+        long base = ReporteInventario.heapUsado();
+        AtomicLong pico = new AtomicLong(base);
+        AtomicBoolean midiendo = new AtomicBoolean(true);
+        Thread muestreo = Thread.ofPlatform().daemon().name("sici-benchmark-heap").start(() -> {
+            while (midiendo.get()) {
+                pico.accumulateAndGet(ReporteInventario.heapUsado(), Math::max);
+                try {
+                    Thread.sleep(muestreoMs);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+
+        long inicio = System.nanoTime();
+        int paginas;
+        long llenadoMs, exportacionMs;
+        try {
+            if (sinVirtualizador) {
+                JasperPrint print = JasperFillManager.fillReport(ReporteInventario.compilado(),
+                        ReporteInventario.parametros(inventario), cn);
+                llenadoMs = (System.nanoTime() - inicio) / 1_000_000;
+                paginas = print.getPages().size();
+                JasperExportManager.exportReportToPdfFile(print, pdf.toString());
+            } else {
+                try (ReporteInventario.Llenado llenado = ReporteInventario.llenarEnLote(cn, inventario, p -> {})) {
+                    llenadoMs = (System.nanoTime() - inicio) / 1_000_000;
+                    paginas = llenado.getPaginas();
+                    llenado.exportarPdf(pdf);
+                }
+            }
+            exportacionMs = (System.nanoTime() - inicio) / 1_000_000 - llenadoMs;
+        } finally {
+            midiendo.set(false);
+            muestreo.interrupt();
+            muestreo.join();
+        }
+        System.out.printf(Locale.ROOT, "  #%d: %d páginas, llenado %,d ms, PDF %,d ms, pico de heap +%,d MB (%,d KB de PDF)%n",
+                numero, paginas, llenadoMs, exportacionMs, (pico.get() - base) / (1024 * 1024), Files.size(pdf) / 1024);
+    }
+
+    private long renglones(Connection cn) throws SQLException {
+        try (PreparedStatement ps = cn.prepareStatement("SELECT COUNT(*) FROM DETALLE_INVENTARIO WHERE ID_INVENTARIO = ?")) {
+            ps.setLong(1, inventario);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    private Connection conectar() throws SQLException {
+        return url == null ? Conexion.conectar() : DriverManager.getConnection(url, usuario, clave);
+    }
+}
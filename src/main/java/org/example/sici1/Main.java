@@ -6,11 +6,16 @@ import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 import javafx.scene.image.Image;
+import org.example.sici1.controller.Arranque;
+import org.example.sici1.controller.VigilanteFx;
 
 public class Main extends Application {
 
     @Override
     public void start(Stage primaryStage) throws Exception {
+        // Avisa de bloqueos del hilo de JavaFX (umbral con -Dsici.fx.umbralMs)
+        VigilanteFx.iniciar();
+
         FXMLLoader loader = new FXMLLoader(getClass().getResource("/org/example/sici1/view/login.fxml"));
         Parent root = loader.load();
 
@@ -25,6 +30,9 @@ public class Main extends Application {
 
         primaryStage.setResizable(false); // Opcional, para evitar que lo hagan más chico
         primaryStage.show();
+
+        // Driver, wallet y pool se preparan mientras el usuario escribe sus credenciales
+        Arranque.calentar();
     }
 
     public static void main(String[] args) {
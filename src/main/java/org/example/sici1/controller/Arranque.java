@@ -0,0 +1,115 @@
+package org.example.sici1.controller;
+
+import javafx.scene.Scene;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Orquesta el arranque para que lo caro ocurra mientras el usuario escribe su contraseña:
+ * carga del driver, lectura del wallet/TLS, creación del pool y conexiones ya etiquetadas con el esquema.
+ * Tras autenticar se piden los catálogos en paralelo, y se mide el tiempo hasta que el tablero es
+ * interactivo (primer pulso con layout). Cada arranque se anexa a {@code ~/.sici/arranque.csv}
+ * para comparar entre versiones.
+ */
+public final class Arranque {
+
+    /** Igual al mínimo del pool: todas las conexiones físicas iniciales quedan abiertas y etiquetadas. */
+    private static final int CONEXIONES_TIBIAS = 3;
+    private static final Path METRICAS = Path.of(System.getProperty("user.home"), ".sici", "arranque.csv");
+
+    private static CompletableFuture<Void> calentamiento;
+    private static volatile long loginVisibleMs = -1;
+    private static volatile long poolListoMs = -1;
+    private static volatile long loginEnviadoEn;
+    private static volatile boolean primerTablero = true;
+
+    private Arranque() {}
+
+    /** Llamar al mostrar el login; no bloquea. Idempotente. */
+    public static synchronized CompletableFuture<Void> calentar() {
+        if (calentamiento != null) return calentamiento;
+        loginVisibleMs = desdeInicioJvm();
+        calentamiento = DbExecutor.supply(() -> {
+            Class.forName("oracle.jdbc.OracleDriver");
+            Conexion.getDataSource(); // inicializador estático: tns_admin y pool
+            // Pedidas a la vez para abrir varias conexiones físicas (TLS + ALTER SESSION) en paralelo
+            List<CompletableFuture<Void>> conexiones = new ArrayList<>(CONEXIONES_TIBIAS);
+            for (int i = 0; i < CONEXIONES_TIBIAS; i++) {
+                conexiones.add(DbExecutor.supply(() -> {
+                    try (Connection cn = Conexion.conectar(); Statement st = cn.createStatement()) {
+                        st.execute("SELECT 1 FROM dual");
+                    }
+                    return null;
+                }));
+            }
+            CompletableFuture.allOf(conexiones.toArray(new CompletableFuture[0])).join();
+            poolListoMs = desdeInicioJvm();
+            return null;
+        });
+        calentamiento.exceptionally(e -> {
+            // Sin red al arrancar no es fatal: el login reintentará al pedir su conexión
+            System.err.println("Arranque: no se pudo calentar el pool: " + DbExecutor.causa(e).getMessage());
+            return null;
+        });
+        return calentamiento;
+    }
+
+    /** El usuario pulsó "Entrar": inicio de la espera que percibe. */
+    public static void alEnviarLogin() {
+        loginEnviadoEn = System.nanoTime();
+    }
+
+    /** Credenciales válidas: catálogos en paralelo mientras se construye el tablero. */
+    public static void alAutenticar() {
+        Catalogos.precargar();
+    }
+
+    /**
+     * Registra la métrica cuando la escena del tablero completa su primer pulso con layout
+     * (ya pintado y respondiendo a eventos). Llamar justo después de {@code stage.show()}.
+     */
+    public static void alMostrarTablero(Scene escena) {
+        Runnable[] oyente = new Runnable[1];
+        oyente[0] = () -> {
+            escena.removePostLayoutPulseListener(oyente[0]);
+            long loginATablero = loginEnviadoEn == 0 ? -1 : (System.nanoTime() - loginEnviadoEn) / 1_000_000;
+            // Desde el inicio de la JVM solo tiene sentido la primera vez (no tras cerrar sesión)
+            registrar(loginATablero, primerTablero ? desdeInicioJvm() : -1);
+            primerTablero = false;
+        };
+        escena.addPostLayoutPulseListener(oyente[0]);
+    }
+
+    private static void registrar(long loginATableroMs, long arranqueATableroMs) {
+        String version = Arranque.class.getPackage().getImplementationVersion();
+        String linea = LocalDateTime.now().withNano(0) + "," + (version != null ? version : "dev") + ","
+                + loginVisibleMs + "," + poolListoMs + "," + loginATableroMs + "," + arranqueATableroMs + "\n";
+        DbExecutor.execute(() -> {
+            try {
+                Files.createDirectories(METRICAS.getParent());
+                if (!Files.exists(METRICAS)) {
+                    Files.writeString(METRICAS, "fecha,version,login_visible_ms,pool_listo_ms,login_a_tablero_ms,inicio_a_tablero_ms\n",
+                            StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                }
+                Files.writeString(METRICAS, linea, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    private static long desdeInicioJvm() {
+        return System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+}
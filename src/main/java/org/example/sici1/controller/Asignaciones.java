@@ -0,0 +1,288 @@
+package org.example.sici1.controller;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Asignación de bienes a inventarios sin interfaz, con el contrato JSON del README
+ * ({@code empleado_nombre}, {@code espacio_id}, {@code unidad_id}, {@code fecha}, {@code bien_codigo_inventario}).
+ * Usa la misma escritura que la captura en pantalla: el encabezado de INVENTARIO por UA + espacio + fecha
+ * (el mismo que arma {@code AsignacionesView}) y los renglones de DETALLE_INVENTARIO con el lote de
+ * {@link LoteEscaneo}. Las solicitudes se agrupan por encabezado y cada grupo se escribe en lotes.
+ */
+public final class Asignaciones {
+
+    public enum Estado { AGREGADO, REPETIDO, NO_EXISTE, INVALIDO, ERROR }
+
+    public record Solicitud(String empleadoNombre, long espacioId, long unidadId, LocalDate fecha, String codigo) {
+
+        /** Valida y convierte un objeto del contrato; el mensaje de la excepción va tal cual al cliente. */
+        public static Solicitud desdeJson(Map<String, Object> o) {
+            String empleado = texto(o, "empleado_nombre");
+            String codigo = texto(o, "bien_codigo_inventario");
+            long espacio = numero(o, "espacio_id");
+            long unidad = numero(o, "unidad_id");
+            Object f = o.get("fecha");
+            LocalDate fecha;
+            if (f == null) {
+                fecha = LocalDate.now(); // igual que el diálogo del encabezado
+            } else {
+                try {
+                    fecha = LocalDate.parse(f.toString());
+                } catch (DateTimeParseException e) {
+                    throw new IllegalArgumentException("fecha debe tener formato AAAA-MM-DD");
+                }
+            }
+            return new Solicitud(empleado, espacio, unidad, fecha, codigo);
+        }
+
+        private static String texto(Map<String, Object> o, String campo) {
+            Object v = o.get(campo);
+            if (!(v instanceof String s) || s.isBlank()) throw new IllegalArgumentException(campo + " es obligatorio");
+            return s.trim();
+        }
+
+        private static long numero(Map<String, Object> o, String campo) {
+            Object v = o.get(campo);
+            try {
+                if (v instanceof BigDecimal n) return n.longValueExact();
+                if (v instanceof String s) return Long.parseLong(s.trim());
+            } catch (ArithmeticException | NumberFormatException e) {
+                // cae al error de abajo
+            }
+            throw new IllegalArgumentException(campo + " debe ser un número entero");
+        }
+    }
+
+    public record Resultado(Estado estado, String codigo, Long idInventario, Long idDetalle, String mensaje) {
+
+        static Resultado invalido(String codigo, String mensaje) {
+            return new Resultado(Estado.INVALIDO, codigo, null, null, mensaje);
+        }
+
+        public Map<String, Object> comoJson() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("resultado", estado.name());
+            m.put("bien_codigo_inventario", codigo);
+            m.put("id_inventario", idInventario);
+            m.put("id_detalle", idDetalle);
+            if (mensaje != null) m.put("mensaje", mensaje);
+            return m;
+        }
+    }
+
+    /** Llave del encabezado: lo que comparte un grupo de solicitudes. */
+    record Encabezado(long unidadId, long espacioId, LocalDate fecha, String empleadoNombre) {
+        static Encabezado de(Solicitud s) {
+            return new Encabezado(s.unidadId(), s.espacioId(), s.fecha(), s.empleadoNombre().toUpperCase());
+        }
+    }
+
+    // Dos solicitudes simultáneas del mismo inventario (UA + espacio + fecha, lo que consulta buscarInventario)
+    // no deben crear dos INVENTARIO; el empleado no entra en la llave. Solo serializa dentro de este proceso:
+    // guardarEncabezado de la pantalla y otras instancias de la API no pasan por aquí, así que la garantía
+    // real exige una restricción única (ID_UNIDAD_ADMINISTRATIVA, ID_UNIDAD, FECHA) o un MERGE en la BD.
+    private static final ReentrantLock[] CANDADOS = new ReentrantLock[64];
+    static {
+        for (int i = 0; i < CANDADOS.length; i++) CANDADOS[i] = new ReentrantLock();
+    }
+
+    private Asignaciones() {}
+
+    // ===================== Encabezado (INVENTARIO) =====================
+
+    /** Inventario activo de esa UA + espacio + fecha, o null. */
+    static Long buscarInventario(Connection cn, long idUnidadAdmin, long idEspacio, LocalDate fecha) throws SQLException {
+        final String sql = """
+            SELECT ID_INVENTARIO
+            FROM INVENTARIO
+            WHERE ID_UNIDAD_ADMINISTRATIVA = ?
+              AND ID_UNIDAD = ?
+              AND FECHA = ?
+              AND ACTIVO = 'S'
+        """;
+        try (PreparedStatement ps = cn.prepareStatement(sql)) {
+            ps.setLong(1, idUnidadAdmin);
+            ps.setLong(2, idEspacio);
+            ps.setDate(3, Date.valueOf(fecha));
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : null;
+            }
+        }
+    }
+
+    /** Crea el encabezado y devuelve su ID_INVENTARIO. */
+    static long crearInventario(Connection cn, long idUnidadAdmin, long idEspacio, long idEmpleado, LocalDate fecha) throws SQLException {
+        final String sql = """
+            INSERT INTO INVENTARIO
+                (ID_UNIDAD_ADMINISTRATIVA, ID_UNIDAD, ID_EMPLEADO, FECHA, ACTIVO, CREADO_EN, ACTUALIZADO_EN)
+            VALUES
+                (?, ?, ?, ?, 'S', SYSTIMESTAMP, SYSTIMESTAMP)
+        """;
+        try (PreparedStatement ps = cn.prepareStatement(sql, new String[]{"ID_INVENTARIO"})) {
+            ps.setLong(1, idUnidadAdmin);           // ID_UNIDAD_ADMINISTRATIVA
+            ps.setLong(2, idEspacio);               // ID_UNIDAD
+            ps.setLong(3, idEmpleado);              // ID_EMPLEADO
+            ps.setDate(4, Date.valueOf(fecha));     // FECHA
+            ps.executeUpdate();
+            try (ResultSet gk = ps.getGeneratedKeys()) {
+                if (gk.next()) return gk.getLong(1);
+            }
+        }
+        throw new SQLException("INSERT INTO INVENTARIO no devolvió ID_INVENTARIO");
+    }
+
+    /** A diferencia de la pantalla, la API no pregunta: si el encabezado ya existe, se agrega a ese. */
+    static long obtenerOCrearInventario(Connection cn, Encabezado enc, long idEmpleado) throws SQLException {
+        int llave = Objects.hash(enc.unidadId(), enc.espacioId(), enc.fecha());
+        ReentrantLock candado = CANDADOS[Math.floorMod(llave, CANDADOS.length)];
+        candado.lock();
+        try {
+            Long existente = buscarInventario(cn, enc.unidadId(), enc.espacioId(), enc.fecha());
+            return existente != null ? existente
+                    : crearInventario(cn, enc.unidadId(), enc.espacioId(), idEmpleado, enc.fecha());
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    // ===================== Asignación =====================
+
+    public static List<Resultado> asignar(List<Solicitud> solicitudes) throws SQLException {
+        try (Connection cn = Conexion.conectar()) {
+            return asignar(cn, solicitudes);
+        }
+    }
+
+    /**
+     * Resultados en el mismo orden que las solicitudes. Un grupo que falla por la BD se marca ERROR y los
+     * demás siguen; la validación (UA, espacio, empleado) se consulta una vez por valor distinto.
+     */
+    static List<Resultado> asignar(Connection cn, List<Solicitud> solicitudes) throws SQLException {
+        Resultado[] resultados = new Resultado[solicitudes.size()];
+        Map<Encabezado, List<Integer>> grupos = new LinkedHashMap<>();
+        for (int i = 0; i < solicitudes.size(); i++) {
+            grupos.computeIfAbsent(Encabezado.de(solicitudes.get(i)), k -> new ArrayList<>()).add(i);
+        }
+
+        Validador validador = new Validador(cn);
+        for (Map.Entry<Encabezado, List<Integer>> g : grupos.entrySet()) {
+            Encabezado enc = g.getKey();
+            List<Integer> indices = g.getValue();
+            try {
+                String invalido = validador.validar(enc);
+                if (invalido != null) {
+                    for (int i : indices) resultados[i] = Resultado.invalido(solicitudes.get(i).codigo(), invalido);
+                    continue;
+                }
+                long idInventario = obtenerOCrearInventario(cn, enc, validador.empleado(enc.empleadoNombre()));
+                for (int desde = 0; desde < indices.size(); desde += LoteEscaneo.MAX_LOTE) {
+                    List<Integer> tramo = indices.subList(desde, Math.min(indices.size(), desde + LoteEscaneo.MAX_LOTE));
+                    List<LoteEscaneo.Escaneo> escaneos = new ArrayList<>(tramo.size());
+                    for (int i : tramo) escaneos.add(new LoteEscaneo.Escaneo(idInventario, solicitudes.get(i).codigo(), -1));
+                    List<LoteEscaneo.Salida> salidas = LoteEscaneo.resolver(cn, escaneos);
+                    for (int k = 0; k < tramo.size(); k++) {
+                        resultados[tramo.get(k)] = convertir(idInventario, salidas.get(k));
+                    }
+                }
+            } catch (SQLException e) {
+                if (LoteEscaneo.esFallaDeConexion(e)) throw e; // sin conexión, tampoco saldrán los grupos siguientes
+                for (int i : indices) {
+                    if (resultados[i] == null) {
+                        resultados[i] = new Resultado(Estado.ERROR, solicitudes.get(i).codigo(), null, null, e.getMessage());
+                    }
+                }
+            }
+        }
+        return List.of(resultados);
+    }
+
+    private static Resultado convertir(long idInventario, LoteEscaneo.Salida s) {
+        String codigo = s.escaneo().codigo();
+        return switch (s.resultado()) {
+            case AGREGADO -> new Resultado(Estado.AGREGADO, codigo, idInventario, s.fila().getIdDetalle(), null);
+            case REPETIDO -> new Resultado(Estado.REPETIDO, codigo, idInventario,
+                    s.fila() == null ? null : s.fila().getIdDetalle(), "El bien ya está en el inventario");
+            case NO_EXISTE -> new Resultado(Estado.NO_EXISTE, codigo, idInventario, null, "No existe un bien con ese código");
+        };
+    }
+
+    /** Validaciones del encabezado, memorizadas por valor durante una llamada. */
+    private static final class Validador {
+        private final Connection cn;
+        private final Map<Long, Boolean> uas = new HashMap<>();
+        private final Map<Long, Boolean> espacios = new HashMap<>();
+        private final Map<String, Object> empleados = new HashMap<>(); // id (Long) o mensaje de error (String)
+
+        Validador(Connection cn) { this.cn = cn; }
+
+        /** null si el encabezado es válido; si no, el motivo. */
+        String validar(Encabezado enc) throws SQLException {
+            if (!activa(uas, enc.unidadId(), "SELECT 1 FROM ID_UNIDADES_ADMINISTRATIVAS WHERE ID = ? AND ACTIVO = 'S'")) {
+                return "unidad_id " + enc.unidadId() + " no existe o está inactiva";
+            }
+            if (!activa(espacios, enc.espacioId(), "SELECT 1 FROM UNIDADES WHERE ID_UNIDAD = ? AND ACTIVO = 'S'")) {
+                return "espacio_id " + enc.espacioId() + " no existe o está inactivo";
+            }
+            Object empleado = buscarEmpleado(enc.empleadoNombre());
+            return empleado instanceof String mensaje ? mensaje : null;
+        }
+
+        long empleado(String nombre) throws SQLException {
+            return (Long) buscarEmpleado(nombre);
+        }
+
+        private boolean activa(Map<Long, Boolean> cache, long id, String sql) throws SQLException {
+            Boolean r = cache.get(id);
+            if (r == null) {
+                try (PreparedStatement ps = cn.prepareStatement(sql)) {
+                    ps.setLong(1, id);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        r = rs.next();
+                    }
+                }
+                cache.put(id, r);
+            }
+            return r;
+        }
+
+        /** Por nombre, o por nombre completo con apellidos; ambiguo si coincide más de uno. */
+        private Object buscarEmpleado(String nombre) throws SQLException {
+            Object r = empleados.get(nombre.toUpperCase());
+            if (r != null) return r;
+            final String sql = """
+                SELECT id_empleado
+                  FROM empleados
+                 WHERE UPPER(TRIM(nombre)) = UPPER(?)
+                    OR UPPER(TRIM(NVL(nombre,'')||' '||NVL(apellido_p,'')||' '||NVL(apellido_m,''))) = UPPER(?)
+                 FETCH FIRST 2 ROWS ONLY
+            """;
+            List<Long> ids = new ArrayList<>(2);
+            try (PreparedStatement ps = cn.prepareStatement(sql)) {
+                ps.setString(1, nombre);
+                ps.setString(2, nombre);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) ids.add(rs.getLong(1));
+                }
+            }
+            if (ids.isEmpty()) r = "empleado_nombre '" + nombre + "' no existe";
+            else if (ids.size() > 1) r = "empleado_nombre '" + nombre + "' es ambiguo; use el nombre completo";
+            else r = ids.get(0);
+            empleados.put(nombre.toUpperCase(), r);
+            return r;
+        }
+    }
+}
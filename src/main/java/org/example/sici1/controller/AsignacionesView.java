@@ -9,70 +9,34 @@ import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.control.TableCell;
 import javafx.scene.layout.GridPane;
+import javafx.stage.DirectoryChooser;
+import javafx.stage.FileChooser;
 
-import oracle.ucp.jdbc.PoolDataSource;
-import oracle.ucp.jdbc.PoolDataSourceFactory;
-
-import javax.sql.DataSource;
-import java.io.InputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.*;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletableFuture;
 
 // JasperReports
-import net.sf.jasperreports.engine.JasperExportManager;
-import net.sf.jasperreports.engine.JasperFillManager;
-import net.sf.jasperreports.engine.JasperPrint;
-import net.sf.jasperreports.engine.JasperReport;
-import net.sf.jasperreports.engine.util.JRLoader;
 import net.sf.jasperreports.view.JasperViewer;
 
-public class AsignacionesView {
-
-    // ===================== Configuración de Conexión =====================
-    private static final String TNS_ADMIN_PATH = "C:/Users/VICTOR UZZIEL/IdeaProjects/SICI1/src/main/resources/org/example/sici1/Wallet_CN4PI23N1E6J6TZS";
-    private static final String JDBC_URL = "jdbc:oracle:thin:@cn4pi23n1e6j6tzs_high";
-    private static final String DB_USER = "ADMIN";
-    private static final String DB_PASS = "Knoxotics_Kashima50";
+import javax.swing.SwingUtilities;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 
-    private static DataSource dataSource;
-    private static final ExecutorService IO_POOL = Executors.newFixedThreadPool(
-            Math.max(4, Runtime.getRuntime().availableProcessors() / 2)
-    );
-
-    static {
-        System.setProperty("oracle.net.tns_admin", TNS_ADMIN_PATH);
-        initializeDataSource();
-    }
-
-    private static void initializeDataSource() {
-        try {
-            PoolDataSource pds = PoolDataSourceFactory.getPoolDataSource();
-            pds.setConnectionFactoryClassName("oracle.jdbc.pool.OracleDataSource");
-            pds.setURL(JDBC_URL);
-            pds.setUser(DB_USER);
-            pds.setPassword(DB_PASS);
-            pds.setInitialPoolSize(3);
-            pds.setMinPoolSize(3);
-            pds.setMaxPoolSize(15);
-            pds.setAbandonedConnectionTimeout(60);
-            pds.setInactiveConnectionTimeout(120);
-            pds.setTimeoutCheckInterval(30);
-            pds.setValidateConnectionOnBorrow(true);
-            pds.setConnectionWaitTimeout(60);
-            dataSource = pds;
-        } catch (SQLException e) {
-            throw new RuntimeException("No se pudo inicializar el pool UCP", e);
-        }
-    }
+public class AsignacionesView implements VistaActivable {
 
     // ============================= Componentes FXML =============================
     @FXML private Label lblInventarioId, lblInfo;
     @FXML private TextField txtCodigoBien;
-    @FXML private Button btnCrearInventario, btnAgregarBien, btnImprimir;
+    @FXML private Button btnCrearInventario, btnAgregarBien, btnImprimir, btnReportesPeriodo, btnExportarDetalle;
+    @FXML private CheckBox chkModoLote;
 
     @FXML private TableView<DetalleRow> tablaDetalle;
     @FXML private TableColumn<DetalleRow, String> colCodigo, colDescripcion, colEstado;
@@ -82,13 +46,17 @@ public class AsignacionesView {
     private final ObservableList<DetalleRow> detalles = FXCollections.observableArrayList();
     private Long idInventarioActual = null;
 
-    // Empleado que crea el inventario (ajústalo desde tu flujo de login)
-    private Long idEmpleadoActual = 1L;
+    // Escaneos: primero a la bitácora local (compartida entre aperturas de la vista), luego a la BD por lotes
+    private static final BitacoraEscaneos BITACORA = new BitacoraEscaneos();
+    private final LoteEscaneo escaneos = new LoteEscaneo(BITACORA, this::alTerminarLote, this::alFallarLote, this::alPerderConexion);
+    // Filas mostradas antes de confirmarse en la BD, por posición en la bitácora
+    private final Map<Long, DetalleRow> filasPendientes = new HashMap<>();
+
+    // Empleado que crea el inventario: el de la sesión (las cuentas sin empleado conservan el 1 de antes)
+    private Long idEmpleadoActual = Sesion.actual().getIdEmpleado() != null ? Sesion.actual().getIdEmpleado() : 1L;
     public void setIdEmpleadoActual(Long id) { this.idEmpleadoActual = id; }
 
     // Caches para combos
-    private final ObservableList<Item> cacheUnidadesAdmin = FXCollections.observableArrayList(); // UNIDADES_ADMINISTRATIVAS
-    private final ObservableList<Item> cacheEspacios = FXCollections.observableArrayList();      // UNIDADES (espacios)
 
     // ============================= Ciclo de vida =============================
     @FXML
@@ -96,6 +64,20 @@ public class AsignacionesView {
         configurarTabla();
         configurarBotones();
         precargarCacheCombos();
+        escaneos.reanudar();
+    }
+
+    /** La vista queda en caché: al volver se relee el detalle del inventario abierto (pudo cambiar en otro equipo). */
+    @Override
+    public void alActivar() {
+        if (idInventarioActual == null || escaneos.isSinConexion()) return;
+        final long idInventario = idInventarioActual;
+        DbExecutor.execute(() -> cargarDetalleInventario(idInventario));
+    }
+
+    @Override
+    public long memoriaEstimada() {
+        return BYTES_BASE + detalles.size() * BYTES_POR_FILA;
     }
 
     private void configurarTabla() {
@@ -124,27 +106,25 @@ public class AsignacionesView {
     private void configurarBotones() {
         btnCrearInventario.setOnAction(e -> abrirDialogoEncabezado());
         btnAgregarBien.setOnAction(e -> onAgregarBien());
+        txtCodigoBien.setOnAction(e -> onAgregarBien()); // la pistola envía Enter tras cada código
         btnImprimir.setOnAction(e -> imprimir());
+        btnReportesPeriodo.setOnAction(e -> abrirDialogoReportesPeriodo());
+        btnExportarDetalle.setOnAction(e -> exportarDetalleExcel());
     }
 
     private void precargarCacheCombos() {
-        IO_POOL.execute(() -> {
-            try {
-                // Cargar en background…
-                ObservableList<Item> uas = cargarItems(
-                        "SELECT id, nombre FROM ID_UNIDADES_ADMINISTRATIVAS WHERE ACTIVO = 'S' ORDER BY nombre");
-                ObservableList<Item> espacios = cargarItems(
-                        "SELECT id_unidad, nombre FROM UNIDADES WHERE ACTIVO = 'S' ORDER BY nombre");
-                // …y aplicar en el hilo FX
-                Platform.runLater(() -> {
-                    cacheUnidadesAdmin.setAll(uas);
-                    cacheEspacios.setAll(espacios);
-                });
-            } catch (SQLException e) {
-                Platform.runLater(() ->
-                        showAlert("Error al cargar catálogos: " + e.getMessage(), Alert.AlertType.ERROR));
-            }
-        });
+        // Normalmente ya vienen precargados desde el login; si no, se piden ambos a la vez
+        CompletableFuture<?> uas = Catalogos.UNIDADES_ADMIN.obtener();
+        CompletableFuture<?> espacios = Catalogos.ESPACIOS.obtener();
+        DbExecutor.enFx(CompletableFuture.allOf(uas, espacios), v -> {},
+                e -> showAlert("Error al cargar catálogos: " + e.getMessage(), Alert.AlertType.ERROR));
+    }
+
+    /** Combo con la lista compartida (de solo lectura) del catálogo. */
+    private ComboBox<Item> comboDe(Catalogos.Catalogo<Item> catalogo) {
+        ComboBox<Item> combo = new ComboBox<>();
+        catalogo.enCombo(combo, e -> showAlert("Error al cargar catálogos: " + e.getMessage(), Alert.AlertType.ERROR));
+        return combo;
     }
 
     // ========================== Encabezado de Inventario ==========================
@@ -154,8 +134,8 @@ public class AsignacionesView {
         ButtonType ok = new ButtonType("Guardar", ButtonBar.ButtonData.OK_DONE);
         dialog.getDialogPane().getButtonTypes().addAll(ok, ButtonType.CANCEL);
 
-        ComboBox<Item> cmbUnidadAdmin = new ComboBox<>(cacheUnidadesAdmin);
-        ComboBox<Item> cmbEspacio = new ComboBox<>(cacheEspacios);
+        ComboBox<Item> cmbUnidadAdmin = comboDe(Catalogos.UNIDADES_ADMIN);
+        ComboBox<Item> cmbEspacio = comboDe(Catalogos.ESPACIOS);
         DatePicker dpFecha = new DatePicker(LocalDate.now());
 
         GridPane grid = new GridPane();
@@ -179,26 +159,10 @@ public class AsignacionesView {
     }
 
     private void guardarEncabezado(HeaderData hd) {
-        IO_POOL.execute(() -> {
-            try (Connection cn = dataSource.getConnection()) {
-
-                final String sqlExists = """
-                    SELECT ID_INVENTARIO
-                    FROM INVENTARIO
-                    WHERE ID_UNIDAD_ADMINISTRATIVA = ?
-                      AND ID_UNIDAD = ?
-                      AND FECHA = ?
-                      AND ACTIVO = 'S'
-                """;
-                Long idExistente = null;
-                try (PreparedStatement ps = cn.prepareStatement(sqlExists)) {
-                    ps.setLong(1, hd.unidadAdmin().id());
-                    ps.setLong(2, hd.espacio().id());
-                    ps.setDate(3, Date.valueOf(hd.fecha()));
-                    try (ResultSet rs = ps.executeQuery()) {
-                        if (rs.next()) idExistente = rs.getLong(1);
-                    }
-                }
+        DbExecutor.execute(() -> {
+            try (Connection cn = Conexion.conectar()) {
+
+                Long idExistente = Asignaciones.buscarInventario(cn, hd.unidadAdmin().id(), hd.espacio().id(), hd.fecha());
                 if (idExistente != null) {
                     final Long toOpen = idExistente;
                     Platform.runLater(() -> {
@@ -214,7 +178,7 @@ public class AsignacionesView {
                                 idInventarioActual = toOpen;
                                 lblInventarioId.setText("Inventario: " + idInventarioActual);
                                 actualizarInfo("Inventario existente abierto. Puedes agregar/quitar bienes.");
-                                IO_POOL.execute(() -> cargarDetalleInventario(idInventarioActual));
+                                DbExecutor.execute(() -> cargarDetalleInventario(idInventarioActual));
                             }
                         });
                     });
@@ -222,28 +186,14 @@ public class AsignacionesView {
                 }
 
 
-                final String sqlInsert = """
-                    INSERT INTO INVENTARIO
-                        (ID_UNIDAD_ADMINISTRATIVA, ID_UNIDAD, ID_EMPLEADO, FECHA, ACTIVO, CREADO_EN, ACTUALIZADO_EN)
-                    VALUES
-                        (?, ?, ?, ?, 'S', SYSTIMESTAMP, SYSTIMESTAMP)
-                """;
-
-                try (PreparedStatement ps = cn.prepareStatement(sqlInsert, new String[]{"ID_INVENTARIO"})) {
-                    ps.setLong(1, hd.unidadAdmin().id());     // ID_UNIDAD_ADMINISTRATIVA
-                    ps.setLong(2, hd.espacio().id());         // ID_UNIDAD
-                    ps.setLong(3, idEmpleadoActual);          // ID_EMPLEADO
-                    ps.setDate(4, Date.valueOf(hd.fecha()));  // FECHA
-                    ps.executeUpdate();
-                    try (ResultSet gk = ps.getGeneratedKeys()) {
-                        if (gk.next()) idInventarioActual = gk.getLong(1);
-                    }
-                }
+                idInventarioActual = Asignaciones.crearInventario(cn, hd.unidadAdmin().id(), hd.espacio().id(),
+                        idEmpleadoActual, hd.fecha());
 
                 Platform.runLater(() -> {
                     lblInventarioId.setText("Inventario: " + idInventarioActual);
                     actualizarInfo("Encabezado guardado. Ahora agrega bienes por código.");
                     detalles.clear();
+                    filasPendientes.clear();
                 });
 
             } catch (SQLException ex) {
@@ -261,7 +211,7 @@ public class AsignacionesView {
             WHERE d.ID_INVENTARIO = ?
             ORDER BY d.ID_DETALLE
             """;
-        try (Connection cn = dataSource.getConnection();
+        try (Connection cn = Conexion.conectar();
              PreparedStatement ps = cn.prepareStatement(q)) {
             ps.setLong(1, idInventario);
             try (ResultSet rs = ps.executeQuery()) {
@@ -274,13 +224,18 @@ public class AsignacionesView {
                             rs.getString("ESTADO")
                     ));
                 }
+                // Lo escaneado sin conexión (o antes de un cierre) aún no está en la BD: se muestra como pendiente
+                List<LoteEscaneo.Escaneo> pendientes = escaneos.pendientesDe(idInventario);
                 Platform.runLater(() -> {
                     detalles.setAll(rows);
+                    filasPendientes.clear();
+                    for (LoteEscaneo.Escaneo e : pendientes) mostrarPendiente(e);
                     if (rows.isEmpty()) actualizarInfo("Inventario abierto (sin bienes). Agrega por código.");
                     else actualizarInfo("Inventario abierto con " + rows.size() + " bien(es).");
+                    if (!pendientes.isEmpty()) actualizarInfo(lblInfo.getText() + " " + pendientes.size() + " escaneo(s) por sincronizar.");
                 });
             }
-        } catch (SQLException ex) {
+        } catch (SQLException | IOException ex) {
             Platform.runLater(() ->
                     showAlert("Error al cargar el detalle: " + ex.getMessage(), Alert.AlertType.ERROR));
         }
@@ -294,90 +249,109 @@ public class AsignacionesView {
         }
         String codigo = txtCodigoBien.getText().trim();
         if (codigo.isEmpty()) {
-            showAlert("Ingresa un código de bien.", Alert.AlertType.WARNING);
+            // En modo escaneo un Enter de más de la pistola no amerita alerta
+            if (!chkModoLote.isSelected()) showAlert("Ingresa un código de bien.", Alert.AlertType.WARNING);
             return;
         }
         txtCodigoBien.clear();
-        IO_POOL.execute(() -> insertarDetallePorCodigo(codigo));
+        mostrarPendiente(escaneos.encolar(idInventarioActual, codigo));
+        if (escaneos.isSinConexion()) actualizarInfo("Sin conexión: el escaneo quedó guardado en este equipo.");
+        else if (chkModoLote.isSelected()) actualizarInfo("Escaneando… en cola: " + escaneos.pendientes());
     }
 
-    private void insertarDetallePorCodigo(String codigo) {
-        final String query = """
-            SELECT b.id_bien, b.descripcion, b.estado, b.codigo_inventario
-            FROM bienes b
-            WHERE UPPER(b.codigo_inventario) = UPPER(?)
-            """;
-        try (Connection cn = dataSource.getConnection();
-             PreparedStatement ps = cn.prepareStatement(query)) {
-
-            ps.setString(1, codigo);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (!rs.next()) {
-                    Platform.runLater(() ->
-                            showAlert("No existe un bien con ese código.", Alert.AlertType.WARNING));
-                    return;
-                }
-
-                long idBien = rs.getLong("id_bien");
-                String desc = rs.getString("descripcion");
-                String est = rs.getString("estado");
-                String cod = rs.getString("codigo_inventario");
-
-                if (existeDetalle(cn, idInventarioActual, idBien)) {
-                    Platform.runLater(() ->
-                            showAlert("Ese bien ya está agregado a este inventario.", Alert.AlertType.WARNING));
-                    return;
-                }
-
-                final String ins = "INSERT INTO DETALLE_INVENTARIO (ID_INVENTARIO, ID_BIEN, ACTIVO) VALUES (?, ?, 'S')";
-                try (PreparedStatement psi = cn.prepareStatement(ins, new String[]{"ID_DETALLE"})) {
-                    psi.setLong(1, idInventarioActual);
-                    psi.setLong(2, idBien);
-                    psi.executeUpdate();
+    /** El escaneo se ve de inmediato; la fila se reemplaza (o se quita) cuando la BD lo resuelve. */
+    private void mostrarPendiente(LoteEscaneo.Escaneo e) {
+        if (e.posicion() < 0) return;
+        DetalleRow fila = new DetalleRow(-1L, e.codigo(), "Pendiente de sincronizar", "PENDIENTE");
+        filasPendientes.put(e.posicion(), fila);
+        detalles.add(fila);
+    }
 
-                    long idDetalle = -1L;
-                    try (ResultSet gk = psi.getGeneratedKeys()) {
-                        if (gk.next()) idDetalle = gk.getLong(1);
-                    }
+    private DetalleRow quitarPendiente(LoteEscaneo.Escaneo e) {
+        if (idInventarioActual == null || e.idInventario() != idInventarioActual) return null;
+        return filasPendientes.remove(e.posicion());
+    }
 
-                    DetalleRow row = new DetalleRow(idDetalle, cod, desc, est);
-                    Platform.runLater(() -> detalles.add(row));
-                }
-            }
-        } catch (SQLException ex) {
-            if (isUniqueViolation(ex)) {
-                Platform.runLater(() ->
-                        showAlert("Ese bien ya está agregado a este inventario.", Alert.AlertType.WARNING));
-            } else {
-                Platform.runLater(() ->
-                        showAlert("Error al agregar bien: " + ex.getMessage(), Alert.AlertType.ERROR));
+    /** Una sola actualización de la UI por lote, con el resultado de cada código. */
+    private void alTerminarLote(List<LoteEscaneo.Salida> salidas) {
+        List<DetalleRow> nuevas = new ArrayList<>();
+        List<String> noExisten = new ArrayList<>();
+        int repetidos = 0;
+        for (LoteEscaneo.Salida s : salidas) {
+            DetalleRow pendiente = quitarPendiente(s.escaneo());
+            int indice = pendiente == null ? -1 : detalles.indexOf(pendiente);
+            // Un REPETIDO cuyo renglón no está en la tabla viene de un reenvío que ya se había insertado: se muestra
+            boolean mostrar = s.resultado() == LoteEscaneo.Resultado.AGREGADO
+                    || (s.resultado() == LoteEscaneo.Resultado.REPETIDO && s.fila() != null && !estaEnTabla(s.fila().getIdDetalle()));
+            if (mostrar) {
+                if (indice >= 0) detalles.set(indice, s.fila());
+                else if (idInventarioActual != null && s.escaneo().idInventario() == idInventarioActual) nuevas.add(s.fila());
+                continue;
             }
+            if (s.resultado() == LoteEscaneo.Resultado.REPETIDO) repetidos++;
+            else noExisten.add(s.escaneo().codigo());
+            if (indice >= 0) detalles.remove(indice);
+        }
+        detalles.addAll(nuevas);
+
+        if (chkModoLote.isSelected()) {
+            StringBuilder info = new StringBuilder()
+                    .append(nuevas.size()).append(" agregado(s), ")
+                    .append(repetidos).append(" repetido(s), ")
+                    .append(noExisten.size()).append(" sin registro");
+            if (!noExisten.isEmpty()) info.append(": ").append(resumirCodigos(noExisten));
+            if (escaneos.pendientes() > 0) info.append(" · en cola: ").append(escaneos.pendientes());
+            actualizarInfo(info.toString());
+        } else if (!noExisten.isEmpty()) {
+            showAlert(noExisten.size() == 1 ? "No existe un bien con ese código."
+                    : "No existen bienes con los códigos: " + resumirCodigos(noExisten), Alert.AlertType.WARNING);
+        } else if (repetidos > 0) {
+            showAlert("Ese bien ya está agregado a este inventario.", Alert.AlertType.WARNING);
         }
     }
 
-    private boolean existeDetalle(Connection cn, long idInventario, long idBien) throws SQLException {
-        final String sql = "SELECT 1 FROM DETALLE_INVENTARIO WHERE ID_INVENTARIO = ? AND ID_BIEN = ?";
-        try (PreparedStatement ps = cn.prepareStatement(sql)) {
-            ps.setLong(1, idInventario);
-            ps.setLong(2, idBien);
-            try (ResultSet rs = ps.executeQuery()) { return rs.next(); }
+    private boolean estaEnTabla(long idDetalle) {
+        for (DetalleRow r : detalles) if (r.getIdDetalle() == idDetalle) return true;
+        return false;
+    }
+
+    private void alFallarLote(List<LoteEscaneo.Escaneo> fallidos, Throwable ex) {
+        List<String> codigos = new ArrayList<>();
+        for (LoteEscaneo.Escaneo e : fallidos) {
+            codigos.add(e.codigo());
+            DetalleRow pendiente = quitarPendiente(e);
+            if (pendiente != null) detalles.remove(pendiente);
         }
+        showAlert("Error al agregar bien(es) " + resumirCodigos(codigos) + ": " + ex.getMessage(), Alert.AlertType.ERROR);
+    }
+
+    private void alPerderConexion(int enBitacora) {
+        actualizarInfo("Sin conexión: " + enBitacora + " escaneo(s) guardados en este equipo; se enviarán al reconectar.");
+    }
+
+    private static String resumirCodigos(List<String> codigos) {
+        if (codigos.size() <= 10) return String.join(", ", codigos);
+        return String.join(", ", codigos.subList(0, 10)) + " y " + (codigos.size() - 10) + " más";
     }
 
     // ============================ Desasignar Bienes ============================
     private void confirmarYDesasignar(DetalleRow row) {
+        if (row.getIdDetalle() < 0) {
+            showAlert("Ese escaneo aún no se sincroniza con la base de datos.", Alert.AlertType.INFORMATION);
+            return;
+        }
         Alert a = new Alert(Alert.AlertType.CONFIRMATION);
         a.setTitle("Desasignar bien");
         a.setHeaderText("Quitar del inventario actual");
         a.setContentText("¿Desasignar el bien " + row.getCodigo() + " de este inventario?");
         a.showAndWait().ifPresent(r -> {
-            if (r == ButtonType.OK) IO_POOL.execute(() -> desasignar(row));
+            if (r == ButtonType.OK) DbExecutor.execute(() -> desasignar(row));
         });
     }
 
     private void desasignar(DetalleRow row) {
         final String sql = "DELETE FROM DETALLE_INVENTARIO WHERE ID_DETALLE = ?";
-        try (Connection cn = dataSource.getConnection();
+        try (Connection cn = Conexion.conectar();
              PreparedStatement ps = cn.prepareStatement(sql)) {
             ps.setLong(1, row.getIdDetalle());
             int n = ps.executeUpdate();
@@ -397,48 +371,148 @@ public class AsignacionesView {
             showAlert("Crea el encabezado antes de imprimir.", Alert.AlertType.INFORMATION);
             return;
         }
-        IO_POOL.execute(() -> {
-            try (Connection conexion = dataSource.getConnection()) {
-                // Cargar el archivo .jasper desde resources
-                InputStream input = getClass().getResourceAsStream("/Inventario.jasper");
-                if (input == null) {
-                    Platform.runLater(() -> showAlert("No se encontró el recurso Inventario.jasper", Alert.AlertType.ERROR));
-                    return;
-                }
-                JasperReport reporte = (JasperReport) JRLoader.loadObject(input);
+        final long idInventario = idInventarioActual;
+        btnImprimir.setDisable(true);
+        actualizarInfo("Generando reporte…");
+
+        // Llenado virtualizado y exportación en segundo plano; la UI solo recibe el avance
+        CompletableFuture<ReporteInventario.Llenado> trabajo = DbExecutor.supply(() -> {
+            ReporteInventario.Llenado llenado;
+            try (Connection conexion = Conexion.conectar()) {
+                llenado = ReporteInventario.llenar(conexion, idInventario, paginas -> {
+                    if (paginas % 10 == 0) Platform.runLater(() -> actualizarInfo("Generando reporte… página " + paginas));
+                });
+            }
+            try {
+                Platform.runLater(() -> actualizarInfo("Exportando PDF…"));
+                llenado.exportarPdf(Path.of("reporte_inventario_" + idInventario + ".pdf"));
+                return llenado;
+            } catch (Exception e) {
+                llenado.cerrar();
+                throw e;
+            }
+        });
+        DbExecutor.enFx(trabajo, llenado -> {
+            btnImprimir.setDisable(false);
+            actualizarInfo("Reporte generado: " + llenado.getPaginas() + " página(s) en " + llenado.getMilisegundos() + " ms.");
+            // El visor lee las páginas desde el intercambio; se libera al cerrarlo
+            SwingUtilities.invokeLater(() -> {
+                JasperViewer visor = new JasperViewer(llenado.getPrint(), false);
+                visor.addWindowListener(new WindowAdapter() {
+                    @Override public void windowClosed(WindowEvent e) { llenado.cerrar(); }
+                });
+                visor.setVisible(true);
+            });
+        }, e -> {
+            btnImprimir.setDisable(false);
+            actualizarInfo("");
+            showAlert("Error al generar el reporte: " + e.getMessage(), Alert.AlertType.ERROR);
+        });
+    }
+
+    // ========================== Exportar detalle a Excel ==========================
+    private void exportarDetalleExcel() {
+        if (idInventarioActual == null) {
+            showAlert("Abre o crea un inventario antes de exportar.", Alert.AlertType.INFORMATION);
+            return;
+        }
+        final long idInventario = idInventarioActual;
+        FileChooser fc = new FileChooser();
+        fc.setTitle("Exportar detalle del inventario");
+        fc.setInitialFileName("inventario_" + idInventario + ".xlsx");
+        fc.getExtensionFilters().add(new FileChooser.ExtensionFilter("Libro de Excel", "*.xlsx"));
+        File archivo = fc.showSaveDialog(btnExportarDetalle.getScene().getWindow());
+        if (archivo == null) return;
+
+        final String sql = """
+            SELECT d.ID_DETALLE, b.CODIGO_INVENTARIO, b.DESCRIPCION, b.MARCA, b.MODELO, b.NUMERO_SERIE, b.ESTADO
+            FROM DETALLE_INVENTARIO d
+            JOIN BIENES b ON b.ID_BIEN = d.ID_BIEN
+            WHERE d.ID_INVENTARIO = ?
+            ORDER BY d.ID_DETALLE
+            """;
+        String[] encabezados = {"Detalle", "Código", "Descripción", "Marca", "Modelo", "N. Serie", "Estado"};
+        btnExportarDetalle.setDisable(true);
+        actualizarInfo("Exportando detalle…");
+        CompletableFuture<Long> exportacion = ExportadorExcel.exportar(sql, new Object[]{idInventario},
+                "Inventario " + idInventario, encabezados, archivo.toPath(),
+                filas -> actualizarInfo(String.format("Exportando detalle… %,d filas", filas)));
+        DbExecutor.enFx(exportacion, filas -> {
+            btnExportarDetalle.setDisable(false);
+            actualizarInfo(String.format("Detalle exportado: %,d filas en %s", filas, archivo.getName()));
+        }, e -> {
+            btnExportarDetalle.setDisable(false);
+            actualizarInfo("");
+            showAlert("Error al exportar: " + e.getMessage(), Alert.AlertType.ERROR);
+        });
+    }
 
-                Map<String, Object> parametros = new HashMap<>();
-                // Ajusta a los parámetros reales de tu reporte
-                parametros.put("p_id_inventario", idInventarioActual);
-                parametros.put("fecha", Date.valueOf(LocalDate.now()));
+    // ======================= Reportes por periodo (cierre) =======================
+    private void abrirDialogoReportesPeriodo() {
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("Reportes por periodo");
+        ButtonType ok = new ButtonType("Generar", ButtonBar.ButtonData.OK_DONE);
+        dialog.getDialogPane().getButtonTypes().addAll(ok, ButtonType.CANCEL);
 
-                JasperPrint jasperPrint = JasperFillManager.fillReport(reporte, parametros, conexion);
+        DatePicker dpDesde = new DatePicker(LocalDate.now().withDayOfYear(1));
+        DatePicker dpHasta = new DatePicker(LocalDate.now());
+        ComboBox<Item> cmbUnidadAdmin = comboDe(Catalogos.UNIDADES_ADMIN);
+        cmbUnidadAdmin.setPromptText("Todas");
 
-                JasperViewer.viewReport(jasperPrint, false);
-                JasperExportManager.exportReportToPdfFile(jasperPrint, "reporte_inventario_" + idInventarioActual + ".pdf");
+        GridPane grid = new GridPane();
+        grid.setVgap(10); grid.setHgap(10);
+        grid.add(new Label("Desde:"), 0, 0);                 grid.add(dpDesde, 1, 0);
+        grid.add(new Label("Hasta:"), 0, 1);                 grid.add(dpHasta, 1, 1);
+        grid.add(new Label("Unidad administrativa:"), 0, 2); grid.add(cmbUnidadAdmin, 1, 2);
+        dialog.getDialogPane().setContent(grid);
 
-                Platform.runLater(() ->
-                        showAlert("Reporte generado correctamente.", Alert.AlertType.INFORMATION));
-            } catch (Exception e) {
-                Platform.runLater(() ->
-                        showAlert("Error al generar el reporte: " + e.getMessage(), Alert.AlertType.ERROR));
-            }
-        });
+        final Button okBtn = (Button) dialog.getDialogPane().lookupButton(ok);
+        Runnable validate = () -> okBtn.setDisable(dpDesde.getValue() == null || dpHasta.getValue() == null
+                || dpHasta.getValue().isBefore(dpDesde.getValue()));
+        dpDesde.valueProperty().addListener((a,b,c)->validate.run());
+        dpHasta.valueProperty().addListener((a,b,c)->validate.run());
+        validate.run();
+
+        if (dialog.showAndWait().orElse(ButtonType.CANCEL) != ok) return;
+
+        DirectoryChooser chooser = new DirectoryChooser();
+        chooser.setTitle("Carpeta de destino de los reportes");
+        File carpeta = chooser.showDialog(btnReportesPeriodo.getScene().getWindow());
+        if (carpeta == null) return;
+
+        Item ua = cmbUnidadAdmin.getValue();
+        generarReportesPeriodo(dpDesde.getValue(), dpHasta.getValue(), ua == null ? null : ua.id(), carpeta.toPath());
     }
 
-    // ==================== Utilidades ====================
-    private ObservableList<Item> cargarItems(String sql, Object... params) throws SQLException {
-        ObservableList<Item> items = FXCollections.observableArrayList();
-        try (Connection cn = dataSource.getConnection();
-             PreparedStatement ps = cn.prepareStatement(sql)) {
-            for (int i = 0; i < params.length; i++) ps.setObject(i + 1, params[i]);
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) items.add(new Item(rs.getLong(1), rs.getString(2)));
+    private void generarReportesPeriodo(LocalDate desde, LocalDate hasta, Long idUnidadAdmin, Path destino) {
+        btnReportesPeriodo.setDisable(true);
+        actualizarInfo("Buscando inventarios del periodo…");
+        CompletableFuture<ReportesMasivos.Resumen> trabajo = ReportesMasivos.generar(desde, hasta, idUnidadAdmin, destino,
+                ReportesMasivos.concurrenciaPorDefecto(),
+                av -> actualizarInfo("Generando reportes… " + (av.generados() + av.fallidos()) + " de " + av.total()
+                        + (av.fallidos() > 0 ? " (" + av.fallidos() + " con error)" : "")));
+        DbExecutor.enFx(trabajo, r -> {
+            btnReportesPeriodo.setDisable(false);
+            actualizarInfo("");
+            if (r.total() == 0) {
+                showAlert("No hay inventarios activos en ese periodo.", Alert.AlertType.INFORMATION);
+                return;
             }
-        }
-        return items;
+            String msg = String.format("Reportes generados: %d de %d en %.1f s (%.1f reportes/min).",
+                    r.generados(), r.total(), r.milisegundos() / 1000.0, r.reportesPorMinuto());
+            if (!r.fallas().isEmpty()) {
+                msg += "\n" + r.fallas().size() + " inventario(s) con error"
+                        + (r.archivoFallas() != null ? "; detalle en " + r.archivoFallas() : ": " + r.fallas().get(0));
+            }
+            showAlert(msg, r.fallas().isEmpty() ? Alert.AlertType.INFORMATION : Alert.AlertType.WARNING);
+        }, e -> {
+            btnReportesPeriodo.setDisable(false);
+            actualizarInfo("");
+            showAlert("Error al generar los reportes: " + e.getMessage(), Alert.AlertType.ERROR);
+        });
     }
 
+    // ==================== Utilidades ====================
     private void actualizarInfo(String txt) {
         lblInfo.setText(txt == null ? "" : txt);
     }
@@ -455,12 +529,6 @@ public class AsignacionesView {
         }
     }
 
-    private boolean isUniqueViolation(SQLException ex) {
-        // ORA-00001: unique constraint violated
-        return ex != null && ("23000".equals(ex.getSQLState()) ||
-                (ex.getMessage() != null && ex.getMessage().contains("ORA-00001")));
-    }
-
     // ==================== Clases auxiliares ====================
     public static final class Item {
         private final long id;
@@ -1,9 +1,6 @@
 package org.example.sici1.controller;
 
 import javafx.beans.property.SimpleStringProperty;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
-import javafx.collections.transformation.FilteredList;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.image.Image;
@@ -14,24 +11,45 @@ import javafx.print.PrinterJob;
 import javafx.stage.FileChooser;
 
 import java.io.*;
+import java.nio.file.Path;
 import java.sql.*;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
-public class BienesView {
+public class BienesView implements VistaActivable {
 
     // --- Controles con los mismos fx:id del FXML ---
     @FXML private TableView<Bien> tableBienes;
     @FXML private TableColumn<Bien, String> colCodigo, colDescripcion, colMarca, colModelo, colSerie, colEstado;
-    @FXML private Button btnNuevo, btnImprimir, btnBuscarCodigo;
+    @FXML private Button btnNuevo, btnImprimir, btnBuscarCodigo, btnExportar, btnImportar;
     @FXML private TextField txtBuscarCodigo;
 
-    private final ObservableList<Bien> bienes = FXCollections.observableArrayList();
-    private final FilteredList<Bien> bienesFiltrados = new FilteredList<>(bienes, p -> true);
+    // Ventana paginada por keyset sobre codigo_inventario (no se materializa la tabla completa)
+    private static final int TAMANO_PAGINA = 200;
+    private static final int MAX_PAGINAS_RESIDENTES = 5;
+    private PaginadorKeyset<Bien> paginador;
 
-    private final String userRole = UserSession.getInstance().getRole();
-    private final boolean isAdmin = "ADMIN".equalsIgnoreCase(userRole);
-    private static final String SCHEMA_OWNER = "ADMIN";
+    // Búsqueda por subcadena en memoria sobre los campos de texto; mientras se construye se busca en BD.
+    // El índice guarda solo código y texto normalizado: las filas del resultado se cargan por página
+    // (código IN ...) con un segundo paginador sobre la lista de códigos encontrados.
+    private static final int BYTES_POR_ENTRADA_INDICE = 160;
+    private final IndiceTrigramas<String[]> indice = new IndiceTrigramas<>(t -> t[0], t -> t);
+    private boolean indiceListo;
+    private PaginadorKeyset<Bien> resultados;
+    private volatile List<String> codigosEncontrados = List.of();
+    private SincronizadorCatalogos.Suscripcion<Bien> cambios;
+
+    // Imágenes compartidas entre aperturas de la vista, acotadas por bytes
+    private static final CacheImagenes IMAGENES = new CacheImagenes(48L * 1024 * 1024);
+
+    private final boolean isAdmin = Sesion.actual().tiene(Sesion.Permiso.EDITAR_BIENES);
 
     // Posibles nombres de columnas en BD (ajústalos si tu esquema usa otros)
     private static final String[] COLS_CODIGO = {"codigo_inventario", "codigo", "id_bien"};
@@ -41,6 +59,10 @@ public class BienesView {
     private static final String[] COLS_SERIE  = {"numero_serie", "n_serie", "no_serie", "num_serie"};
     private static final String[] COLS_ESTADO = {"estado"};
     private static final String[] COLS_IMAGEN = {"imagen"};
+    // Miniatura JPEG generada al subir (la columna la crea sql/imagen_miniatura.sql).
+    // Es opcional: sin la columna se guarda y se muestra solo la imagen completa.
+    private static final String[] COLS_MINIATURA = {"imagen_miniatura"};
+    private static volatile Boolean hayMiniatura; // null = aún no se consultó el esquema
 
     @FXML
     public void initialize() {
@@ -54,17 +76,32 @@ public class BienesView {
 
         // Permisos por rol
         btnNuevo.setVisible(isAdmin);
+        btnImportar.setVisible(isAdmin);
 
         // Acciones
         btnBuscarCodigo.setOnAction(e -> buscarPorCodigo());
         txtBuscarCodigo.setOnAction(e -> buscarPorCodigo());
+        btnExportar.setOnAction(e -> exportarExcel());
         if (isAdmin) {
             btnNuevo.setOnAction(e -> mostrarDialogoBien(null, true));
+            btnImportar.setOnAction(e -> importarArchivo());
         }
 
+        paginador = new PaginadorKeyset<>(tableBienes, this::cargarPagina, Bien::getCodigo,
+                TAMANO_PAGINA, MAX_PAGINAS_RESIDENTES);
+        paginador.setAlFallar(e -> mostrarAlerta("Error al cargar bienes", Alert.AlertType.ERROR));
+        resultados = new PaginadorKeyset<>(tableBienes, this::cargarCoincidencias, Bien::getCodigo,
+                TAMANO_PAGINA, MAX_PAGINAS_RESIDENTES);
+        resultados.setAlFallar(e -> mostrarAlerta("Error al cargar el resultado de la búsqueda", Alert.AlertType.ERROR));
+
         // Doble clic: ver (usuario) / editar (admin)
         tableBienes.setRowFactory(tv -> {
             TableRow<Bien> row = new TableRow<>();
+            // Cada fila que se pinta le avisa al paginador para pedir la página vecina a tiempo
+            row.indexProperty().addListener((obs, o, n) -> {
+                if (tableBienes.getItems() == paginador.getFilas()) paginador.alMostrarFila(n.intValue());
+                else if (tableBienes.getItems() == resultados.getFilas()) resultados.alMostrarFila(n.intValue());
+            });
             row.setOnMouseClicked(evt -> {
                 if (evt.getClickCount() == 2 && !row.isEmpty()) {
                     Bien b = row.getItem();
@@ -75,14 +112,151 @@ public class BienesView {
             return row;
         });
 
-        tableBienes.setItems(bienesFiltrados);
+        tableBienes.setItems(paginador.getFilas());
+
+        // Cambios de otros operadores (antes de la carga inicial para no perder ninguno)
+        cambios = SincronizadorCatalogos.suscribir("bienes",
+                "SELECT " + columnasLista() + ", actualizado_en FROM bienes WHERE actualizado_en > ?",
+                this::filaDesde,
+                this::fusionarCambios,
+                columnaCodigo(), this::quitarBorrados
+        );
+
         cargarBienes();
+        cargarIndice();
+    }
+
+    // --- Ciclo de vida en caché (GestorVistas) ---
+    @Override public void alActivar() { cambios.reanudar(); }
+
+    @Override public void alDesactivar() { cambios.pausar(); }
+
+    @Override
+    public void alDescartar() {
+        cambios.cancelar();
+        indice.limpiar();
+        codigosEncontrados = List.of();
+    }
+
+    /** Ventanas residentes de ambos paginadores más el índice (código y texto por bien, sin filas). */
+    @Override
+    public long memoriaEstimada() {
+        return BYTES_BASE + (paginador.getFilas().size() + resultados.getFilas().size()) * BYTES_POR_FILA
+                + (long) (indice.tamano() + codigosEncontrados.size()) * BYTES_POR_ENTRADA_INDICE;
     }
 
     // --- Buscar por código ---
     private void buscarPorCodigo() {
-        String codigo = txtBuscarCodigo.getText() == null ? "" : txtBuscarCodigo.getText().trim().toLowerCase();
-        bienesFiltrados.setPredicate(b -> codigo.isEmpty() || b.getCodigo().toLowerCase().contains(codigo));
+        String texto = txtBuscarCodigo.getText() == null ? "" : txtBuscarCodigo.getText().trim();
+        if (!indiceListo) {
+            // Aún sin índice: el filtro se resuelve en BD (solo por código) sobre la vista paginada
+            paginador.setFiltro(texto);
+            return;
+        }
+        if (texto.isEmpty()) {
+            codigosEncontrados = List.of();
+            if (tableBienes.getItems() != paginador.getFilas()) tableBienes.setItems(paginador.getFilas());
+            return;
+        }
+        // Código, descripción, marca, modelo o serie; solo se cargan de la BD las filas que se ven
+        codigosEncontrados = indice.buscar(texto);
+        if (tableBienes.getItems() != resultados.getFilas()) tableBienes.setItems(resultados.getFilas());
+        resultados.reiniciar();
+    }
+
+    /**
+     * Página del resultado de la búsqueda: el tramo de {@link #codigosEncontrados} que sigue (o precede) a
+     * {@code clave}, leído de la BD por código. Los códigos vienen en orden binario ({@link Filas#BINARIO}),
+     * el mismo que usa el paginador.
+     */
+    private List<Bien> cargarCoincidencias(Connection cn, String filtro, String clave, boolean haciaAtras, int limite)
+            throws SQLException {
+        List<String> codigos = codigosEncontrados;
+        int desde, hasta;
+        if (clave == null) {
+            desde = 0;
+            hasta = Math.min(codigos.size(), limite);
+        } else {
+            int pos = Collections.binarySearch(codigos, clave, Filas.BINARIO);
+            if (haciaAtras) {
+                hasta = pos >= 0 ? pos : -pos - 1;
+                desde = Math.max(0, hasta - limite);
+            } else {
+                desde = pos >= 0 ? pos + 1 : -pos - 1;
+                hasta = Math.min(codigos.size(), desde + limite);
+            }
+        }
+        List<String> tramo = codigos.subList(desde, hasta);
+        if (tramo.isEmpty()) return new ArrayList<>();
+
+        String colCod = preferido(COLS_CODIGO, "codigo_inventario");
+        String sql = "SELECT " + columnasLista() + " FROM bienes WHERE " + colCod + " IN ("
+                + String.join(",", Collections.nCopies(tramo.size(), "?")) + ")";
+        Map<String, Bien> porCodigo = new HashMap<>(tramo.size() * 2);
+        try (PreparedStatement ps = cn.prepareStatement(sql)) {
+            for (int i = 0; i < tramo.size(); i++) ps.setString(i + 1, tramo.get(i));
+            ps.setFetchSize(tramo.size());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Bien b = filaDesde(rs);
+                    porCodigo.put(b.getCodigo(), b);
+                }
+            }
+        }
+        // En el orden de la lista (el paginador voltea las páginas hacia atrás); los borrados entretanto se omiten
+        List<Bien> pagina = new ArrayList<>(tramo.size());
+        for (String c : tramo) {
+            Bien b = porCodigo.get(c);
+            if (b != null) pagina.add(b);
+        }
+        if (haciaAtras) Collections.reverse(pagina);
+        return pagina;
+    }
+
+    /**
+     * Lee las columnas de texto de todo el registro una vez, en segundo plano, y arma el índice por tandas:
+     * por bien solo quedan su código y su texto normalizado.
+     */
+    private void cargarIndice() {
+        String sql = "SELECT " + columnasLista() + " FROM bienes";
+        CompletableFuture<Integer> carga = DbExecutor.consultar(cn -> {
+            int total = 0;
+            List<String[]> tanda = new ArrayList<>(1000);
+            try (Statement st = cn.createStatement()) {
+                st.setFetchSize(1000);
+                try (ResultSet rs = st.executeQuery(sql)) {
+                    while (rs.next()) {
+                        tanda.add(camposIndice(filaDesde(rs)));
+                        if (tanda.size() == 1000) {
+                            indice.agregarTodos(tanda);
+                            total += tanda.size();
+                            tanda.clear();
+                        }
+                    }
+                }
+            }
+            indice.agregarTodos(tanda);
+            return total + tanda.size();
+        });
+        DbExecutor.enFx(carga, n -> {
+            indiceListo = true;
+            // Si el usuario ya buscó contra la BD, se vuelve a la vista completa y se repite con el índice
+            if (txtBuscarCodigo.getText() != null && !txtBuscarCodigo.getText().isBlank()) {
+                paginador.setFiltro("");
+                buscarPorCodigo();
+            }
+        }, e -> e.printStackTrace()); // sin índice se sigue buscando en BD
+    }
+
+    /** Refleja una fila escrita (aquí o por otro operador) en el índice y en el resultado visible. */
+    private void indexar(String codigoAnterior, Bien fila) {
+        if (codigoAnterior != null) indice.quitar(codigoAnterior);
+        indice.agregar(camposIndice(filaDeLista(fila)));
+        if (indiceListo && tableBienes.getItems() == resultados.getFilas()) buscarPorCodigo();
+    }
+
+    private static String[] camposIndice(Bien b) {
+        return new String[]{b.getCodigo(), b.getDescripcion(), b.getMarca(), b.getModelo(), b.getNumeroSerie()};
     }
 
     // --- Ver detalle simple ---
@@ -101,14 +275,13 @@ public class BienesView {
         VBox content = new VBox(10);
         content.getChildren().add(new Label(info));
 
-        if (bien.getImagen() != null) {
-            Image img = new Image(new ByteArrayInputStream(bien.getImagen()));
-            ImageView imgView = new ImageView(img);
-            imgView.setFitWidth(220);
-            imgView.setFitHeight(220);
-            imgView.setPreserveRatio(true);
-            content.getChildren().add(imgView);
-        }
+        // La imagen no viaja con la lista: se pide al abrir el detalle (o sale de la cache)
+        ImageView imgView = new ImageView();
+        imgView.setFitWidth(220);
+        imgView.setFitHeight(220);
+        imgView.setPreserveRatio(true);
+        content.getChildren().add(imgView);
+        mostrarImagen(bien.getCodigo(), imgView);
 
         dialog.getDialogPane().setContent(content);
         dialog.showAndWait();
@@ -136,11 +309,10 @@ public class BienesView {
         Label lblImagen = new Label("Imagen:");
         ImageView imgView = new ImageView();
         imgView.setFitWidth(110); imgView.setFitHeight(110); imgView.setPreserveRatio(true);
-        final byte[][] imagenBytes = {null};
-        if (!esNuevo && bien.getImagen() != null) {
-            imgView.setImage(new Image(new ByteArrayInputStream(bien.getImagen())));
-            imagenBytes[0] = bien.getImagen();
-        }
+        // Solo guarda la imagen si el usuario elige una nueva; la actual se muestra bajo demanda
+        final ProcesadorImagenes.ImagenProcesada[] imagenNueva = {null};
+        if (!esNuevo) mostrarImagen(bien.getCodigo(), imgView);
+        Button okBtn = (Button) dialog.getDialogPane().lookupButton(ButtonType.OK);
         Button btnSeleccionarImagen = new Button("Seleccionar Imagen");
         btnSeleccionarImagen.setOnAction(ev -> {
             FileChooser fc = new FileChooser();
@@ -148,12 +320,22 @@ public class BienesView {
             fc.getExtensionFilters().add(new FileChooser.ExtensionFilter("Imágenes", "*.jpg", "*.jpeg", "*.png"));
             File file = fc.showOpenDialog(btnSeleccionarImagen.getScene().getWindow());
             if (file != null) {
-                try {
-                    imagenBytes[0] = leerArchivoComoBytes(file);
-                    imgView.setImage(new Image(new ByteArrayInputStream(imagenBytes[0])));
-                } catch (IOException ex) {
+                // Reducir y re-codificar en segundo plano; no se acepta el diálogo hasta terminar
+                btnSeleccionarImagen.setDisable(true);
+                okBtn.setDisable(true);
+                lblImagen.setText("Procesando...");
+                DbExecutor.enFx(DbExecutor.supply(() -> ProcesadorImagenes.procesar(leerArchivoComoBytes(file))), proc -> {
+                    imagenNueva[0] = proc;
+                    imgView.setImage(new Image(new ByteArrayInputStream(proc.miniatura())));
+                    lblImagen.setText("Imagen:");
+                    btnSeleccionarImagen.setDisable(false);
+                    okBtn.setDisable(false);
+                }, ex -> {
+                    lblImagen.setText("Imagen:");
+                    btnSeleccionarImagen.setDisable(false);
+                    okBtn.setDisable(false);
                     mostrarAlerta("No se pudo leer la imagen", Alert.AlertType.ERROR);
-                }
+                });
             }
         });
 
@@ -180,7 +362,8 @@ public class BienesView {
                         txtModelo.getText().trim(),
                         txtSerie.getText().trim(),
                         cmbEstado.getValue(),
-                        imagenBytes[0]
+                        imagenNueva[0] == null ? null : imagenNueva[0].completa(),
+                        imagenNueva[0] == null ? null : imagenNueva[0].miniatura()
                 );
             }
             return null;
@@ -193,66 +376,205 @@ public class BienesView {
         });
     }
 
+    // --- Exportar a Excel ---
+    private void exportarExcel() {
+        FileChooser fc = new FileChooser();
+        fc.setTitle("Exportar bienes");
+        fc.setInitialFileName("bienes.xlsx");
+        fc.getExtensionFilters().add(new FileChooser.ExtensionFilter("Libro de Excel", "*.xlsx"));
+        File archivo = fc.showSaveDialog(tableBienes.getScene().getWindow());
+        if (archivo == null) return;
+
+        String sql = "SELECT " + columnasLista() + " FROM bienes ORDER BY " + preferido(COLS_CODIGO, "codigo_inventario");
+        String[] encabezados = {"Código", "Descripción", "Marca", "Modelo", "N. Serie", "Estado"};
+        String textoBoton = btnExportar.getText();
+        btnExportar.setDisable(true);
+        btnExportar.setText("Exportando…");
+        CompletableFuture<Long> exportacion = ExportadorExcel.exportar(sql, null, "Bienes", encabezados, archivo.toPath(),
+                filas -> btnExportar.setText(String.format("%,d filas…", filas)));
+        DbExecutor.enFx(exportacion, filas -> {
+            btnExportar.setText(textoBoton);
+            btnExportar.setDisable(false);
+            mostrarAlerta(String.format("Se exportaron %,d bienes a %s", filas, archivo.getName()), Alert.AlertType.INFORMATION);
+        }, e -> {
+            btnExportar.setText(textoBoton);
+            btnExportar.setDisable(false);
+            mostrarAlerta("Error al exportar: " + e.getMessage(), Alert.AlertType.ERROR);
+        });
+    }
+
+    // --- Importación masiva ---
+    private void importarArchivo() {
+        if (!isAdmin) { mostrarAlerta("No autorizado", Alert.AlertType.WARNING); return; }
+        FileChooser fc = new FileChooser();
+        fc.setTitle("Importar bienes");
+        fc.getExtensionFilters().add(new FileChooser.ExtensionFilter("Excel o CSV", "*.xlsx", "*.csv"));
+        File archivo = fc.showOpenDialog(tableBienes.getScene().getWindow());
+        if (archivo == null) return;
+
+        String textoBoton = btnImportar.getText();
+        btnImportar.setDisable(true);
+        btnImportar.setText("Importando…");
+        CompletableFuture<ImportadorBienes.Resumen> importacion = ImportadorBienes.importar(archivo.toPath(),
+                filas -> btnImportar.setText(String.format("%,d filas…", filas)));
+        DbExecutor.enFx(importacion, r -> {
+            btnImportar.setText(textoBoton);
+            btnImportar.setDisable(false);
+            // Las filas nuevas llevan actualizado_en: entran a la tabla y al índice por el sincronizador
+            if (r.insertadas() > 0) SincronizadorCatalogos.sincronizarAhora();
+            String msg = String.format("Filas leídas: %,d\nInsertadas: %,d\nRechazadas: %,d\n%,d filas/s",
+                    r.leidas(), r.insertadas(), r.rechazadas(), r.filasPorSegundo());
+            if (r.archivoRechazos() != null) msg += "\n\nDetalle de rechazos en " + r.archivoRechazos().getFileName();
+            mostrarAlerta("Importación", msg, r.rechazadas() > 0 ? Alert.AlertType.WARNING : Alert.AlertType.INFORMATION);
+        }, e -> {
+            btnImportar.setText(textoBoton);
+            btnImportar.setDisable(false);
+            SincronizadorCatalogos.sincronizarAhora(); // lo confirmado antes del error sí quedó
+            mostrarAlerta("Error al importar: " + e.getMessage(), Alert.AlertType.ERROR);
+        });
+    }
+
     // --- Capa de datos ---
     private void cargarBienes() {
-        bienes.clear();
-        String sql = "SELECT * FROM bienes ORDER BY " + preferido(COLS_CODIGO, "codigo_inventario");
-        try (Connection cn = getConnection();
-             Statement st = cn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
-             ResultSet rs = st.executeQuery(sql)) {
-
-            ResultSetMetaData md = rs.getMetaData();
-            int iCodigo = findIndex(md, COLS_CODIGO, true);
-            int iDesc   = findIndex(md, COLS_DESC, true);
-            int iMarca  = findIndex(md, COLS_MARCA, false);
-            int iModelo = findIndex(md, COLS_MODELO, false);
-            int iSerie  = findIndex(md, COLS_SERIE, false);
-            int iEstado = findIndex(md, COLS_ESTADO, true);
-            int iImagen = findIndex(md, COLS_IMAGEN, false);
-
-            while (rs.next()) {
-                bienes.add(new Bien(
-                        rs.getString(iCodigo),
-                        rs.getString(iDesc),
-                        iMarca  > 0 ? rs.getString(iMarca)  : "",
-                        iModelo > 0 ? rs.getString(iModelo) : "",
-                        iSerie  > 0 ? rs.getString(iSerie)  : "",
-                        mapEstadoDbToUi(rs.getString(iEstado)),
-                        iImagen > 0 ? rs.getBytes(iImagen)  : null
-                ));
+        paginador.reiniciar();
+    }
+
+    /** Una página por keyset: {@code codigo > clave} (o {@code <} hacia atrás), sin OFFSET. */
+    private List<Bien> cargarPagina(Connection cn, String filtro, String clave, boolean haciaAtras, int limite) throws SQLException {
+        String colCod = preferido(COLS_CODIGO, "codigo_inventario");
+        StringBuilder sql = new StringBuilder("SELECT ").append(columnasLista()).append(" FROM bienes WHERE 1 = 1");
+        if (!filtro.isEmpty()) sql.append(" AND UPPER(").append(colCod).append(") LIKE ?");
+        if (clave != null) sql.append(" AND ").append(colCod).append(haciaAtras ? " < ?" : " > ?");
+        sql.append(" ORDER BY ").append(colCod).append(haciaAtras ? " DESC" : "").append(" FETCH FIRST ? ROWS ONLY");
+
+        List<Bien> lista = new ArrayList<>(limite);
+        try (PreparedStatement ps = cn.prepareStatement(sql.toString())) {
+            int p = 1;
+            if (!filtro.isEmpty()) ps.setString(p++, "%" + filtro.toUpperCase() + "%");
+            if (clave != null) ps.setString(p++, clave);
+            ps.setInt(p, limite);
+            ps.setFetchSize(limite);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                ResultSetMetaData md = rs.getMetaData();
+                int iCodigo = findIndex(md, COLS_CODIGO, true);
+                int iDesc   = findIndex(md, COLS_DESC, true);
+                int iMarca  = findIndex(md, COLS_MARCA, false);
+                int iModelo = findIndex(md, COLS_MODELO, false);
+                int iSerie  = findIndex(md, COLS_SERIE, false);
+                int iEstado = findIndex(md, COLS_ESTADO, true);
+
+                while (rs.next()) {
+                    lista.add(new Bien(
+                            rs.getString(iCodigo),
+                            rs.getString(iDesc),
+                            iMarca  > 0 ? rs.getString(iMarca)  : "",
+                            iModelo > 0 ? rs.getString(iModelo) : "",
+                            iSerie  > 0 ? rs.getString(iSerie)  : "",
+                            mapEstadoDbToUi(rs.getString(iEstado)),
+                            null
+                    ));
+                }
             }
-        } catch (SQLException e) {
-            mostrarAlerta("Error al cargar bienes", Alert.AlertType.ERROR);
+        }
+        return lista;
+    }
+
+    /** Solo columnas de texto: la imagen se pide aparte al abrir el detalle. */
+    static String columnasLista() {
+        return preferido(COLS_CODIGO, "codigo_inventario") + ", " +
+                preferido(COLS_DESC, "descripcion") + ", " +
+                preferido(COLS_MARCA, "marca") + ", " +
+                preferido(COLS_MODELO, "modelo") + ", " +
+                preferido(COLS_SERIE, "numero_serie") + ", " +
+                preferido(COLS_ESTADO, "estado");
+    }
+
+    /** Para {@link PanelDiagnostico}. */
+    static CacheImagenes.Estadisticas estadisticasImagenes() {
+        return IMAGENES.estadisticas();
+    }
+
+    static String columnaCodigo() {
+        return preferido(COLS_CODIGO, "codigo_inventario");
+    }
+
+    private Bien filaDesde(ResultSet rs) throws SQLException {
+        return new Bien(
+                rs.getString(preferido(COLS_CODIGO, "codigo_inventario")),
+                rs.getString(preferido(COLS_DESC, "descripcion")),
+                rs.getString(preferido(COLS_MARCA, "marca")),
+                rs.getString(preferido(COLS_MODELO, "modelo")),
+                rs.getString(preferido(COLS_SERIE, "numero_serie")),
+                mapEstadoDbToUi(rs.getString(preferido(COLS_ESTADO, "estado"))),
+                null
+        );
+    }
+
+    /**
+     * Fusiona lo que otros operadores cambiaron; lo que cae fuera de la ventana residente llega al paginar.
+     * El código es la llave primaria de {@code bienes}: un cambio de código llega como alta y la clave
+     * vieja se quita en la misma ronda con {@link #quitarBorrados}.
+     */
+    private void fusionarCambios(List<Bien> cambios) {
+        for (Bien c : cambios) {
+            IMAGENES.remove(c.getCodigo()); // la foto pudo cambiar también
+            Bien existente = paginador.buscar(c.getCodigo());
+            if (existente != null) existente.actualizarDesde(c);
+            else paginador.insertar(c);
+            indexar(null, c);
+        }
+        tableBienes.refresh();
+    }
+
+    /** Bienes borrados (o con código cambiado) en otro equipo: quita sus códigos de ventanas e índice. */
+    private void quitarBorrados(Set<String> borrados) {
+        for (String c : borrados) {
+            paginador.quitar(c);
+            resultados.quitar(c);
+            indice.quitar(c);
+            IMAGENES.remove(c);
         }
     }
 
     private void insertarBien(Bien b) {
-        String sql = "INSERT INTO bienes (" +
-                preferido(COLS_CODIGO, "codigo_inventario") + "," +
-                preferido(COLS_DESC, "descripcion") + "," +
-                preferido(COLS_MARCA, "marca") + "," +
-                preferido(COLS_MODELO, "modelo") + "," +
-                preferido(COLS_SERIE, "numero_serie") + "," +
-                preferido(COLS_ESTADO, "estado") + "," +
-                preferido(COLS_IMAGEN, "imagen") +
-                ") VALUES (?, ?, ?, ?, ?, ?, ?)";
-        try (Connection cn = getConnection(); PreparedStatement ps = cn.prepareStatement(sql)) {
-            ps.setString(1, b.getCodigo());
-            ps.setString(2, b.getDescripcion());
-            ps.setString(3, emptyToNull(b.getMarca()));
-            ps.setString(4, emptyToNull(b.getModelo()));
-            ps.setString(5, emptyToNull(b.getNumeroSerie()));
-            ps.setString(6, mapEstadoUiToDb(b.getEstado()));
-            if (b.getImagen() != null) {
-                ps.setBinaryStream(7, new ByteArrayInputStream(b.getImagen()), b.getImagen().length);
-            } else {
-                ps.setNull(7, Types.BLOB);
+        CompletableFuture<Integer> escritura = DbExecutor.consultar(cn -> {
+            boolean conMiniatura = hayMiniatura(cn);
+            String sql = "INSERT INTO bienes (" +
+                    preferido(COLS_CODIGO, "codigo_inventario") + "," +
+                    preferido(COLS_DESC, "descripcion") + "," +
+                    preferido(COLS_MARCA, "marca") + "," +
+                    preferido(COLS_MODELO, "modelo") + "," +
+                    preferido(COLS_SERIE, "numero_serie") + "," +
+                    preferido(COLS_ESTADO, "estado") + "," +
+                    preferido(COLS_IMAGEN, "imagen") +
+                    (conMiniatura ? "," + preferido(COLS_MINIATURA, "imagen_miniatura") : "") +
+                    ", actualizado_en) VALUES (?, ?, ?, ?, ?, ?, ?" + (conMiniatura ? ", ?" : "") + ", SYSTIMESTAMP)";
+            try (PreparedStatement ps = cn.prepareStatement(sql)) {
+                ps.setString(1, b.getCodigo());
+                ps.setString(2, b.getDescripcion());
+                ps.setString(3, emptyToNull(b.getMarca()));
+                ps.setString(4, emptyToNull(b.getModelo()));
+                ps.setString(5, emptyToNull(b.getNumeroSerie()));
+                ps.setString(6, mapEstadoUiToDb(b.getEstado()));
+                if (b.getImagen() != null) {
+                    ps.setBinaryStream(7, new ByteArrayInputStream(b.getImagen()), b.getImagen().length);
+                    if (conMiniatura) ps.setBinaryStream(8, new ByteArrayInputStream(b.getMiniatura()), b.getMiniatura().length);
+                } else {
+                    ps.setNull(7, Types.BLOB);
+                    if (conMiniatura) ps.setNull(8, Types.BLOB);
+                }
+                return ps.executeUpdate();
             }
-            ps.executeUpdate();
-            cargarBienes();
-        } catch (SQLException e) {
-            mostrarAlerta("Error al insertar bien", Alert.AlertType.ERROR);
-        }
+        });
+        DbExecutor.enFx(escritura, n -> {
+            IMAGENES.remove(b.getCodigo());
+            // Parche en sitio: solo la fila escrita, sin volver a leer la tabla
+            Bien fila = filaDeLista(b);
+            paginador.insertar(fila);
+            indexar(null, fila);
+            tableBienes.getSelectionModel().select(fila);
+        }, e -> mostrarAlerta("Error al insertar bien", Alert.AlertType.ERROR));
     }
 
     private void actualizarBien(String codigoOriginal, Bien b) {
@@ -263,31 +585,97 @@ public class BienesView {
         String colSerie = preferido(COLS_SERIE, "numero_serie");
         String colEstado = preferido(COLS_ESTADO, "estado");
         String colImagen = preferido(COLS_IMAGEN, "imagen");
-
-        String sql = "UPDATE bienes SET " + colCod + "=?, " + colDesc + "=?, " + colMarca + "=?, " + colModelo + "=?, " +
-                colSerie + "=?, " + colEstado + "=?, " + colImagen + "=?, actualizado_en = SYSTIMESTAMP WHERE " + colCod + "=?";
-        try (Connection cn = getConnection(); PreparedStatement ps = cn.prepareStatement(sql)) {
-            ps.setString(1, b.getCodigo());
-            ps.setString(2, b.getDescripcion());
-            ps.setString(3, emptyToNull(b.getMarca()));
-            ps.setString(4, emptyToNull(b.getModelo()));
-            ps.setString(5, emptyToNull(b.getNumeroSerie()));
-            ps.setString(6, mapEstadoUiToDb(b.getEstado()));
-            if (b.getImagen() != null) {
-                ps.setBinaryStream(7, new ByteArrayInputStream(b.getImagen()), b.getImagen().length);
+        String colMiniatura = preferido(COLS_MINIATURA, "imagen_miniatura");
+
+        // Sin imagen nueva no se toca la columna: la lista ya no trae el BLOB
+        boolean conImagen = b.getImagen() != null;
+        CompletableFuture<Integer> escritura = DbExecutor.consultar(cn -> {
+            boolean conMiniatura = conImagen && hayMiniatura(cn);
+            String sql = "UPDATE bienes SET " + colCod + "=?, " + colDesc + "=?, " + colMarca + "=?, " + colModelo + "=?, " +
+                    colSerie + "=?, " + colEstado + "=?, " + (conImagen ? colImagen + "=?, " : "") +
+                    (conMiniatura ? colMiniatura + "=?, " : "") +
+                    "actualizado_en = SYSTIMESTAMP WHERE " + colCod + "=?";
+            try (PreparedStatement ps = cn.prepareStatement(sql)) {
+                int p = 1;
+                ps.setString(p++, b.getCodigo());
+                ps.setString(p++, b.getDescripcion());
+                ps.setString(p++, emptyToNull(b.getMarca()));
+                ps.setString(p++, emptyToNull(b.getModelo()));
+                ps.setString(p++, emptyToNull(b.getNumeroSerie()));
+                ps.setString(p++, mapEstadoUiToDb(b.getEstado()));
+                if (conImagen) {
+                    ps.setBinaryStream(p++, new ByteArrayInputStream(b.getImagen()), b.getImagen().length);
+                }
+                if (conMiniatura) {
+                    ps.setBinaryStream(p++, new ByteArrayInputStream(b.getMiniatura()), b.getMiniatura().length);
+                }
+                ps.setString(p, codigoOriginal);
+                return ps.executeUpdate();
+            }
+        });
+        DbExecutor.enFx(escritura, n -> {
+            IMAGENES.remove(codigoOriginal);
+            IMAGENES.remove(b.getCodigo());
+            Bien fila = filaDeLista(b);
+            Bien existente = paginador.buscar(codigoOriginal);
+            if (n > 0 && existente != null && codigoOriginal.equals(fila.getCodigo())) {
+                // Misma clave: se actualizan las propiedades y la tabla conserva selección y scroll
+                existente.actualizarDesde(fila);
             } else {
-                ps.setNull(7, Types.BLOB);
+                paginador.quitar(codigoOriginal);
+                if (n > 0) {
+                    paginador.insertar(fila);
+                    tableBienes.getSelectionModel().select(fila);
+                }
             }
-            ps.setString(8, codigoOriginal);
-            ps.executeUpdate();
-            cargarBienes();
-        } catch (SQLException e) {
-            mostrarAlerta("Error al actualizar bien", Alert.AlertType.ERROR);
-        }
+            if (n > 0) indexar(codigoOriginal, fila);
+        }, e -> mostrarAlerta("Error al actualizar bien", Alert.AlertType.ERROR));
+    }
+
+    /** Lo que la lista guardaría si la fila viniera de la BD: estado normalizado y sin imágenes. */
+    private Bien filaDeLista(Bien b) {
+        return new Bien(b.getCodigo(), b.getDescripcion(), b.getMarca(), b.getModelo(), b.getNumeroSerie(),
+                mapEstadoDbToUi(mapEstadoUiToDb(b.getEstado())), null);
+    }
+
+    // --- Imágenes bajo demanda ---
+    /** Devuelve la miniatura; los registros anteriores a las miniaturas (o un esquema sin la columna) caen a la original. */
+    private CompletableFuture<byte[]> cargarImagen(String codigo) {
+        byte[] enCache = IMAGENES.get(codigo);
+        if (enCache != null) return CompletableFuture.completedFuture(enCache);
+
+        return DbExecutor.consultar(cn -> {
+            boolean conMiniatura = hayMiniatura(cn);
+            String sql = "SELECT " + preferido(COLS_IMAGEN, "imagen")
+                    + (conMiniatura ? ", " + preferido(COLS_MINIATURA, "imagen_miniatura") : "")
+                    + " FROM bienes WHERE " + preferido(COLS_CODIGO, "codigo_inventario") + " = ?";
+            byte[] imagen = null;
+            try (PreparedStatement ps = cn.prepareStatement(sql)) {
+                ps.setString(1, codigo);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        if (conMiniatura) imagen = rs.getBytes(2);
+                        if (imagen == null) imagen = rs.getBytes(1);
+                    }
+                }
+            }
+            IMAGENES.put(codigo, imagen);
+            return imagen;
+        });
+    }
+
+    private void mostrarImagen(String codigo, ImageView destino) {
+        DbExecutor.enFx(cargarImagen(codigo), bytes -> {
+            if (!CacheImagenes.sinImagen(bytes) && destino.getImage() == null) {
+                // Decodifica directo al tamaño de miniatura aunque venga la original (registros viejos)
+                destino.setImage(new Image(new ByteArrayInputStream(bytes),
+                        ProcesadorImagenes.LADO_MINIATURA, ProcesadorImagenes.LADO_MINIATURA, true, true));
+            }
+        }, e -> { /* el detalle sigue siendo útil sin la foto */ });
     }
 
     // --- Estados ---
-    private String mapEstadoUiToDb(String ui) {
+    static String mapEstadoUiToDb(String ui) {
         if (ui == null) return "OPERATIVO";
         switch (ui.toUpperCase()) {
             case "MANTENIMIENTO": return "MANTENIMIENTO";
@@ -295,6 +683,14 @@ public class BienesView {
             default: return "OPERATIVO";
         }
     }
+    /** Para datos que no vienen del combo (importación): vacío cuenta como Operativo, lo demás debe coincidir. */
+    static boolean esEstadoValido(String ui) {
+        if (ui == null || ui.isBlank()) return true;
+        switch (ui.trim().toUpperCase()) {
+            case "OPERATIVO": case "MANTENIMIENTO": case "BAJA": return true;
+            default: return false;
+        }
+    }
     private String mapEstadoDbToUi(String db) {
         if (db == null) return "Operativo";
         switch (db.toUpperCase()) {
@@ -308,8 +704,14 @@ public class BienesView {
     public static class Bien {
         private final SimpleStringProperty codigo, descripcion, marca, modelo, numeroSerie, estado;
         private final byte[] imagen;
+        private final byte[] miniatura;
 
         public Bien(String codigo, String descripcion, String marca, String modelo, String numeroSerie, String estado, byte[] imagen) {
+            this(codigo, descripcion, marca, modelo, numeroSerie, estado, imagen, null);
+        }
+
+        public Bien(String codigo, String descripcion, String marca, String modelo, String numeroSerie, String estado,
+                    byte[] imagen, byte[] miniatura) {
             this.codigo = new SimpleStringProperty(safe(codigo));
             this.descripcion = new SimpleStringProperty(safe(descripcion));
             this.marca = new SimpleStringProperty(safe(marca));
@@ -317,6 +719,7 @@ public class BienesView {
             this.numeroSerie = new SimpleStringProperty(safe(numeroSerie));
             this.estado = new SimpleStringProperty(safe(estado));
             this.imagen = imagen;
+            this.miniatura = miniatura;
         }
         public String getCodigo() { return codigo.get(); }
         public String getDescripcion() { return descripcion.get(); }
@@ -325,9 +728,20 @@ public class BienesView {
         public String getNumeroSerie() { return numeroSerie.get(); }
         public String getEstado() { return estado.get(); }
         public byte[] getImagen() { return imagen; }
+        public byte[] getMiniatura() { return miniatura; }
 
         public void setEstado(String e) { estado.set(safe(e)); }
 
+        /** Copia los campos visibles de otra fila (para parchar la tabla sin reemplazar el objeto). */
+        public void actualizarDesde(Bien otro) {
+            codigo.set(otro.getCodigo());
+            descripcion.set(otro.getDescripcion());
+            marca.set(otro.getMarca());
+            modelo.set(otro.getModelo());
+            numeroSerie.set(otro.getNumeroSerie());
+            estado.set(otro.getEstado());
+        }
+
         public SimpleStringProperty codigoProperty() { return codigo; }
         public SimpleStringProperty descripcionProperty() { return descripcion; }
         public SimpleStringProperty marcaProperty() { return marca; }
@@ -344,6 +758,19 @@ public class BienesView {
         return (candidatos != null && candidatos.length > 0) ? candidatos[0] : fallback;
     }
 
+    /** Si {@code bienes} ya tiene la columna de miniatura; se consulta al esquema una vez por proceso. */
+    private static boolean hayMiniatura(Connection cn) throws SQLException {
+        Boolean hay = hayMiniatura;
+        if (hay == null) {
+            try (Statement st = cn.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT * FROM bienes WHERE 1 = 0")) {
+                hay = findIndex(rs.getMetaData(), COLS_MINIATURA, false) > 0;
+            }
+            hayMiniatura = hay;
+        }
+        return hay;
+    }
+
     private static int findIndex(ResultSetMetaData md, String[] posibles, boolean obligatorio) throws SQLException {
         int cols = md.getColumnCount();
         for (String nombre : posibles) {
@@ -374,16 +801,4 @@ public class BienesView {
         alert.setContentText(mensaje);
         alert.showAndWait();
     }
-
-    private Connection getConnection() throws SQLException {
-        try {
-            Connection cn = Conexion.conectar();
-            try (Statement st = cn.createStatement()) {
-                st.execute("ALTER SESSION SET CURRENT_SCHEMA=" + SCHEMA_OWNER);
-            }
-            return cn;
-        } catch (ClassNotFoundException e) {
-            throw new SQLException("No se pudo cargar el driver Oracle", e);
-        }
-    }
 }
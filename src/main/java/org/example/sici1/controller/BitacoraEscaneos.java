@@ -0,0 +1,275 @@
+package org.example.sici1.controller;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Bitácora local de escaneos, un archivo de solo-anexar por inventario.
+ * Cada escaneo se escribe aquí antes de ir a la BD, así que un corte de red (o del equipo) no lo pierde.
+ * Registro: [longitud int][crc32 int][código UTF-8]; la posición del registro en el archivo es su id.
+ * El fsync se agrupa: un hilo hace force() de los archivos sucios cada {@link #INTERVALO_FSYNC_MS} ms,
+ * en vez de uno por escaneo. Lo ya insertado se marca con una marca de agua (primer registro sin
+ * confirmar) guardada aparte con reemplazo atómico, una vez por lote confirmado; cuando todo está
+ * confirmado el archivo se cierra y se borra.
+ * <p>
+ * La bitácora es una por proceso aunque haya varias colas ({@link LoteEscaneo}): cada registro pendiente lo
+ * tiene reclamado a lo más una cola a la vez, así que un reenvío nunca duplica lo que otra cola está enviando.
+ */
+public class BitacoraEscaneos {
+
+    private static final long INTERVALO_FSYNC_MS = 50;
+    private static final int CABECERA = 8;
+
+    public record Registro(long idInventario, long posicion, String codigo) {}
+
+    private final Path directorio;
+    private final Map<Long, Archivo> archivos = new HashMap<>();
+    private boolean arranqueReclamado;
+    private final ScheduledExecutorService fsync = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "sici-bitacora-fsync");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public BitacoraEscaneos() {
+        this(Path.of(System.getProperty("user.home"), ".sici", "escaneos"));
+    }
+
+    public BitacoraEscaneos(Path directorio) {
+        this.directorio = directorio;
+        fsync.scheduleWithFixedDelay(this::sincronizarDisco, INTERVALO_FSYNC_MS, INTERVALO_FSYNC_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /** Anexa el escaneo, ya reclamado por quien lo agrega; queda en disco a más tardar en el siguiente fsync. */
+    public synchronized Registro agregar(long idInventario, String codigo) throws IOException {
+        Archivo a = abrir(idInventario);
+        byte[] datos = codigo.getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(datos);
+        ByteBuffer buf = ByteBuffer.allocate(CABECERA + datos.length);
+        buf.putInt(datos.length).putInt((int) crc.getValue()).put(datos).flip();
+
+        long posicion = a.tamano;
+        while (buf.hasRemaining()) a.canal.write(buf);
+        a.tamano += CABECERA + datos.length;
+        a.sinConfirmar.put(posicion, codigo);
+        a.reclamados.add(posicion);
+        a.sucio = true;
+        return new Registro(idInventario, posicion, codigo);
+    }
+
+    /**
+     * Los escaneos de un lote ya quedaron resueltos en la BD (insertados, repetidos o inexistentes).
+     * La marca se guarda una sola vez por inventario y lote, no una por escaneo.
+     */
+    public synchronized void confirmar(long idInventario, Collection<Long> posiciones) throws IOException {
+        Archivo a = archivos.get(idInventario);
+        if (a == null) return;
+        boolean alguno = false;
+        for (long posicion : posiciones) {
+            if (a.sinConfirmar.remove(posicion) == null) continue;
+            a.reclamados.remove(posicion);
+            alguno = true;
+        }
+        if (!alguno) return;
+        if (a.sinConfirmar.isEmpty()) {
+            cerrarYBorrar(idInventario, a); // todo resuelto: el archivo ya no hace falta
+        } else {
+            guardarMarca(idInventario, a.sinConfirmar.firstKey());
+        }
+    }
+
+    /** La cola que tenía reclamado el registro lo suelta sin resolverlo (p. ej. se quedó sin conexión). */
+    public synchronized void liberar(long idInventario, long posicion) {
+        Archivo a = archivos.get(idInventario);
+        if (a != null) a.reclamados.remove(posicion);
+    }
+
+    /** Pendientes de un inventario (reclamados o no), para mostrarlos al abrirlo. */
+    public synchronized List<Registro> pendientes(long idInventario) throws IOException {
+        Archivo a = archivos.get(idInventario);
+        if (a == null) {
+            if (!Files.exists(rutaBitacora(idInventario))) return List.of(); // no se crea un archivo solo por mirar
+            a = abrir(idInventario);
+        }
+        List<Registro> lista = new ArrayList<>(a.sinConfirmar.size());
+        a.sinConfirmar.forEach((pos, cod) -> lista.add(new Registro(idInventario, pos, cod)));
+        if (lista.isEmpty()) cerrarYBorrar(idInventario, a);
+        return lista;
+    }
+
+    /** Cuántos escaneos hay sin confirmar en todas las bitácoras en disco. */
+    public synchronized int contarPendientes() throws IOException {
+        int n = 0;
+        for (long id : inventariosEnDisco()) n += pendientes(id).size();
+        return n;
+    }
+
+    /**
+     * Reclama los pendientes que ninguna cola tiene en vuelo, de todas las bitácoras en disco.
+     * Quien los recibe debe confirmarlos o {@link #liberar liberarlos}.
+     */
+    public synchronized List<Registro> reclamarPendientes() throws IOException {
+        List<Registro> lista = new ArrayList<>();
+        for (long id : inventariosEnDisco()) {
+            List<Registro> delInventario = pendientes(id);
+            if (delInventario.isEmpty()) continue;
+            Archivo a = archivos.get(id);
+            for (Registro r : delInventario) {
+                if (a.reclamados.add(r.posicion())) lista.add(r);
+            }
+        }
+        return lista;
+    }
+
+    /**
+     * Lo que quedó de sesiones anteriores (cierre o corte antes de confirmar). Solo la primera llamada del
+     * proceso reclama algo: las vistas que se abren después no vuelven a reenviarlo.
+     */
+    public synchronized List<Registro> reclamarAlArrancar() throws IOException {
+        if (arranqueReclamado) return List.of();
+        arranqueReclamado = true;
+        return reclamarPendientes();
+    }
+
+    private List<Long> inventariosEnDisco() throws IOException {
+        List<Long> ids = new ArrayList<>();
+        if (!Files.isDirectory(directorio)) return ids;
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(directorio, "inventario-*.log")) {
+            for (Path p : ds) {
+                String nombre = p.getFileName().toString();
+                ids.add(Long.parseLong(nombre.substring("inventario-".length(), nombre.length() - ".log".length())));
+            }
+        }
+        return ids;
+    }
+
+    private void cerrarYBorrar(long idInventario, Archivo a) throws IOException {
+        archivos.remove(idInventario);
+        a.sucio = false;
+        a.canal.close();
+        Files.deleteIfExists(rutaBitacora(idInventario));
+        Files.deleteIfExists(rutaMarca(idInventario));
+    }
+
+    private Archivo abrir(long idInventario) throws IOException {
+        Archivo a = archivos.get(idInventario);
+        if (a != null) return a;
+        Files.createDirectories(directorio);
+        FileChannel canal = FileChannel.open(rutaBitacora(idInventario),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        a = new Archivo(canal);
+        leerPendientes(a, leerMarca(idInventario));
+        archivos.put(idInventario, a);
+        return a;
+    }
+
+    /** Recorre desde la marca; un registro incompleto o con CRC inválido al final (corte a medio escribir) se descarta. */
+    private void leerPendientes(Archivo a, long marca) throws IOException {
+        long fin = a.canal.size();
+        long pos = Math.min(Math.max(0, marca), fin);
+        ByteBuffer cab = ByteBuffer.allocate(CABECERA);
+        while (pos + CABECERA <= fin) {
+            cab.clear();
+            if (leerCompleto(a.canal, cab, pos) < CABECERA) break;
+            cab.flip();
+            int largo = cab.getInt();
+            int crcEsperado = cab.getInt();
+            if (largo < 0 || pos + CABECERA + largo > fin) break;
+            ByteBuffer datos = ByteBuffer.allocate(largo);
+            if (leerCompleto(a.canal, datos, pos + CABECERA) < largo) break;
+            CRC32 crc = new CRC32();
+            crc.update(datos.array());
+            if ((int) crc.getValue() != crcEsperado) break;
+            a.sinConfirmar.put(pos, new String(datos.array(), StandardCharsets.UTF_8));
+            pos += CABECERA + largo;
+        }
+        if (pos < fin) a.canal.truncate(pos);
+        a.tamano = pos;
+        a.canal.position(pos);
+    }
+
+    private static int leerCompleto(FileChannel canal, ByteBuffer buf, long pos) throws IOException {
+        int total = 0;
+        while (buf.hasRemaining()) {
+            int n = canal.read(buf, pos + total);
+            if (n < 0) break;
+            total += n;
+        }
+        return total;
+    }
+
+    private long leerMarca(long idInventario) throws IOException {
+        Path p = rutaMarca(idInventario);
+        if (!Files.exists(p)) return 0;
+        byte[] b = Files.readAllBytes(p);
+        return b.length == Long.BYTES ? ByteBuffer.wrap(b).getLong() : 0;
+    }
+
+    private void guardarMarca(long idInventario, long marca) throws IOException {
+        Path tmp = directorio.resolve("inventario-" + idInventario + ".marca.tmp");
+        try (FileChannel c = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            c.write(ByteBuffer.allocate(Long.BYTES).putLong(0, marca));
+            c.force(false);
+        }
+        Files.move(tmp, rutaMarca(idInventario), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** El force() corre fuera del lock para no frenar los escaneos que llegan mientras tanto. */
+    private void sincronizarDisco() {
+        List<Archivo> sucios = new ArrayList<>();
+        synchronized (this) {
+            for (Archivo a : archivos.values()) {
+                if (a.sucio) {
+                    a.sucio = false;
+                    sucios.add(a);
+                }
+            }
+        }
+        for (Archivo a : sucios) {
+            try {
+                a.canal.force(false);
+            } catch (ClosedChannelException e) {
+                // se confirmó todo y se borró entre la toma de la lista y el force()
+            } catch (IOException e) {
+                synchronized (this) { a.sucio = true; }
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private Path rutaBitacora(long idInventario) { return directorio.resolve("inventario-" + idInventario + ".log"); }
+
+    private Path rutaMarca(long idInventario) { return directorio.resolve("inventario-" + idInventario + ".marca"); }
+
+    private static final class Archivo {
+        final FileChannel canal;
+        final TreeMap<Long, String> sinConfirmar = new TreeMap<>();
+        final Set<Long> reclamados = new HashSet<>(); // en vuelo en alguna cola
+        long tamano;
+        boolean sucio;
+
+        Archivo(FileChannel canal) { this.canal = canal; }
+    }
+}
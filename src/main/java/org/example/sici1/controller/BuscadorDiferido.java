@@ -0,0 +1,120 @@
+package org.example.sici1.controller;
+
+import javafx.animation.PauseTransition;
+import javafx.collections.ListChangeListener;
+import javafx.collections.transformation.FilteredList;
+import javafx.scene.control.TextInputControl;
+import javafx.util.Duration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Búsqueda en vivo para las tablas con FilteredList.
+ * Espera a que el usuario deje de teclear, compara contra claves ya normalizadas (una por fila,
+ * se recalcula solo cuando la fila cambia) en un hilo de fondo y cambia el predicado de una sola vez.
+ * Las claves que faltan también se normalizan en el fondo: el hilo de JavaFX solo copia los campos.
+ * Si llega otra tecla mientras se calcula, el cálculo viejo se abandona y su resultado se descarta
+ * (las claves que alcanzó a normalizar sí se guardan).
+ */
+public class BuscadorDiferido<T> {
+
+    private static final Duration ESPERA = Duration.millis(200);
+
+    private final TextInputControl campo;
+    private final FilteredList<T> filtrada;
+    private final Function<T, String[]> campos;
+
+    // Solo se tocan desde el hilo de JavaFX
+    private final Map<T, String> claves = new IdentityHashMap<>();
+    private final PauseTransition pausa = new PauseTransition(ESPERA);
+    private String aplicado = "";
+    private int version; // sube con cada cambio de la lista origen: las claves calculadas antes ya no se guardan
+
+    private final AtomicInteger generacion = new AtomicInteger();
+
+    /**
+     * Para que una edición en sitio actualice su clave, la lista origen debe crearse con extractor
+     * ({@code FXCollections.observableArrayList(f -> new Observable[]{...})}).
+     */
+    public BuscadorDiferido(TextInputControl campo, FilteredList<T> filtrada, Function<T, String[]> campos) {
+        this.campo = campo;
+        this.filtrada = filtrada;
+        this.campos = campos;
+        pausa.setOnFinished(e -> buscarAhora());
+        campo.textProperty().addListener((obs, o, n) -> pausa.playFromStart());
+        filtrada.getSource().addListener((ListChangeListener<T>) this::alCambiarOrigen);
+    }
+
+    /** Busca sin esperar (Enter, botón Buscar o tras parchar la lista). */
+    public void buscarAhora() {
+        pausa.stop();
+        int gen = generacion.incrementAndGet();
+        String q = IndiceTrigramas.normalizar(campo.getText());
+        if (q.isEmpty()) {
+            aplicado = "";
+            filtrada.setPredicate(null);
+            return;
+        }
+
+        // Instantánea en el hilo de JavaFX: la clave ya calculada o, si falta, los campos sin normalizar
+        List<T> filas = new ArrayList<>(filtrada.getSource());
+        String[] llaves = new String[filas.size()];
+        String[][] sinClave = new String[filas.size()][];
+        for (int i = 0; i < llaves.length; i++) {
+            T fila = filas.get(i);
+            llaves[i] = claves.get(fila);
+            if (llaves[i] == null) sinClave[i] = campos.apply(fila);
+        }
+        int ver = version;
+
+        DbExecutor.enFx(DbExecutor.supply(() -> {
+            Map<T, String> nuevas = new IdentityHashMap<>();
+            Set<T> coincidencias = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (int i = 0; i < llaves.length; i++) {
+                if ((i & 1023) == 0 && generacion.get() != gen) return new Resultado<>(null, nuevas);
+                if (llaves[i] == null) {
+                    llaves[i] = clave(sinClave[i]);
+                    nuevas.put(filas.get(i), llaves[i]);
+                }
+                if (llaves[i].contains(q)) coincidencias.add(filas.get(i));
+            }
+            return new Resultado<>(coincidencias, nuevas);
+        }), r -> {
+            if (version == ver) claves.putAll(r.nuevas());
+            if (r.coincidencias() == null || generacion.get() != gen) return;
+            aplicado = q;
+            filtrada.setPredicate(r.coincidencias()::contains);
+        }, Throwable::printStackTrace);
+    }
+
+    /** {@code coincidencias} es null si la búsqueda se abandonó por otra más nueva. */
+    private record Resultado<T>(Set<T> coincidencias, Map<T, String> nuevas) {}
+
+    private void alCambiarOrigen(ListChangeListener.Change<? extends T> c) {
+        version++;
+        while (c.next()) {
+            if (c.wasUpdated()) {
+                for (int i = c.getFrom(); i < c.getTo(); i++) claves.remove(c.getList().get(i));
+            }
+            for (T quitada : c.getRemoved()) claves.remove(quitada);
+        }
+        // Filas nuevas o editadas: reclasificar contra la búsqueda vigente
+        if (!aplicado.isEmpty()) pausa.playFromStart();
+    }
+
+    private static String clave(String[] valores) {
+        StringBuilder sb = new StringBuilder();
+        for (String c : valores) {
+            if (sb.length() > 0) sb.append('\u0001');
+            if (c != null) sb.append(IndiceTrigramas.normalizar(c));
+        }
+        return sb.toString();
+    }
+}
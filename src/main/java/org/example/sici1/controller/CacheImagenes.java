@@ -0,0 +1,77 @@
+package org.example.sici1.controller;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache LRU de imágenes acotada por bytes (no por número de entradas): unas pocas fotos
+ * grandes no deben poder desplazar cientos de miniaturas, ni llenar el heap.
+ * Las búsquedas sin imagen también se recuerdan (arreglo vacío) para no volver a la BD.
+ */
+public final class CacheImagenes {
+
+    private static final byte[] SIN_IMAGEN = new byte[0];
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, byte[]> entradas = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytesActuales;
+    private long aciertos, fallos, desalojos;
+
+    public CacheImagenes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /** {@code null} si no está en cache; arreglo vacío si se sabe que el bien no tiene imagen. */
+    public synchronized byte[] get(String clave) {
+        byte[] v = entradas.get(clave);
+        if (v == null) fallos++;
+        else aciertos++;
+        return v;
+    }
+
+    public synchronized void put(String clave, byte[] imagen) {
+        byte[] valor = imagen == null ? SIN_IMAGEN : imagen;
+        if (valor.length > maxBytes) {
+            remove(clave);
+            return;
+        }
+        byte[] anterior = entradas.put(clave, valor);
+        if (anterior != null) bytesActuales -= anterior.length;
+        bytesActuales += valor.length;
+
+        Iterator<Map.Entry<String, byte[]>> it = entradas.entrySet().iterator();
+        while (bytesActuales > maxBytes && it.hasNext()) {
+            Map.Entry<String, byte[]> masViejo = it.next();
+            if (masViejo.getKey().equals(clave)) continue;
+            bytesActuales -= masViejo.getValue().length;
+            it.remove();
+            desalojos++;
+        }
+    }
+
+    public synchronized void remove(String clave) {
+        byte[] anterior = entradas.remove(clave);
+        if (anterior != null) bytesActuales -= anterior.length;
+    }
+
+    public synchronized void clear() {
+        entradas.clear();
+        bytesActuales = 0;
+    }
+
+    public static boolean sinImagen(byte[] v) {
+        return v == null || v.length == 0;
+    }
+
+    public synchronized Estadisticas estadisticas() {
+        return new Estadisticas(entradas.size(), bytesActuales, maxBytes, aciertos, fallos, desalojos);
+    }
+
+    public record Estadisticas(int entradas, long bytes, long maxBytes, long aciertos, long fallos, long desalojos) {
+        public double tasaAciertos() {
+            long total = aciertos + fallos;
+            return total == 0 ? 0 : (double) aciertos / total;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.example.sici1.controller;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.control.ComboBox;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Catálogos pequeños que varias vistas usan en sus combos, compartidos por toda la aplicación.
+ * Se piden en paralelo justo después de autenticar y las vistas reciben el mismo futuro, ya resuelto
+ * o en curso. Cada carga vive {@link #TTL_MS} ms o hasta que una escritura la invalida; lo que se entrega
+ * es una lista observable de solo lectura, así que varios combos pueden compartirla sin copiarla.
+ */
+public final class Catalogos {
+
+    /** Cambios hechos desde otros equipos tardan a lo sumo esto en verse (o menos, con la sincronización). */
+    private static final long TTL_MS = 5 * 60_000;
+
+    public static final Catalogo<String> EDIFICIOS = new Catalogo<>("edificios",
+            "SELECT nombre FROM edificios ORDER BY nombre", rs -> rs.getString(1));
+    public static final Catalogo<String> PUESTOS = new Catalogo<>("puestos",
+            "SELECT nombre FROM puestos WHERE activo = 'S' ORDER BY nombre", rs -> rs.getString(1));
+    public static final Catalogo<String> ROLES = new Catalogo<>("roles",
+            "SELECT nombre FROM roles ORDER BY nombre", rs -> rs.getString(1));
+    public static final Catalogo<AsignacionesView.Item> UNIDADES_ADMIN = new Catalogo<>("unidades administrativas",
+            "SELECT id, nombre FROM ID_UNIDADES_ADMINISTRATIVAS WHERE ACTIVO = 'S' ORDER BY nombre",
+            rs -> new AsignacionesView.Item(rs.getLong(1), rs.getString(2)));
+    public static final Catalogo<AsignacionesView.Item> ESPACIOS = new Catalogo<>("espacios",
+            "SELECT id_unidad, nombre FROM UNIDADES WHERE ACTIVO = 'S' ORDER BY nombre",
+            rs -> new AsignacionesView.Item(rs.getLong(1), rs.getString(2)));
+
+    private static final List<Catalogo<?>> TODOS = List.of(EDIFICIOS, PUESTOS, ROLES, UNIDADES_ADMIN, ESPACIOS);
+
+    private Catalogos() {}
+
+    /** Lanza todas las cargas a la vez (cada una en su hilo virtual) sin esperar. */
+    public static void precargar() {
+        for (Catalogo<?> c : TODOS) c.obtener();
+    }
+
+    /** Al cerrar sesión: la siguiente sesión vuelve a leerlos. */
+    public static void limpiar() {
+        for (Catalogo<?> c : TODOS) c.invalidar();
+    }
+
+    public static final class Catalogo<T> {
+        private final String nombre;
+        private final String sql;
+        private final SincronizadorCatalogos.Mapeador<T> mapeador;
+        private CompletableFuture<ObservableList<T>> carga;
+        private long pedidoEn;
+
+        private Catalogo(String nombre, String sql, SincronizadorCatalogos.Mapeador<T> mapeador) {
+            this.nombre = nombre;
+            this.sql = sql;
+            this.mapeador = mapeador;
+        }
+
+        /**
+         * Futuro con la lista vigente (de solo lectura). Solo va a la BD si nunca se cargó, si la carga
+         * anterior falló, si se invalidó o si venció el TTL.
+         */
+        public synchronized CompletableFuture<ObservableList<T>> obtener() {
+            long ahora = System.currentTimeMillis();
+            boolean vencida = carga != null && carga.isDone() && ahora - pedidoEn > TTL_MS;
+            if (carga == null || carga.isCompletedExceptionally() || vencida) {
+                pedidoEn = ahora;
+                carga = cargar();
+            }
+            return carga;
+        }
+
+        /** Tras una escritura en la tabla: la próxima lectura vuelve a la BD. */
+        public synchronized void invalidar() {
+            carga = null;
+        }
+
+        /** Pone la lista en el combo al estar disponible (al instante si ya está en caché). */
+        public void enCombo(ComboBox<T> combo, Consumer<Throwable> alFallar) {
+            DbExecutor.enFx(obtener(), combo::setItems, alFallar);
+        }
+
+        private CompletableFuture<ObservableList<T>> cargar() {
+            // El tiempo y las filas quedan en Metricas y en sici.Jdbc bajo la operación "Catalogos.<nombre>"
+            return DbExecutor.consultar("Catalogos." + nombre, cn -> {
+                List<T> items = new ArrayList<>();
+                try (PreparedStatement ps = cn.prepareStatement(sql);
+                     ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) items.add(mapeador.mapear(rs));
+                }
+                return FXCollections.unmodifiableObservableList(FXCollections.observableList(items));
+            });
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package org.example.sici1.controller;
+
+import oracle.ucp.ConnectionLabelingCallback;
+import oracle.ucp.jdbc.JDBCConnectionPoolStatistics;
+import oracle.ucp.jdbc.LabelableConnection;
+import oracle.ucp.jdbc.PoolDataSource;
+import oracle.ucp.jdbc.PoolDataSourceFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+/**
+ * Acceso a datos compartido por toda la aplicación.
+ * Un único pool UCP; el esquema de sesión y el orden binario se aplican una sola vez por conexión física
+ * (connection labeling), así que pedir una conexión ya no cuesta un ALTER SESSION extra.
+ */
+public final class Conexion {
+
+    // ===================== Configuración de Conexión =====================
+    private static final String TNS_ADMIN_PATH = "C:/Users/VICTOR UZZIEL/IdeaProjects/SICI1/src/main/resources/org/example/sici1/Wallet_CN4PI23N1E6J6TZS";
+    private static final String JDBC_URL = "jdbc:oracle:thin:@cn4pi23n1e6j6tzs_high";
+    private static final String DB_USER = "ADMIN";
+    private static final String DB_PASS = "Knoxotics_Kashima50";
+
+    // Dueño real de las tablas (BIENES, USUARIOS, UNIDADES, etc.)
+    public static final String SCHEMA_OWNER = "ADMIN";
+
+    private static final String LABEL_SCHEMA = "CURRENT_SCHEMA";
+    private static final Properties ETIQUETAS = new Properties();
+
+    private static final PoolDataSource dataSource;
+
+    static {
+        System.setProperty("oracle.net.tns_admin", TNS_ADMIN_PATH);
+        ETIQUETAS.setProperty(LABEL_SCHEMA, SCHEMA_OWNER);
+        dataSource = initializeDataSource();
+    }
+
+    private Conexion() {}
+
+    private static PoolDataSource initializeDataSource() {
+        try {
+            PoolDataSource pds = PoolDataSourceFactory.getPoolDataSource();
+            pds.setConnectionPoolName("SICI_POOL");
+            pds.setConnectionFactoryClassName("oracle.jdbc.pool.OracleDataSource");
+            pds.setURL(JDBC_URL);
+            pds.setUser(DB_USER);
+            pds.setPassword(DB_PASS);
+            pds.setInitialPoolSize(3);
+            pds.setMinPoolSize(3);
+            pds.setMaxPoolSize(15);
+            pds.setAbandonedConnectionTimeout(60);
+            pds.setInactiveConnectionTimeout(120);
+            pds.setTimeoutCheckInterval(30);
+            pds.setValidateConnectionOnBorrow(true);
+            pds.setConnectionWaitTimeout(60);
+            pds.registerConnectionLabelingCallback(new EsquemaLabelingCallback());
+            return pds;
+        } catch (SQLException e) {
+            throw new RuntimeException("No se pudo inicializar el pool UCP", e);
+        }
+    }
+
+    /**
+     * Conexión del pool con CURRENT_SCHEMA ya aplicado. Cerrarla la devuelve al pool.
+     * Con métricas activas va envuelta y se mide (espera de préstamo incluida) bajo la operación que la pidió.
+     */
+    public static Connection conectar() throws SQLException {
+        VigilanteFx.alPedirConexion();
+        if (!Metricas.ACTIVAS) return dataSource.getConnection(ETIQUETAS);
+        String operacion = Metricas.operacionActual();
+        long inicio = System.nanoTime();
+        Connection cn;
+        try {
+            cn = dataSource.getConnection(ETIQUETAS);
+        } catch (SQLException e) {
+            Metricas.registrarFalloPrestamo(operacion, System.nanoTime() - inicio);
+            throw e;
+        }
+        return ConexionMedida.envolver(cn, operacion, System.nanoTime() - inicio);
+    }
+
+    public static DataSource getDataSource() {
+        return dataSource;
+    }
+
+    /** Foto del estado del pool (para diagnóstico). */
+    public static EstadisticasPool estadisticas() {
+        return estadisticas(dataSource);
+    }
+
+    /** Igual que {@link #estadisticas()} para otro pool UCP (p. ej. el de {@link PruebaCargaCaptura}). */
+    static EstadisticasPool estadisticas(PoolDataSource pds) {
+        JDBCConnectionPoolStatistics st = pds.getStatistics();
+        if (st == null) return new EstadisticasPool(0, 0, 0, 0, 0, 0, 0);
+        return new EstadisticasPool(
+                st.getTotalConnectionsCount(),
+                st.getAvailableConnectionsCount(),
+                st.getBorrowedConnectionsCount(),
+                st.getPeakConnectionsCount(),
+                st.getPendingRequestsCount(),
+                st.getAverageConnectionWaitTime(),
+                st.getPeakConnectionWaitTime()
+        );
+    }
+
+    public record EstadisticasPool(int total, int disponibles, int prestadas, int pico,
+                                   int enEspera, long esperaPromedioMs, long esperaPicoMs) {
+        @Override public String toString() {
+            return "Pool[total=" + total + ", disponibles=" + disponibles + ", prestadas=" + prestadas +
+                    ", pico=" + pico + ", enEspera=" + enEspera +
+                    ", esperaProm=" + esperaPromedioMs + "ms, esperaPico=" + esperaPicoMs + "ms]";
+        }
+    }
+
+    /**
+     * UCP llama a configure() solo cuando la conexión física aún no trae la etiqueta pedida;
+     * las conexiones ya etiquetadas se reutilizan con costo 0, sin ida y vuelta adicional.
+     */
+    private static final class EsquemaLabelingCallback implements ConnectionLabelingCallback {
+        @Override
+        public int cost(Properties reqLabels, Properties currentLabels) {
+            if (currentLabels == null) return 1;
+            String pedido = reqLabels.getProperty(LABEL_SCHEMA);
+            return pedido != null && pedido.equals(currentLabels.getProperty(LABEL_SCHEMA)) ? 0 : 1;
+        }
+
+        @Override
+        public boolean configure(Properties reqLabels, Object conn) {
+            String esquema = reqLabels.getProperty(LABEL_SCHEMA, SCHEMA_OWNER);
+            try (Statement st = ((Connection) conn).createStatement()) {
+                // Orden y comparación binarios: los keyset (col > ?) y las inserciones en sitio comparan como Java
+                st.execute("ALTER SESSION SET CURRENT_SCHEMA=" + esquema + " NLS_SORT=BINARY NLS_COMP=BINARY");
+                ((LabelableConnection) conn).applyConnectionLabel(LABEL_SCHEMA, esquema);
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package org.example.sici1.controller;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Envoltura de una conexión del pool que cuenta lo que se hace con ella (sentencias, filas leídas,
+ * bytes de LOB, errores) y al cerrarla reporta todo a {@link Metricas}. Las sentencias y cursores que
+ * entrega también van envueltos (cada sentencia emite su evento JFR {@code sici.Jdbc}); el resto de
+ * llamadas pasa directo a la conexión real.
+ */
+final class ConexionMedida implements InvocationHandler {
+
+    private final Connection real;
+    private final String operacion;
+    private final long esperaNs;
+    private final long prestadaEn = System.nanoTime();
+    // Una conexión la usa un hilo a la vez: contadores simples
+    private long sentencias;
+    private long filas;
+    private long bytesLob;
+    private boolean error;
+    private boolean cerrada;
+
+    private ConexionMedida(Connection real, String operacion, long esperaNs) {
+        this.real = real;
+        this.operacion = operacion;
+        this.esperaNs = esperaNs;
+    }
+
+    static Connection envolver(Connection real, String operacion, long esperaNs) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConexionMedida(real, operacion, esperaNs));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+        String nombre = metodo.getName();
+        if (nombre.equals("close")) {
+            try {
+                real.close();
+                return null;
+            } finally {
+                registrarCierre();
+            }
+        }
+        Object r = delegar(real, metodo, args);
+        // Se envuelve con la interfaz que declara el método (createStatement, prepareStatement, prepareCall)
+        if (r instanceof Statement st && Statement.class.isAssignableFrom(metodo.getReturnType())) {
+            return envolver(st, metodo.getReturnType().asSubclass(Statement.class), args);
+        }
+        return r;
+    }
+
+    private void registrarCierre() {
+        if (cerrada) return;
+        cerrada = true;
+        Metricas.registrar(operacion, esperaNs, System.nanoTime() - prestadaEn, sentencias, filas, bytesLob, error);
+    }
+
+    private Object delegar(Object destino, Method metodo, Object[] args) throws Throwable {
+        try {
+            return metodo.invoke(destino, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof SQLException) error = true;
+            throw e.getCause();
+        }
+    }
+
+    private Object envolver(Statement st, Class<? extends Statement> tipo, Object[] args) {
+        sentencias++;
+        String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+        return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{tipo},
+                new SentenciaMedida(st, sql));
+    }
+
+    /** Sentencia envuelta: emite un {@link EventosJfr.Jdbc} de su primera ejecución a su cierre. */
+    private final class SentenciaMedida implements InvocationHandler {
+        private final Statement real;
+        private String sql;
+        private EventosJfr.Jdbc evento;
+        private int ejecuciones;
+        private long filas;
+        private long afectadas;
+        private boolean fallo;
+
+        SentenciaMedida(Statement real, String sql) {
+            this.real = real;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            String nombre = metodo.getName();
+            if (nombre.equals("close")) {
+                try {
+                    real.close();
+                    return null;
+                } finally {
+                    emitir();
+                }
+            }
+            boolean ejecuta = nombre.startsWith("execute");
+            if (ejecuta) {
+                if (evento == null) {
+                    evento = new EventosJfr.Jdbc();
+                    evento.begin();
+                }
+                ejecuciones++;
+                if (sql == null && args != null && args.length > 0 && args[0] instanceof String s) sql = s;
+            }
+            Object r;
+            try {
+                r = delegar(real, metodo, args);
+            } catch (SQLException e) {
+                fallo = true;
+                throw e;
+            }
+            if (ejecuta) {
+                if (r instanceof Integer n && n > 0) afectadas += n;
+                else if (r instanceof Long n && n > 0) afectadas += n;
+                else if (r instanceof int[] lote) for (int n : lote) if (n > 0) afectadas += n;
+            }
+            return r instanceof ResultSet rs ? envolver(rs, this) : r;
+        }
+
+        private void emitir() {
+            EventosJfr.Jdbc e = evento;
+            evento = null;
+            if (e == null) return;
+            e.end();
+            if (!e.shouldCommit()) return;
+            e.operacion = operacion;
+            e.sql = sql == null ? null : (sql.length() > 500 ? sql.substring(0, 500) : sql);
+            e.sqlId = sql == null ? null : Integer.toHexString(sql.hashCode());
+            e.ejecuciones = ejecuciones;
+            e.filas = filas;
+            e.afectadas = afectadas;
+            e.error = fallo;
+            e.commit();
+        }
+    }
+
+    private ResultSet envolver(ResultSet rs, SentenciaMedida sentencia) {
+        return (ResultSet) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, metodo, args) -> {
+                    Object r = delegar(rs, metodo, args);
+                    switch (metodo.getName()) {
+                        case "next" -> { if (Boolean.TRUE.equals(r)) { filas++; sentencia.filas++; } }
+                        case "getBytes" -> { if (r instanceof byte[] b) bytesLob += b.length; }
+                        case "getBinaryStream" -> { if (r instanceof InputStream in) return new Contador(in); }
+                        default -> {}
+                    }
+                    return r;
+                });
+    }
+
+    /** Cuenta los bytes de un LOB leído como flujo. */
+    private final class Contador extends FilterInputStream {
+        Contador(InputStream in) { super(in); }
+
+        @Override public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) bytesLob++;
+            return b;
+        }
+
+        @Override public int read(byte[] buf, int off, int len) throws IOException {
+            int n = super.read(buf, off, len);
+            if (n > 0) bytesLob += n;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package org.example.sici1.controller;
+
+import javafx.application.Platform;
+import javafx.scene.Node;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.control.TableView;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Ejecutor compartido para todo el trabajo JDBC de las vistas.
+ * Cada consulta corre en su propio hilo virtual (el límite real de concurrencia lo pone el pool),
+ * y los resultados se entregan de vuelta al hilo de JavaFX con {@link #FX}.
+ */
+public final class DbExecutor {
+
+    private static final ExecutorService IO = Executors.newVirtualThreadPerTaskExecutor();
+    private static final ThreadLocal<List<CompletableFuture<?>>> RECOLECTOR = new ThreadLocal<>();
+
+    /** Ejecuta en el hilo de aplicación de JavaFX. */
+    public static final Executor FX = r -> {
+        if (Platform.isFxApplicationThread()) r.run();
+        else Platform.runLater(r);
+    };
+
+    private DbExecutor() {}
+
+    @FunctionalInterface
+    public interface Consulta<T> {
+        T ejecutar(Connection cn) throws SQLException;
+    }
+
+    @FunctionalInterface
+    public interface Tarea<T> {
+        T ejecutar() throws Exception;
+    }
+
+    /**
+     * Toma una conexión del pool en segundo plano y ejecuta la consulta con ella.
+     * Para las métricas, la operación es el método que llama (p. ej. {@code BienesView.cargarBienes}).
+     */
+    public static <T> CompletableFuture<T> consultar(Consulta<T> consulta) {
+        return consultar(Metricas.ACTIVAS ? Metricas.llamador() : null, consulta);
+    }
+
+    /** Igual que {@link #consultar(Consulta)}, con el nombre de operación explícito para las métricas. */
+    public static <T> CompletableFuture<T> consultar(String operacion, Consulta<T> consulta) {
+        CompletableFuture<T> f = supply(() -> Metricas.conEtiqueta(operacion, () -> {
+            try (Connection cn = Conexion.conectar()) {
+                return consulta.ejecutar(cn);
+            }
+        }));
+        List<CompletableFuture<?>> recolector = RECOLECTOR.get();
+        if (recolector != null) recolector.add(f);
+        return f;
+    }
+
+    /**
+     * Ejecuta la tarea anotando en {@code consultas} las consultas que lance desde este hilo
+     * (p. ej. la carga inicial que dispara el {@code initialize()} de una vista).
+     */
+    public static <T> T recolectando(List<CompletableFuture<?>> consultas, Tarea<T> tarea) throws Exception {
+        List<CompletableFuture<?>> anterior = RECOLECTOR.get();
+        RECOLECTOR.set(consultas);
+        try {
+            return tarea.ejecutar();
+        } finally {
+            if (anterior == null) RECOLECTOR.remove();
+            else RECOLECTOR.set(anterior);
+        }
+    }
+
+    public static <T> CompletableFuture<T> supply(Tarea<T> tarea) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return tarea.ejecutar();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, IO);
+    }
+
+    public static void execute(Runnable r) {
+        IO.execute(r);
+    }
+
+    /** Ejecuta en segundo plano tras una espera (reintentos con espera creciente). */
+    public static void executeDespues(long esperaMs, Runnable r) {
+        CompletableFuture.delayedExecutor(esperaMs, TimeUnit.MILLISECONDS, IO).execute(r);
+    }
+
+    /** Entrega el resultado (o el error ya desenvuelto) en el hilo de JavaFX. */
+    public static <T> CompletableFuture<Void> enFx(CompletableFuture<T> futuro, Consumer<T> ok, Consumer<Throwable> error) {
+        return futuro.handleAsync((valor, ex) -> {
+            if (ex == null) ok.accept(valor);
+            else if (error != null) error.accept(causa(ex));
+            return null;
+        }, FX);
+    }
+
+    /**
+     * Muestra un indicador de carga como placeholder de la tabla mientras el futuro no termina.
+     * Llamar desde el hilo de JavaFX.
+     */
+    public static <T> CompletableFuture<T> conIndicador(TableView<?> tabla, CompletableFuture<T> futuro) {
+        Node anterior = tabla.getPlaceholder();
+        ProgressIndicator indicador = new ProgressIndicator();
+        indicador.setMaxSize(48, 48);
+        tabla.setPlaceholder(indicador);
+        futuro.whenCompleteAsync((v, ex) -> {
+            if (tabla.getPlaceholder() == indicador) tabla.setPlaceholder(anterior);
+        }, FX);
+        return futuro;
+    }
+
+    public static Throwable causa(Throwable ex) {
+        Throwable t = ex;
+        while ((t instanceof CompletionException || t instanceof ExecutionException)
+                && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
+}
@@ -1,5 +1,6 @@
 package org.example.sici1.controller;
 
+import javafx.beans.Observable;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -8,8 +9,12 @@ import javafx.fxml.FXML;
 import javafx.scene.control.*;
 
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
-public class EdificiosView {
+public class EdificiosView implements VistaActivable {
 
     @FXML private TableView<Edificio> tablaEdificios;
     @FXML private TableColumn<Edificio, String> colNombre;
@@ -18,13 +23,15 @@ public class EdificiosView {
     @FXML private TextField txtBuscarNombre;
     @FXML private Button btnAgregar, btnEditar, btnBuscarNombre;
 
-    private final ObservableList<Edificio> edificios = FXCollections.observableArrayList();
+    // Con extractor: editar una fila en sitio avisa a la lista (filtro y claves de búsqueda)
+    private final ObservableList<Edificio> edificios = FXCollections.observableArrayList(
+            e -> new Observable[]{e.nombreProperty(), e.estadoProperty()});
     private final FilteredList<Edificio> edificiosFiltrados = new FilteredList<>(edificios, p -> true);
+    private BuscadorDiferido<Edificio> buscador;
+    private SincronizadorCatalogos.Suscripcion<Edificio> cambios;
 
     // === PERMISOS CORRECTOS ===
-    private final String userRole = UserSession.getInstance().getRole();
-    private final boolean isAdmin = "ADMIN".equalsIgnoreCase(userRole);   // <-- SOLO ADMIN MODIFICA
-    private static final String SCHEMA_OWNER = "ADMIN";
+    private final boolean isAdmin = Sesion.actual().tiene(Sesion.Permiso.EDITAR_CATALOGOS);   // <-- SOLO ADMIN MODIFICA
 
     @FXML
     public void initialize() {
@@ -67,8 +74,17 @@ public class EdificiosView {
         }
 
         // Buscador
+        buscador = new BuscadorDiferido<>(txtBuscarNombre, edificiosFiltrados, e -> new String[]{e.getNombre()});
         btnBuscarNombre.setOnAction(e -> buscarEdificio());
-        txtBuscarNombre.textProperty().addListener((obs, oldVal, newVal) -> buscarEdificio());
+
+        // Cambios de otros operadores (antes de la carga inicial para no perder ninguno)
+        cambios = SincronizadorCatalogos.suscribir("edificios",
+                "SELECT id_edificio, nombre, activo, actualizado_en FROM edificios WHERE actualizado_en > ?",
+                rs -> new Edificio(rs.getLong("id_edificio"), rs.getString("nombre"),
+                        "S".equals(rs.getString("activo")) ? "Activo" : "Inactivo"),
+                this::fusionarCambios,
+                "id_edificio", this::quitarBorrados
+        );
 
         // Carga inicial
         cargarEdificios();
@@ -80,29 +96,61 @@ public class EdificiosView {
         }
     }
 
+    // === Ciclo de vida en caché (GestorVistas) ===
+    @Override public void alActivar() { cambios.reanudar(); }
+
+    @Override public void alDesactivar() { cambios.pausar(); }
+
+    @Override public void alDescartar() { cambios.cancelar(); }
+
+    @Override public long memoriaEstimada() { return BYTES_BASE + edificios.size() * BYTES_POR_FILA; }
+
     private void buscarEdificio() {
-        String texto = txtBuscarNombre.getText() == null ? "" : txtBuscarNombre.getText().toLowerCase().trim();
-        edificiosFiltrados.setPredicate(edificio ->
-                texto.isEmpty() || edificio.getNombre().toLowerCase().contains(texto)
-        );
+        buscador.buscarAhora();
     }
 
     private void cargarEdificios() {
         edificios.clear();
-        String sql = "SELECT nombre, activo FROM edificios ORDER BY nombre";
-        try (Connection cn = getConnection();
-             Statement st = cn.createStatement();
-             ResultSet rs = st.executeQuery(sql)) {
-
-            while (rs.next()) {
-                String nombre = rs.getString("nombre");
-                String estado = "S".equals(rs.getString("activo")) ? "Activo" : "Inactivo";
-                edificios.add(new Edificio(nombre, estado));
+        String sql = "SELECT id_edificio, nombre, activo FROM edificios ORDER BY UPPER(nombre), nombre";
+        CompletableFuture<List<Edificio>> carga = DbExecutor.consultar(cn -> {
+            List<Edificio> lista = new ArrayList<>();
+            try (Statement st = cn.createStatement();
+                 ResultSet rs = st.executeQuery(sql)) {
+
+                while (rs.next()) {
+                    String nombre = rs.getString("nombre");
+                    String estado = "S".equals(rs.getString("activo")) ? "Activo" : "Inactivo";
+                    lista.add(new Edificio(rs.getLong("id_edificio"), nombre, estado));
+                }
             }
-        } catch (SQLException e) {
+            lista.sort(Filas.porTexto(Edificio::getNombre));
+            return lista;
+        });
+        DbExecutor.enFx(DbExecutor.conIndicador(tablaEdificios, carga), edificios::setAll, e -> {
             mostrarAlerta("Error al cargar edificios.", Alert.AlertType.ERROR);
             e.printStackTrace();
+        });
+    }
+
+    private void fusionarCambios(List<Edificio> cambios) {
+        Catalogos.EDIFICIOS.invalidar(); // cambios hechos desde otros equipos
+        for (Edificio c : cambios) {
+            // Por id: un edificio renombrado en otro equipo se actualiza, no se duplica
+            Edificio actual = Filas.buscar(edificios, e -> e.getId() == c.getId());
+            if (actual == null) {
+                Filas.insertarOrdenado(edificios, c, Filas.porTexto(Edificio::getNombre));
+            } else {
+                actual.setNombre(c.getNombre());
+                actual.setEstado(c.getEstado());
+                Filas.reubicar(edificios, actual, Filas.porTexto(Edificio::getNombre));
+            }
         }
+        tablaEdificios.refresh();
+    }
+
+    /** Edificios borrados en otro equipo: {@code vivos} son los id_edificio que siguen en la BD. */
+    private void quitarBorrados(Set<String> borrados) {
+        if (edificios.removeIf(e -> borrados.contains(String.valueOf(e.getId())))) Catalogos.EDIFICIOS.invalidar();
     }
 
     private void agregarEdificio() {
@@ -120,24 +168,33 @@ public class EdificiosView {
                 mostrarAlerta("El nombre no puede estar vacío.", Alert.AlertType.WARNING);
                 return;
             }
-            if (existeEdificio(finalNombre)) {
-                mostrarAlerta("Ya existe un edificio con ese nombre.", Alert.AlertType.WARNING);
-                return;
-            }
-
-            String sql = "INSERT INTO edificios (nombre, activo) VALUES (?, 'S')";
-            try (Connection cn = getConnection();
-                 PreparedStatement ps = cn.prepareStatement(sql)) {
 
-                ps.setString(1, finalNombre);
-                ps.executeUpdate();
-
-                edificios.add(new Edificio(finalNombre, "Activo"));
+            String sql = "INSERT INTO edificios (nombre, activo, actualizado_en) VALUES (?, 'S', SYSTIMESTAMP)";
+            // Devuelve la fila creada (id generado) para parchar la lista; null si el nombre ya existe
+            CompletableFuture<Edificio> alta = DbExecutor.consultar(cn -> {
+                if (existeEdificio(cn, finalNombre)) return null;
+                try (PreparedStatement ps = cn.prepareStatement(sql, new String[]{"id_edificio"})) {
+                    ps.setString(1, finalNombre);
+                    ps.executeUpdate();
+                    Catalogos.EDIFICIOS.invalidar();
+                    try (ResultSet gk = ps.getGeneratedKeys()) {
+                        if (!gk.next()) throw new SQLException("No se obtuvo id_edificio");
+                        return new Edificio(gk.getLong(1), finalNombre, "Activo");
+                    }
+                }
+            });
+            DbExecutor.enFx(alta, nuevo -> {
+                if (nuevo == null) {
+                    mostrarAlerta("Ya existe un edificio con ese nombre.", Alert.AlertType.WARNING);
+                    return;
+                }
+                Filas.insertarOrdenado(edificios, nuevo, Filas.porTexto(Edificio::getNombre));
+                tablaEdificios.getSelectionModel().select(nuevo);
                 buscarEdificio();
-            } catch (SQLException e) {
+            }, e -> {
                 mostrarAlerta("Error al agregar el edificio.", Alert.AlertType.ERROR);
                 e.printStackTrace();
-            }
+            });
         });
     }
 
@@ -162,26 +219,33 @@ public class EdificiosView {
                 mostrarAlerta("El nombre no puede estar vacío.", Alert.AlertType.WARNING);
                 return;
             }
-            if (!finalNombre.equalsIgnoreCase(seleccionado.getNombre()) && existeEdificio(finalNombre)) {
-                mostrarAlerta("Ya existe un edificio con ese nombre.", Alert.AlertType.WARNING);
-                return;
-            }
-
-            String sql = "UPDATE edificios SET nombre = ?, actualizado_en = SYSTIMESTAMP WHERE nombre = ?";
-            try (Connection cn = getConnection();
-                 PreparedStatement ps = cn.prepareStatement(sql)) {
-
-                ps.setString(1, finalNombre);
-                ps.setString(2, seleccionado.getNombre());
-                ps.executeUpdate();
-
+            boolean cambiaNombre = !finalNombre.equalsIgnoreCase(seleccionado.getNombre());
+            long id = seleccionado.getId();
+
+            String sql = "UPDATE edificios SET nombre = ?, actualizado_en = SYSTIMESTAMP WHERE id_edificio = ?";
+            CompletableFuture<Boolean> edicion = DbExecutor.consultar(cn -> {
+                if (cambiaNombre && existeEdificio(cn, finalNombre)) return false;
+                try (PreparedStatement ps = cn.prepareStatement(sql)) {
+                    ps.setString(1, finalNombre);
+                    ps.setLong(2, id);
+                    ps.executeUpdate();
+                    Catalogos.EDIFICIOS.invalidar();
+                }
+                return true;
+            });
+            DbExecutor.enFx(edicion, actualizado -> {
+                if (!actualizado) {
+                    mostrarAlerta("Ya existe un edificio con ese nombre.", Alert.AlertType.WARNING);
+                    return;
+                }
                 seleccionado.setNombre(finalNombre);
+                Filas.reubicar(edificios, seleccionado, Filas.porTexto(Edificio::getNombre));
                 tablaEdificios.refresh();
                 buscarEdificio();
-            } catch (SQLException e) {
+            }, e -> {
                 mostrarAlerta("Error al editar el edificio.", Alert.AlertType.ERROR);
                 e.printStackTrace();
-            }
+            });
         });
     }
 
@@ -189,30 +253,29 @@ public class EdificiosView {
         // Guardia de seguridad: solo admin
         if (!isAdmin) { mostrarAlerta("No autorizado.", Alert.AlertType.WARNING); return; }
 
-        String sql = "UPDATE edificios SET activo = ?, actualizado_en = SYSTIMESTAMP WHERE nombre = ?";
-        try (Connection cn = getConnection();
-             PreparedStatement ps = cn.prepareStatement(sql)) {
-
-            ps.setString(1, "Activo".equalsIgnoreCase(edificio.getEstado()) ? "S" : "N");
-            ps.setString(2, edificio.getNombre());
-            ps.executeUpdate();
-        } catch (SQLException e) {
+        String activo = "Activo".equalsIgnoreCase(edificio.getEstado()) ? "S" : "N";
+        long id = edificio.getId();
+        String sql = "UPDATE edificios SET activo = ?, actualizado_en = SYSTIMESTAMP WHERE id_edificio = ?";
+        CompletableFuture<Integer> cambio = DbExecutor.consultar(cn -> {
+            try (PreparedStatement ps = cn.prepareStatement(sql)) {
+                ps.setString(1, activo);
+                ps.setLong(2, id);
+                return ps.executeUpdate();
+            }
+        });
+        DbExecutor.enFx(cambio, n -> {}, e -> {
             mostrarAlerta("Error al actualizar el estado.", Alert.AlertType.ERROR);
             e.printStackTrace();
-        }
+        });
     }
 
-    private boolean existeEdificio(String nombre) {
+    private boolean existeEdificio(Connection cn, String nombre) throws SQLException {
         String sql = "SELECT COUNT(*) FROM edificios WHERE UPPER(nombre) = UPPER(?)";
-        try (Connection cn = getConnection();
-             PreparedStatement ps = cn.prepareStatement(sql)) {
-
+        try (PreparedStatement ps = cn.prepareStatement(sql)) {
             ps.setString(1, nombre);
             try (ResultSet rs = ps.executeQuery()) {
                 return rs.next() && rs.getInt(1) > 0;
             }
-        } catch (SQLException e) {
-            return false;
         }
     }
 
@@ -225,28 +288,20 @@ public class EdificiosView {
         alert.showAndWait();
     }
 
-    private Connection getConnection() throws SQLException {
-        try {
-            Connection cn = Conexion.conectar();
-            try (Statement st = cn.createStatement()) {
-                st.execute("ALTER SESSION SET CURRENT_SCHEMA=" + SCHEMA_OWNER);
-            }
-            return cn;
-        } catch (ClassNotFoundException e) {
-            throw new SQLException("No se pudo cargar el driver Oracle", e);
-        }
-    }
-
     /** Modelo */
     public static class Edificio {
+        private final long id;
         private final SimpleStringProperty nombre;
         private final SimpleStringProperty estado;
 
-        public Edificio(String nombre, String estado) {
+        public Edificio(long id, String nombre, String estado) {
+            this.id = id;
             this.nombre = new SimpleStringProperty(nombre);
             this.estado = new SimpleStringProperty(estado);
         }
 
+        public long getId() { return id; }
+
         public String getNombre() { return nombre.get(); }
         public void setNombre(String nombre) { this.nombre.set(nombre); }
         public String getEstado() { return estado.get(); }
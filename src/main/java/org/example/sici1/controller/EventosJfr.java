@@ -0,0 +1,92 @@
+package org.example.sici1.controller;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Eventos propios para Java Flight Recorder, para ver en la misma grabación la latencia de la interfaz
+ * junto a la de la BD. Con la grabación apagada no se registra nada: cada punto de emisión solo crea el
+ * evento y pregunta {@code shouldCommit()}.
+ * <pre>
+ *   java -XX:StartFlightRecording:filename=sici.jfr,settings=profile ...
+ *   jfr print --events sici.Jdbc sici.jfr
+ * </pre>
+ */
+public final class EventosJfr {
+
+    private static final String CATEGORIA = "SICI";
+
+    private EventosJfr() {}
+
+    @Name("sici.Jdbc")
+    @Label("Sentencia JDBC")
+    @Category({CATEGORIA, "Base de datos"})
+    @Description("Una sentencia, de su primera ejecución a su cierre (incluye leer sus filas)")
+    @StackTrace(false)
+    public static final class Jdbc extends Event {
+        @Label("Operación") public String operacion;
+        @Label("SQL id") @Description("Hash del texto SQL, estable entre ejecuciones") public String sqlId;
+        @Label("SQL") public String sql;
+        @Label("Ejecuciones") public int ejecuciones;
+        @Label("Filas leídas") public long filas;
+        @Label("Filas afectadas") public long afectadas;
+        @Label("Error") public boolean error;
+    }
+
+    @Name("sici.CambioVista")
+    @Label("Cambio de vista")
+    @Category({CATEGORIA, "Interfaz"})
+    @Description("Cambio de vista del tablero: carga del FXML y espera de sus datos iniciales")
+    @StackTrace(false)
+    public static final class CambioVista extends Event {
+        @Label("Vista") public String vista;
+        @Label("Origen") @Description("cache, carga o precarga") public String origen;
+        @Label("Carga FXML") @Timespan(Timespan.MILLISECONDS) public long fxmlMs;
+        @Label("Carga de datos") @Timespan(Timespan.MILLISECONDS) public long datosMs;
+        @Label("Consultas") public int consultas;
+    }
+
+    @Name("sici.LlenadoReporte")
+    @Label("Llenado de reporte")
+    @Category({CATEGORIA, "Reportes"})
+    @StackTrace(false)
+    public static final class LlenadoReporte extends Event {
+        @Label("Inventario") public long idInventario;
+        @Label("Páginas") public int paginas;
+        @Label("Heap retenido") @Description("Heap usado al terminar menos el de antes; 0 en llenados en lote")
+        @DataAmount public long heapRetenido;
+        @Label("Error") public boolean error;
+    }
+
+    @Name("sici.TrabajoMasivo")
+    @Label("Trabajo masivo")
+    @Category({CATEGORIA, "Archivos"})
+    @Description("Generación de reportes por periodo, exportación a Excel o importación de bienes, de principio a fin")
+    @StackTrace(false)
+    public static final class TrabajoMasivo extends Event {
+        @Label("Trabajo") public String trabajo;
+        @Label("Archivo") @Description("Archivo o carpeta destino/origen") public String archivo;
+        @Label("Elementos") @Description("Reportes generados o filas escritas/leídas") public long elementos;
+        @Label("Fallidos") @Description("Reportes fallidos o filas rechazadas") public long fallidos;
+        @Label("Error") public boolean error;
+    }
+
+    @Name("sici.LoteEscaneo")
+    @Label("Lote de escaneos")
+    @Category({CATEGORIA, "Inventario"})
+    @Description("Un lote de la cola de escaneos resuelto contra la BD")
+    @StackTrace(false)
+    public static final class LoteDeEscaneos extends Event {
+        @Label("Escaneos") public int escaneos;
+        @Label("Agregados") public int agregados;
+        @Label("Repetidos") public int repetidos;
+        @Label("No existen") public int noExisten;
+        @Label("Error") public boolean error;
+    }
+}
@@ -0,0 +1,158 @@
+package org.example.sici1.controller;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongConsumer;
+
+/**
+ * Exportación a .xlsx en streaming: el ResultSet se recorre hacia adelante y cada fila se escribe a un
+ * libro SXSSF que solo conserva {@link #VENTANA_FILAS} filas en memoria (las anteriores ya están en el
+ * archivo temporal de POI), así que exportar medio millón de bienes usa memoria constante.
+ */
+public final class ExportadorExcel {
+
+    /** Filas que SXSSF mantiene en memoria antes de bajarlas al temporal. */
+    private static final int VENTANA_FILAS = 200;
+    private static final int TAMANO_FETCH = 1000;
+    /** Avance cada tantas filas (no por fila, para no inundar el hilo de JavaFX). */
+    private static final int AVISO_CADA = 5000;
+    /** Excel admite 1 048 576 filas por hoja; al llegar aquí se sigue en otra. */
+    private static final int MAX_FILAS_HOJA = 1_000_000;
+
+    private ExportadorExcel() {}
+
+    /**
+     * Ejecuta la consulta y la escribe a {@code destino} en segundo plano. {@code encabezados} reemplaza
+     * los nombres de columna (puede ser null); {@code alAvanzar} recibe las filas escritas, en el hilo de JavaFX.
+     * El futuro devuelve el total de filas exportadas.
+     */
+    public static CompletableFuture<Long> exportar(String sql, Object[] parametros, String hoja, String[] encabezados,
+                                                   Path destino, LongConsumer alAvanzar) {
+        return DbExecutor.consultar(cn -> {
+            try {
+                return escribir(cn, sql, parametros, hoja, encabezados, destino, alAvanzar);
+            } catch (IOException e) {
+                throw new SQLException("No se pudo escribir " + destino.getFileName() + ": " + e.getMessage(), e);
+            }
+        });
+    }
+
+    private static long escribir(Connection cn, String sql, Object[] parametros, String hoja, String[] encabezados,
+                                 Path destino, LongConsumer alAvanzar) throws SQLException, IOException {
+        EventosJfr.TrabajoMasivo evento = new EventosJfr.TrabajoMasivo();
+        evento.begin();
+        evento.trabajo = "ExportadorExcel";
+        evento.archivo = destino.toString();
+        evento.error = true; // hasta que el archivo quede con su nombre final
+        // Se escribe a un temporal junto al destino: un archivo a medias nunca queda con el nombre final
+        Path temporal = destino.resolveSibling(destino.getFileName() + ".tmp");
+        SXSSFWorkbook libro = new SXSSFWorkbook(VENTANA_FILAS);
+        libro.setCompressTempFiles(true);
+        long filas = 0;
+        try (PreparedStatement ps = cn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            if (parametros != null) {
+                for (int i = 0; i < parametros.length; i++) ps.setObject(i + 1, parametros[i]);
+            }
+            ps.setFetchSize(TAMANO_FETCH);
+            try (ResultSet rs = ps.executeQuery()) {
+                ResultSetMetaData md = rs.getMetaData();
+                int columnas = md.getColumnCount();
+                int[] tipos = new int[columnas];
+                for (int c = 0; c < columnas; c++) tipos[c] = md.getColumnType(c + 1);
+
+                CellStyle estiloEncabezado = libro.createCellStyle();
+                Font negrita = libro.createFont();
+                negrita.setBold(true);
+                estiloEncabezado.setFont(negrita);
+                CellStyle estiloFecha = libro.createCellStyle();
+                estiloFecha.setDataFormat(libro.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd hh:mm"));
+
+                Sheet sheet = null;
+                int filaHoja = 0;
+                int numeroHoja = 0;
+                while (rs.next()) {
+                    if (sheet == null || filaHoja > MAX_FILAS_HOJA) {
+                        numeroHoja++;
+                        sheet = libro.createSheet(numeroHoja == 1 ? hoja : hoja + " (" + numeroHoja + ")");
+                        escribirEncabezado(sheet, md, encabezados, estiloEncabezado);
+                        filaHoja = 1;
+                    }
+                    Row row = sheet.createRow(filaHoja++);
+                    for (int c = 0; c < columnas; c++) escribirCelda(row.createCell(c), rs, c + 1, tipos[c], estiloFecha);
+                    if (++filas % AVISO_CADA == 0) {
+                        long hechas = filas;
+                        DbExecutor.FX.execute(() -> alAvanzar.accept(hechas));
+                    }
+                }
+                if (sheet == null) {
+                    escribirEncabezado(libro.createSheet(hoja), md, encabezados, estiloEncabezado);
+                }
+            }
+            try (OutputStream out = Files.newOutputStream(temporal)) {
+                libro.write(out);
+            }
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            evento.error = false;
+        } finally {
+            libro.dispose(); // borra los temporales de SXSSF
+            libro.close();
+            Files.deleteIfExists(temporal);
+            evento.elementos = filas;
+            evento.commit();
+        }
+        return filas;
+    }
+
+    private static void escribirEncabezado(Sheet sheet, ResultSetMetaData md, String[] encabezados, CellStyle estilo)
+            throws SQLException {
+        Row row = sheet.createRow(0);
+        for (int c = 0; c < md.getColumnCount(); c++) {
+            String texto = encabezados != null && c < encabezados.length ? encabezados[c] : md.getColumnLabel(c + 1);
+            Cell cell = row.createCell(c);
+            cell.setCellValue(texto);
+            cell.setCellStyle(estilo);
+            // Ancho fijo: autoSizeColumn obligaría a SXSSF a rastrear todas las filas
+            sheet.setColumnWidth(c, Math.min(60, Math.max(12, texto.length() + 4)) * 256);
+        }
+        sheet.createFreezePane(0, 1);
+    }
+
+    private static void escribirCelda(Cell cell, ResultSet rs, int columna, int tipo, CellStyle estiloFecha)
+            throws SQLException {
+        switch (tipo) {
+            case Types.NUMERIC, Types.DECIMAL, Types.INTEGER, Types.BIGINT, Types.SMALLINT, Types.DOUBLE, Types.FLOAT -> {
+                double v = rs.getDouble(columna);
+                if (!rs.wasNull()) cell.setCellValue(v);
+            }
+            case Types.DATE, Types.TIMESTAMP, Types.TIMESTAMP_WITH_TIMEZONE -> {
+                Timestamp t = rs.getTimestamp(columna);
+                if (t != null) {
+                    cell.setCellValue(t.toLocalDateTime());
+                    cell.setCellStyle(estiloFecha);
+                }
+            }
+            default -> {
+                String s = rs.getString(columna);
+                if (s != null) cell.setCellValue(s);
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.example.sici1.controller;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Utilidades para parchar las listas de las tablas en sitio después de una escritura,
+ * en lugar de volver a leer toda la tabla.
+ */
+public final class Filas {
+
+    private Filas() {}
+
+    /** Inserta respetando el orden de la lista (el mismo ORDER BY de la consulta de carga); devuelve la posición. */
+    public static <T> int insertarOrdenado(List<T> lista, T fila, Comparator<? super T> orden) {
+        int lo = 0, hi = lista.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (orden.compare(lista.get(mid), fila) <= 0) lo = mid + 1;
+            else hi = mid;
+        }
+        lista.add(lo, fila);
+        return lo;
+    }
+
+    /** Vuelve a colocar en orden una fila que ya está en la lista y cuyo campo de orden cambió. */
+    public static <T> void reubicar(List<T> lista, T fila, Comparator<? super T> orden) {
+        int i = lista.indexOf(fila);
+        if (i < 0) return;
+        boolean enOrden = (i == 0 || orden.compare(lista.get(i - 1), fila) <= 0)
+                && (i == lista.size() - 1 || orden.compare(fila, lista.get(i + 1)) <= 0);
+        if (enOrden) return;
+        lista.remove(i);
+        insertarOrdenado(lista, fila, orden);
+    }
+
+    /** Primera fila que cumple la condición, o {@code null}. */
+    public static <T> T buscar(List<T> lista, Predicate<? super T> condicion) {
+        for (T fila : lista) {
+            if (condicion.test(fila)) return fila;
+        }
+        return null;
+    }
+
+    /**
+     * El orden de {@code ORDER BY}, {@code >} y {@code <} en las sesiones del pool ({@link Conexion} fija
+     * NLS_SORT y NLS_COMP en BINARY): con AL32UTF8 es por punto de código. {@link String#compareTo} compara
+     * unidades UTF-16 y difiere de él con caracteres fuera del plano básico.
+     */
+    public static final Comparator<String> BINARIO = (a, b) -> {
+        int i = 0, j = 0;
+        while (i < a.length() && j < b.length()) {
+            int ca = a.codePointAt(i), cb = b.codePointAt(j);
+            if (ca != cb) return Integer.compare(ca, cb);
+            i += Character.charCount(ca);
+            j += Character.charCount(cb);
+        }
+        return Boolean.compare(i < a.length(), j < b.length());
+    };
+
+    /**
+     * Orden de los catálogos: {@code ORDER BY UPPER(col), col} en binario. Las cargas además reordenan con
+     * este mismo comparador porque el UPPER de Oracle no coincide en todos los caracteres con el de Java.
+     */
+    public static <T> Comparator<T> porTexto(Function<T, String> campo) {
+        Comparator<String> orden = Comparator.comparing((String s) -> s.toUpperCase(Locale.ROOT), BINARIO)
+                .thenComparing(BINARIO);
+        return Comparator.comparing(campo, Comparator.nullsFirst(orden));
+    }
+}
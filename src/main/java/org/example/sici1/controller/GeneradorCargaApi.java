@@ -0,0 +1,181 @@
+package org.example.sici1.controller;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Generador de carga para {@link ServidorApi}: N clientes concurrentes envían asignaciones durante un
+ * tiempo fijo y al final se reporta el rendimiento (peticiones y asignaciones por segundo), la latencia
+ * p50/p90/p99/máx y el conteo por código HTTP.
+ * <pre>
+ *   java -cp SICI1.jar org.example.sici1.controller.GeneradorCargaApi \
+ *        --url http://127.0.0.1:8085 --clientes 32 --segundos 60 --lote 50 \
+ *        --empleado Victoria --espacio 22 --unidad 15 --codigos codigos.txt
+ * </pre>
+ * Con {@code --lote 1} usa el endpoint individual; con más, el de lote. {@code --codigos} es obligatorio:
+ * un archivo con códigos de bienes que existan en la BD (uno por línea), para medir la inserción y no solo
+ * el camino de NO_EXISTE. Los códigos se reparten en orden, así que la segunda pasada sobre el mismo
+ * archivo da REPETIDO. Solo cuentan como asignaciones las respuestas 201 y, en lote, los elementos AGREGADO.
+ */
+public final class GeneradorCargaApi {
+
+    private final HttpClient cliente = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    private final Histograma latencia = new Histograma();
+    private final Map<Integer, LongAdder> porEstado = new ConcurrentHashMap<>();
+    private final LongAdder asignaciones = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+    private final AtomicLong siguiente = new AtomicLong();
+
+    private String url = "http://127.0.0.1:8085";
+    private int clientes = 16;
+    private int segundos = 30;
+    private int lote = 1;
+    private String empleado = "Victoria";
+    private long espacio = 22;
+    private long unidad = 15;
+    private List<String> codigos;
+    private String token = System.getenv("SICI_API_TOKEN");
+
+    public static void main(String[] args) throws Exception {
+        GeneradorCargaApi g = new GeneradorCargaApi();
+        g.leerOpciones(args);
+        g.correr();
+    }
+
+    private void leerOpciones(String[] args) throws IOException {
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String v = args[i + 1];
+            switch (args[i]) {
+                case "--url" -> url = v.endsWith("/") ? v.substring(0, v.length() - 1) : v;
+                case "--clientes" -> clientes = Integer.parseInt(v);
+                case "--segundos" -> segundos = Integer.parseInt(v);
+                case "--lote" -> lote = Math.max(1, Integer.parseInt(v));
+                case "--empleado" -> empleado = v;
+                case "--espacio" -> espacio = Long.parseLong(v);
+                case "--unidad" -> unidad = Long.parseLong(v);
+                case "--token" -> token = v;
+                case "--codigos" -> codigos = Files.readAllLines(Path.of(v), StandardCharsets.UTF_8).stream()
+                        .map(String::trim).filter(s -> !s.isEmpty()).toList();
+                default -> throw new IllegalArgumentException("Opción desconocida: " + args[i]);
+            }
+        }
+        if (codigos == null || codigos.isEmpty()) {
+            throw new IllegalArgumentException("Falta --codigos: archivo con códigos de bienes existentes, uno por línea");
+        }
+    }
+
+    private void correr() throws InterruptedException {
+        URI destino = URI.create(url + (lote == 1 ? "/api/asignaciones" : "/api/asignaciones/lote"));
+        System.out.printf(Locale.ROOT, "Carga: %d clientes, %d s, lote %d contra %s%n", clientes, segundos, lote, destino);
+        long inicio = System.nanoTime();
+        long fin = inicio + Duration.ofSeconds(segundos).toNanos();
+        try (ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clientes; c++) {
+                hilos.submit(() -> {
+                    while (System.nanoTime() < fin && !Thread.currentThread().isInterrupted()) {
+                        enviar(destino);
+                    }
+                    return null;
+                });
+            }
+        }
+        reportar(System.nanoTime() - inicio);
+    }
+
+    private void enviar(URI destino) {
+        String cuerpo;
+        if (lote == 1) {
+            cuerpo = JsonPlano.escribir(solicitud());
+        } else {
+            StringBuilder sb = new StringBuilder(lote * 140).append('[');
+            for (int i = 0; i < lote; i++) {
+                if (i > 0) sb.append(',');
+                sb.append(JsonPlano.escribir(solicitud()));
+            }
+            cuerpo = sb.append(']').toString();
+        }
+        HttpRequest.Builder peticion = HttpRequest.newBuilder(destino)
+                .timeout(Duration.ofSeconds(60))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(cuerpo, StandardCharsets.UTF_8));
+        if (token != null && !token.isBlank()) peticion.header("Authorization", "Bearer " + token);
+
+        long t0 = System.nanoTime();
+        try {
+            HttpResponse<String> r = cliente.send(peticion.build(), HttpResponse.BodyHandlers.ofString());
+            latencia.registrar((System.nanoTime() - t0) / 1_000);
+            porEstado.computeIfAbsent(r.statusCode(), k -> new LongAdder()).increment();
+            if (r.statusCode() == 201) {
+                asignaciones.increment();
+            } else if (r.statusCode() == 200 && lote > 1) {
+                asignaciones.add(agregados(r.body()));
+            }
+        } catch (IOException e) {
+            latencia.registrar((System.nanoTime() - t0) / 1_000);
+            fallos.increment();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Elementos AGREGADO de la respuesta del endpoint de lote. */
+    private static int agregados(String cuerpo) {
+        int n = 0;
+        try {
+            for (Map<String, Object> r : JsonPlano.arreglo(cuerpo)) {
+                if ("AGREGADO".equals(r.get("resultado"))) n++;
+            }
+        } catch (IllegalArgumentException e) {
+            // respuesta ilegible: no se cuenta nada
+        }
+        return n;
+    }
+
+    private Map<String, Object> solicitud() {
+        long n = siguiente.getAndIncrement();
+        Map<String, Object> o = new LinkedHashMap<>();
+        o.put("empleado_nombre", empleado);
+        o.put("espacio_id", espacio);
+        o.put("unidad_id", unidad);
+        o.put("fecha", LocalDate.now().toString());
+        o.put("bien_codigo_inventario", codigos.get((int) (n % codigos.size())));
+        return o;
+    }
+
+    private void reportar(long duracionNs) {
+        double seg = duracionNs / 1e9;
+        long peticiones = latencia.conteo();
+        System.out.printf(Locale.ROOT, "Peticiones: %d en %.1f s → %.1f pet/s, %.1f asignaciones/s%n",
+                peticiones, seg, peticiones / seg, asignaciones.sum() / seg);
+        System.out.printf(Locale.ROOT, "Latencia ms: p50 %.2f  p90 %.2f  p99 %.2f  máx %.2f%n",
+                latencia.percentil(0.50) / 1000.0, latencia.percentil(0.90) / 1000.0,
+                latencia.percentil(0.99) / 1000.0, latencia.maximoMicros() / 1000.0);
+        List<Integer> estados = new ArrayList<>(porEstado.keySet());
+        estados.sort(null);
+        StringBuilder sb = new StringBuilder("Códigos HTTP:");
+        for (Integer e : estados) sb.append(' ').append(e).append('=').append(porEstado.get(e).sum());
+        if (fallos.sum() > 0) sb.append("  fallos de red=").append(fallos.sum());
+        System.out.println(sb);
+    }
+}
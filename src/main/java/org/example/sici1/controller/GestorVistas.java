@@ -0,0 +1,192 @@
+package org.example.sici1.controller;
+
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.layout.StackPane;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Caché de las vistas del menú: cada FXML se carga una vez (con su controlador y su carga inicial de BD)
+ * y al navegar solo se intercambia el nodo del contenedor, avisando al controlador con
+ * {@link VistaActivable#alActivar()} / {@link VistaActivable#alDesactivar()}.
+ * Solo se guardan las vistas cuyo controlador implementa {@link VistaActivable} (sabe ponerse al día al volver);
+ * las demás se recargan en cada clic, como antes.
+ * La caché se acota por la memoria estimada de las vistas y por la presión real del heap; se descarta
+ * primero la vista usada hace más tiempo (nunca la visible). Todo el acceso es desde el hilo de JavaFX,
+ * incluida la precarga: los {@code initialize()} de los controladores siempre corren en ese hilo.
+ */
+public class GestorVistas {
+
+    /** Por encima de esta fracción del heap máximo se sueltan vistas ocultas aunque quepan en el presupuesto. */
+    private static final double LIMITE_HEAP = 0.80;
+
+    private record Entrada(String nombre, Parent vista, Object controlador, long fxmlMs, List<CompletableFuture<?>> consultas) {
+        VistaActivable ciclo() { return controlador instanceof VistaActivable v ? v : null; }
+
+        long memoria() { return ciclo() != null ? ciclo().memoriaEstimada() : VistaActivable.BYTES_BASE; }
+    }
+
+    private final StackPane contenedor;
+    private final String ruta;
+    private final long presupuestoBytes;
+    // Orden de acceso: el primero es el usado hace más tiempo
+    private final LinkedHashMap<String, Entrada> cache = new LinkedHashMap<>(16, 0.75f, true);
+    // Vistas por precargar, una por vuelta del hilo de JavaFX para no congelar la interfaz
+    private final Deque<String> precargas = new ArrayDeque<>();
+    private Entrada activa;
+    private boolean cerrado;
+
+    public GestorVistas(StackPane contenedor, String ruta, long presupuestoBytes) {
+        this.contenedor = contenedor;
+        this.ruta = ruta;
+        this.presupuestoBytes = presupuestoBytes;
+    }
+
+    /** Muestra la vista, desde la caché si ya se cargó. */
+    public void mostrar(String nombre) throws IOException {
+        if (activa != null && activa.nombre().equals(nombre)) return;
+        long inicio = System.nanoTime();
+        EventosJfr.CambioVista evento = new EventosJfr.CambioVista();
+        evento.begin();
+
+        Entrada e = cache.get(nombre);
+        boolean desdeCache = e != null;
+        if (e == null) {
+            precargas.remove(nombre); // se carga ahora; la precarga pendiente sobra
+            e = cargar(nombre);
+            if (e.ciclo() != null) cache.put(nombre, e);
+        }
+
+        desactivarActual();
+        contenedor.getChildren().setAll(e.vista());
+        activa = e;
+        if (desdeCache && e.ciclo() != null) e.ciclo().alActivar();
+        ajustar();
+        emitirCambio(evento, e, desdeCache ? "cache" : "carga", inicio);
+    }
+
+    /** Muestra un nodo fuera de la caché (bienvenida, mensajes); la vista activa pasa a segundo plano. */
+    public void mostrarNodo(Node nodo) {
+        desactivarActual();
+        contenedor.getChildren().setAll(nodo);
+    }
+
+    /**
+     * Deja cargadas (y desactivadas) en caché las vistas que probablemente se abran después.
+     * Cada FXML se carga en su propia vuelta del hilo de JavaFX; sus datos llegan en segundo plano como
+     * en una carga normal. Se ignoran las que ya estén cargadas o en cola.
+     */
+    public void precargar(List<String> nombres) {
+        boolean enCurso = !precargas.isEmpty();
+        for (String nombre : nombres) {
+            if (!cache.containsKey(nombre) && !precargas.contains(nombre)) precargas.add(nombre);
+        }
+        if (!enCurso && !precargas.isEmpty()) DbExecutor.FX.execute(this::precargarSiguiente);
+    }
+
+    private void precargarSiguiente() {
+        String nombre = precargas.poll();
+        if (nombre == null || cerrado) return;
+        if (!cache.containsKey(nombre)) {
+            EventosJfr.CambioVista evento = new EventosJfr.CambioVista();
+            evento.begin();
+            long inicio = System.nanoTime();
+            try {
+                Entrada e = cargar(nombre);
+                emitirCambio(evento, e, "precarga", inicio);
+                if (e.ciclo() != null) {
+                    e.ciclo().alDesactivar();
+                    cache.put(nombre, e);
+                    ajustar();
+                }
+            } catch (IOException | RuntimeException ex) {
+                ex.printStackTrace(); // se cargará al pedirla
+            }
+        }
+        if (!precargas.isEmpty()) DbExecutor.FX.execute(this::precargarSiguiente);
+    }
+
+    /** Suelta todas las vistas (cierre de sesión): cancela suscripciones y libera datos. */
+    public void descartarTodo() {
+        for (Entrada e : cache.values()) {
+            if (e.ciclo() != null) e.ciclo().alDescartar();
+        }
+        cache.clear();
+        precargas.clear();
+        activa = null;
+        cerrado = true;
+    }
+
+    private Entrada cargar(String nombre) throws IOException {
+        URL url = getClass().getResource(ruta + nombre + ".fxml");
+        if (url == null) throw new IOException("No existe la vista " + nombre);
+        FXMLLoader loader = new FXMLLoader(url);
+        // Las consultas que lance initialize() son la carga de datos de la vista (para el evento JFR)
+        List<CompletableFuture<?>> consultas = new ArrayList<>();
+        long inicio = System.nanoTime();
+        Parent vista;
+        try {
+            vista = DbExecutor.recolectando(consultas, loader::load);
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+        return new Entrada(nombre, vista, loader.getController(), (System.nanoTime() - inicio) / 1_000_000, consultas);
+    }
+
+
+    private void desactivarActual() {
+        if (activa != null && activa.ciclo() != null) activa.ciclo().alDesactivar();
+        activa = null;
+    }
+
+    private void ajustar() {
+        long total = 0;
+        for (Entrada e : cache.values()) total += e.memoria();
+        // El heap usado incluye basura aún no recolectada: con presión se suelta solo una vista por ajuste
+        Runtime rt = Runtime.getRuntime();
+        boolean presion = rt.totalMemory() - rt.freeMemory() > rt.maxMemory() * LIMITE_HEAP;
+        Iterator<Entrada> it = cache.values().iterator();
+        while (it.hasNext() && (total > presupuestoBytes || presion)) {
+            Entrada e = it.next();
+            if (e == activa) continue;
+            it.remove();
+            total -= e.memoria();
+            if (e.ciclo() != null) e.ciclo().alDescartar();
+            presion = false;
+        }
+    }
+
+    /**
+     * Emite {@link EventosJfr.CambioVista} cuando terminan las consultas iniciales de la vista (al instante si
+     * viene de caché). El evento abarca desde que se pidió la vista hasta tener sus datos.
+     */
+    private static void emitirCambio(EventosJfr.CambioVista evento, Entrada e, String origen, long inicioNs) {
+        // La lista se vacía siempre: la entrada vive en caché y no debe retener los resultados
+        CompletableFuture<?>[] consultas = e.consultas().toArray(new CompletableFuture[0]);
+        e.consultas().clear();
+        if (!evento.isEnabled()) return;
+        CompletableFuture.allOf(consultas).whenCompleteAsync((v, ex) -> {
+            evento.end();
+            if (!evento.shouldCommit()) return;
+            evento.vista = e.nombre();
+            evento.origen = origen;
+            evento.fxmlMs = origen.equals("cache") ? 0 : e.fxmlMs();
+            evento.datosMs = consultas.length == 0 ? 0
+                    : Math.max(0, (System.nanoTime() - inicioNs) / 1_000_000 - evento.fxmlMs);
+            evento.consultas = consultas.length;
+            evento.commit();
+        }, DbExecutor.FX);
+    }
+}
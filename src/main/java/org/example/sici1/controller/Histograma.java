@@ -0,0 +1,77 @@
+package org.example.sici1.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de latencias al estilo HDR: cubetas log-lineales en microsegundos, con error relativo
+ * menor al 7 % en todo el rango (de 1 µs a días) y memoria fija (~8 KB). Registrar es una suma atómica
+ * sin bloqueos, así que lo usan a la vez todos los hilos que hablan con la BD.
+ */
+public final class Histograma {
+
+    /** Bits de precisión: 2^5 subcubetas por potencia de 2. */
+    private static final int SUBCUBETAS = 32;
+    private static final int MITAD = SUBCUBETAS / 2;
+    private static final int CUBETAS = (Long.SIZE - 5 + 1) * MITAD + MITAD;
+
+    private final AtomicLongArray conteos = new AtomicLongArray(CUBETAS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong suma = new AtomicLong();
+    private final AtomicLong maximo = new AtomicLong();
+
+    public record Cubeta(long hastaMicros, long conteo) {}
+
+    public void registrar(long micros) {
+        long v = Math.max(0, micros);
+        conteos.incrementAndGet(indice(v));
+        total.incrementAndGet();
+        suma.addAndGet(v);
+        maximo.accumulateAndGet(v, Math::max);
+    }
+
+    public long conteo() { return total.get(); }
+
+    public long sumaMicros() { return suma.get(); }
+
+    public long maximoMicros() { return maximo.get(); }
+
+    /** Valor (límite superior de su cubeta) bajo el cual cae la fracción {@code p} (0..1) de las muestras. */
+    public long percentil(double p) {
+        long n = total.get();
+        if (n == 0) return 0;
+        long objetivo = Math.max(1, (long) Math.ceil(p * n));
+        long acumulado = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            acumulado += conteos.get(i);
+            if (acumulado >= objetivo) return Math.min(limiteSuperior(i), maximo.get());
+        }
+        return maximo.get();
+    }
+
+    /** Cubetas con muestras, en orden (para volcarlas a archivo). */
+    public List<Cubeta> cubetas() {
+        List<Cubeta> lista = new ArrayList<>();
+        for (int i = 0; i < CUBETAS; i++) {
+            long c = conteos.get(i);
+            if (c > 0) lista.add(new Cubeta(limiteSuperior(i), c));
+        }
+        return lista;
+    }
+
+    private static int indice(long v) {
+        if (v < SUBCUBETAS) return (int) v;
+        int desplazamiento = 63 - Long.numberOfLeadingZeros(v) - 4;
+        return desplazamiento * MITAD + (int) (v >>> desplazamiento);
+    }
+
+    private static long limiteSuperior(int indice) {
+        if (indice < SUBCUBETAS) return indice;
+        int desplazamiento = indice / MITAD - 1;
+        long mantisa = indice % MITAD + MITAD;
+        if (desplazamiento >= 58) return Long.MAX_VALUE;
+        return ((mantisa + 1) << desplazamiento) - 1;
+    }
+}
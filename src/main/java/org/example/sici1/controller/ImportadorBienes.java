@@ -0,0 +1,440 @@
+package org.example.sici1.controller;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
+
+/**
+ * Importación masiva de bienes desde .xlsx (lector SAX de POI, sin cargar el libro) o .csv.
+ * Tres etapas: un lector arma trozos de {@link #TAMANO_TROZO} filas crudas; un pool las separa y valida en
+ * paralelo; y un solo escritor, en orden de archivo, descarta duplicados e inserta cada trozo en un lote
+ * JDBC con su propia transacción. La cola entre lector y escritor está acotada, así que un archivo enorme
+ * no se acumula en memoria si la BD va más lenta que la lectura.
+ * Lo rechazado (con fila y motivo) se escribe a {@code <archivo>_rechazados.csv} junto al original.
+ */
+public final class ImportadorBienes {
+
+    private static final int TAMANO_TROZO = 1000;
+    private static final int MAX_VALIDADORES = 4;
+
+    private ImportadorBienes() {}
+
+    public record Rechazo(long fila, String motivo, String[] valores) {}
+
+    public record Resumen(long leidas, long insertadas, long rechazadas, long milisegundos, Path archivoRechazos) {
+        public long filasPorSegundo() {
+            return milisegundos == 0 ? leidas : leidas * 1000 / milisegundos;
+        }
+    }
+
+    /** Fila tal como viene del archivo: la línea CSV sin separar, o las celdas ya leídas del .xlsx. */
+    private record Cruda(long numero, String linea, String[] celdas) {}
+
+    private record Valida(long numero, String codigo, String descripcion, String marca, String modelo, String serie,
+                          String estado, String[] valores) {}
+
+    private record Trozo(List<Valida> validas, List<Rechazo> rechazos, int leidas) {}
+
+    private static final Trozo FIN = new Trozo(List.of(), List.of(), 0);
+
+    /** Posición de cada campo en el archivo (-1 si no viene); se resuelve con la fila de encabezados. */
+    private record Columnas(int codigo, int descripcion, int marca, int modelo, int serie, int estado) {
+        static Columnas desde(String[] encabezados) throws IOException {
+            int codigo = -1, descripcion = -1, marca = -1, modelo = -1, serie = -1, estado = -1;
+            for (int i = 0; i < encabezados.length; i++) {
+                String h = encabezados[i] == null ? "" : IndiceTrigramas.normalizar(encabezados[i]).replaceAll("[^a-z0-9]", "");
+                switch (h) {
+                    case "codigo", "codigoinventario", "codigobien", "clave" -> codigo = i;
+                    case "descripcion", "descripcionbien" -> descripcion = i;
+                    case "marca" -> marca = i;
+                    case "modelo" -> modelo = i;
+                    case "serie", "numeroserie", "nserie", "noserie", "numserie" -> serie = i;
+                    case "estado" -> estado = i;
+                    default -> { }
+                }
+            }
+            if (codigo < 0 || descripcion < 0) {
+                throw new IOException("El archivo debe tener columnas Código y Descripción en la primera fila");
+            }
+            return new Columnas(codigo, descripcion, marca, modelo, serie, estado);
+        }
+    }
+
+    /**
+     * Importa en segundo plano. {@code alAvanzar} recibe las filas procesadas, en el hilo de JavaFX.
+     * Un error de BD detiene la importación; los trozos ya confirmados quedan guardados.
+     */
+    public static CompletableFuture<Resumen> importar(Path origen, LongConsumer alAvanzar) {
+        return DbExecutor.supply(() -> ejecutar(origen, alAvanzar));
+    }
+
+    private static Resumen ejecutar(Path origen, LongConsumer alAvanzar) throws Exception {
+        EventosJfr.TrabajoMasivo evento = new EventosJfr.TrabajoMasivo();
+        evento.begin();
+        evento.trabajo = "ImportadorBienes";
+        evento.archivo = origen.toString();
+        evento.error = true; // hasta leer el archivo completo
+        long inicio = System.nanoTime();
+        int validadores = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() - 1, MAX_VALIDADORES));
+        AtomicInteger numero = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(validadores, r -> {
+            Thread t = new Thread(r, "sici-importar-" + numero.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        // Futuros en orden de archivo: el escritor los toma en el mismo orden aunque se validen en paralelo
+        BlockingQueue<CompletableFuture<Trozo>> cola = new ArrayBlockingQueue<>(validadores * 2);
+        Lector lector = new Lector(origen, pool, cola);
+        DbExecutor.execute(lector);
+
+        Path archivoRechazos = origen.resolveSibling(sinExtension(origen.getFileName().toString()) + "_rechazados.csv");
+        Files.deleteIfExists(archivoRechazos);
+        long leidas = 0, insertadas = 0, rechazadas = 0;
+        BufferedWriter rechazos = null;
+        Set<String> vistos = new HashSet<>();
+        try (Connection cn = Conexion.conectar()) {
+            while (true) {
+                Trozo trozo = cola.take().join();
+                if (trozo == FIN) break;
+
+                // Duplicados dentro del archivo: gana la primera aparición
+                List<Valida> nuevas = new ArrayList<>(trozo.validas().size());
+                List<Rechazo> rechazadasTrozo = new ArrayList<>(trozo.rechazos());
+                for (Valida v : trozo.validas()) {
+                    if (vistos.add(v.codigo().toUpperCase())) nuevas.add(v);
+                    else rechazadasTrozo.add(new Rechazo(v.numero(), "Código repetido en el archivo", v.valores()));
+                }
+
+                int[] conteos = insertar(cn, nuevas, insertadas);
+                for (int i = 0; i < nuevas.size(); i++) {
+                    if (conteos[i] == 0) {
+                        Valida v = nuevas.get(i);
+                        rechazadasTrozo.add(new Rechazo(v.numero(), "El código ya existe en la base de datos", v.valores()));
+                    } else {
+                        insertadas++;
+                    }
+                }
+
+                if (!rechazadasTrozo.isEmpty()) {
+                    if (rechazos == null) rechazos = abrirRechazos(archivoRechazos);
+                    rechazadasTrozo.sort((a, b) -> Long.compare(a.fila(), b.fila()));
+                    for (Rechazo r : rechazadasTrozo) escribirRechazo(rechazos, r);
+                    rechazadas += rechazadasTrozo.size();
+                }
+                leidas += trozo.leidas();
+                long hechas = leidas;
+                DbExecutor.FX.execute(() -> alAvanzar.accept(hechas));
+            }
+            evento.error = false;
+        } catch (CompletionException e) {
+            if (DbExecutor.causa(e) instanceof Exception causa) throw causa;
+            throw e;
+        } finally {
+            lector.detener();
+            pool.shutdownNow();
+            if (rechazos != null) rechazos.close();
+            evento.elementos = insertadas;
+            evento.fallidos = rechazadas;
+            evento.commit();
+        }
+
+        long ms = (System.nanoTime() - inicio) / 1_000_000;
+        return new Resumen(leidas, insertadas, rechazadas, ms, rechazadas > 0 ? archivoRechazos : null);
+    }
+
+    // --- Escritura ---
+    /** Un lote por trozo, en su propia transacción; el conteo 0 indica que el código ya existía. */
+    private static int[] insertar(Connection cn, List<Valida> filas, long yaGuardadas) throws SQLException {
+        if (filas.isEmpty()) return new int[0];
+        String colCodigo = BienesView.columnaCodigo();
+        String sql = "INSERT INTO bienes (" + BienesView.columnasLista() + ", actualizado_en) " +
+                "SELECT ?, ?, ?, ?, ?, ?, SYSTIMESTAMP FROM dual " +
+                "WHERE NOT EXISTS (SELECT 1 FROM bienes WHERE " + colCodigo + " = ?)";
+        boolean autoCommit = cn.getAutoCommit();
+        cn.setAutoCommit(false);
+        try {
+            // Otro operador pudo dar de alta el mismo código entre el NOT EXISTS y el commit: un reintento lo resuelve
+            for (int intento = 1; ; intento++) {
+                try (PreparedStatement ps = cn.prepareStatement(sql)) {
+                    for (Valida v : filas) {
+                        ps.setString(1, v.codigo());
+                        ps.setString(2, v.descripcion());
+                        ps.setString(3, v.marca());
+                        ps.setString(4, v.modelo());
+                        ps.setString(5, v.serie());
+                        ps.setString(6, v.estado());
+                        ps.setString(7, v.codigo());
+                        ps.addBatch();
+                    }
+                    int[] conteos = ps.executeBatch();
+                    cn.commit();
+                    return conteos;
+                } catch (BatchUpdateException ex) {
+                    cn.rollback();
+                    if (intento >= 2 || !LoteEscaneo.esViolacionUnica(ex)) throw ex;
+                }
+            }
+        } catch (SQLException ex) {
+            cn.rollback();
+            throw new SQLException("Importación detenida en la fila " + filas.get(0).numero() + " (" + yaGuardadas
+                    + " bienes ya guardados): " + ex.getMessage(), ex.getSQLState(), ex.getErrorCode(), ex);
+        } finally {
+            cn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static BufferedWriter abrirRechazos(Path archivo) throws IOException {
+        BufferedWriter w = Files.newBufferedWriter(archivo, StandardCharsets.UTF_8);
+        w.write("fila,motivo,valores");
+        w.newLine();
+        return w;
+    }
+
+    private static void escribirRechazo(BufferedWriter w, Rechazo r) throws IOException {
+        StringBuilder sb = new StringBuilder().append(r.fila()).append(',').append(csv(r.motivo()));
+        for (String v : r.valores()) sb.append(',').append(csv(v));
+        w.write(sb.toString());
+        w.newLine();
+    }
+
+    private static String csv(String v) {
+        if (v == null) return "";
+        if (v.indexOf(',') < 0 && v.indexOf('"') < 0 && v.indexOf('\n') < 0 && v.indexOf(';') < 0) return v;
+        return '"' + v.replace("\"", "\"\"") + '"';
+    }
+
+    // --- Validación (en paralelo, por trozo) ---
+    private static Trozo validar(List<Cruda> crudas, Columnas cols, char separador) {
+        List<Valida> validas = new ArrayList<>(crudas.size());
+        List<Rechazo> rechazos = new ArrayList<>();
+        for (Cruda c : crudas) {
+            String[] v = c.celdas() != null ? c.celdas() : separarCsv(c.linea(), separador);
+            if (Arrays.stream(v).allMatch(s -> s == null || s.isBlank())) continue; // fila vacía
+            String codigo = campo(v, cols.codigo());
+            String descripcion = campo(v, cols.descripcion());
+            String estado = campo(v, cols.estado());
+            if (codigo == null) {
+                rechazos.add(new Rechazo(c.numero(), "Falta el código", v));
+            } else if (codigo.chars().anyMatch(Character::isWhitespace)) {
+                rechazos.add(new Rechazo(c.numero(), "El código no puede llevar espacios", v));
+            } else if (descripcion == null) {
+                rechazos.add(new Rechazo(c.numero(), "Falta la descripción", v));
+            } else if (!BienesView.esEstadoValido(estado)) {
+                rechazos.add(new Rechazo(c.numero(), "Estado no reconocido: " + estado, v));
+            } else {
+                validas.add(new Valida(c.numero(), codigo, descripcion, campo(v, cols.marca()), campo(v, cols.modelo()),
+                        campo(v, cols.serie()), BienesView.mapEstadoUiToDb(estado), v));
+            }
+        }
+        return new Trozo(validas, rechazos, crudas.size());
+    }
+
+    private static String campo(String[] valores, int i) {
+        if (i < 0 || i >= valores.length || valores[i] == null) return null;
+        String s = valores[i].trim();
+        return s.isEmpty() ? null : s;
+    }
+
+    /** RFC 4180: comillas dobles para campos con separador, salto de línea o comillas ("" = comilla). */
+    static String[] separarCsv(String linea, char separador) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        boolean enComillas = false;
+        for (int i = 0; i < linea.length(); i++) {
+            char ch = linea.charAt(i);
+            if (enComillas) {
+                if (ch == '"') {
+                    if (i + 1 < linea.length() && linea.charAt(i + 1) == '"') { actual.append('"'); i++; }
+                    else enComillas = false;
+                } else {
+                    actual.append(ch);
+                }
+            } else if (ch == '"') {
+                enComillas = true;
+            } else if (ch == separador) {
+                campos.add(actual.toString());
+                actual.setLength(0);
+            } else {
+                actual.append(ch);
+            }
+        }
+        campos.add(actual.toString());
+        return campos.toArray(new String[0]);
+    }
+
+    private static String sinExtension(String nombre) {
+        int punto = nombre.lastIndexOf('.');
+        return punto > 0 ? nombre.substring(0, punto) : nombre;
+    }
+
+    // --- Lectura ---
+    /** Lee el archivo en orden y entrega cada trozo al pool de validación; se bloquea si el escritor va atrás. */
+    private static final class Lector implements Runnable {
+        private final Path origen;
+        private final ExecutorService pool;
+        private final BlockingQueue<CompletableFuture<Trozo>> cola;
+        private volatile boolean detenido;
+        private Columnas columnas;
+        private char separador = ',';
+        private List<Cruda> actual = new ArrayList<>(TAMANO_TROZO);
+
+        Lector(Path origen, ExecutorService pool, BlockingQueue<CompletableFuture<Trozo>> cola) {
+            this.origen = origen;
+            this.pool = pool;
+            this.cola = cola;
+        }
+
+        void detener() { detenido = true; }
+
+        @Override
+        public void run() {
+            try {
+                String nombre = origen.getFileName().toString().toLowerCase();
+                if (nombre.endsWith(".xlsx")) leerXlsx();
+                else leerCsv();
+                if (!actual.isEmpty()) despachar();
+                entregar(CompletableFuture.completedFuture(FIN));
+            } catch (Exception e) {
+                if (!detenido) entregar(CompletableFuture.failedFuture(DbExecutor.causa(e)));
+            }
+        }
+
+        private void agregar(Cruda c) {
+            actual.add(c);
+            if (actual.size() == TAMANO_TROZO) despachar();
+        }
+
+        private void despachar() {
+            List<Cruda> trozo = actual;
+            actual = new ArrayList<>(TAMANO_TROZO);
+            Columnas cols = columnas;
+            char sep = separador;
+            entregar(CompletableFuture.supplyAsync(() -> validar(trozo, cols, sep), pool));
+        }
+
+        private void entregar(CompletableFuture<Trozo> f) {
+            try {
+                while (!detenido && !cola.offer(f, 200, TimeUnit.MILLISECONDS)) { /* espera al escritor */ }
+                if (detenido) throw new CompletionException(new IOException("Importación cancelada"));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+        }
+
+        private void leerCsv() throws IOException {
+            try (BufferedReader in = Files.newBufferedReader(origen, StandardCharsets.UTF_8)) {
+                String encabezado = in.readLine();
+                if (encabezado == null) throw new IOException("El archivo está vacío");
+                if (encabezado.startsWith("\uFEFF")) encabezado = encabezado.substring(1); // BOM de Excel
+                // Excel en español guarda CSV con ';'
+                separador = encabezado.chars().filter(c -> c == ';').count() > encabezado.chars().filter(c -> c == ',').count()
+                        ? ';' : ',';
+                columnas = Columnas.desde(separarCsv(encabezado, separador));
+
+                long fila = 1;
+                String linea;
+                while (!detenido && (linea = in.readLine()) != null) {
+                    fila++;
+                    long inicio = fila;
+                    // Un campo entre comillas puede traer saltos de línea: se junta hasta cerrar las comillas
+                    while (comillasAbiertas(linea)) {
+                        String sig = in.readLine();
+                        if (sig == null) break;
+                        linea = linea + "\n" + sig;
+                        fila++;
+                    }
+                    agregar(new Cruda(inicio, linea, null));
+                }
+            }
+        }
+
+        private static boolean comillasAbiertas(String linea) {
+            int n = 0;
+            for (int i = 0; i < linea.length(); i++) if (linea.charAt(i) == '"') n++;
+            return n % 2 != 0;
+        }
+
+        /** Primera hoja del libro, en streaming: POI entrega celda por celda sin construir el modelo en memoria. */
+        private void leerXlsx() throws Exception {
+            try (OPCPackage paquete = OPCPackage.open(origen.toFile(), PackageAccess.READ)) {
+                XSSFReader lectorXssf = new XSSFReader(paquete);
+                ReadOnlySharedStringsTable textos = new ReadOnlySharedStringsTable(paquete);
+                XSSFReader.SheetIterator hojas = (XSSFReader.SheetIterator) lectorXssf.getSheetsData();
+                if (!hojas.hasNext()) throw new IOException("El libro no tiene hojas");
+                try (InputStream hoja = hojas.next()) {
+                    XMLReader parser = XMLHelper.newXMLReader();
+                    parser.setContentHandler(new XSSFSheetXMLHandler(lectorXssf.getStylesTable(), textos,
+                            new Celdas(), new DataFormatter(), false));
+                    parser.parse(new InputSource(hoja));
+                }
+            }
+            if (columnas == null) throw new IOException("El archivo está vacío");
+        }
+
+        private final class Celdas implements XSSFSheetXMLHandler.SheetContentsHandler {
+            private final List<String> fila = new ArrayList<>();
+            private int siguienteColumna;
+
+            @Override public void startRow(int numero) {
+                fila.clear();
+                siguienteColumna = 0;
+            }
+
+            @Override public void cell(String referencia, String valor, XSSFComment comentario) {
+                int col = referencia != null ? new CellReference(referencia).getCol() : siguienteColumna;
+                while (fila.size() < col) fila.add(null); // celdas vacías intermedias no se reportan
+                fila.add(valor);
+                siguienteColumna = col + 1;
+            }
+
+            @Override public void endRow(int numero) {
+                if (detenido) throw new CompletionException(new IOException("Importación cancelada"));
+                String[] celdas = fila.toArray(new String[0]);
+                if (columnas == null) {
+                    try {
+                        columnas = Columnas.desde(celdas);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                } else {
+                    agregar(new Cruda(numero + 1L, null, celdas));
+                }
+            }
+        }
+    }
+}
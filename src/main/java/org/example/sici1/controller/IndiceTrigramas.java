@@ -0,0 +1,232 @@
+package org.example.sici1.controller;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Índice de trigramas en memoria para búsqueda por subcadena sobre varios campos de texto.
+ * Cada fila se normaliza una sola vez (minúsculas, sin acentos) al entrar al índice y solo se guardan su
+ * clave y ese texto, no la fila: una consulta intersecta las listas de sus trigramas, verifica solo los
+ * candidatos y devuelve claves; quien muestra el resultado carga las filas que necesite.
+ * Se actualiza fila por fila (agregar/quitar) y admite lecturas concurrentes desde hilos de fondo.
+ */
+public class IndiceTrigramas<T> {
+
+    /** Separa campos para que ningún trigrama ni coincidencia cruce de un campo al siguiente. */
+    private static final char SEPARADOR = '\u0001';
+
+    private final Function<T, String> clave;
+    private final Function<T, String[]> campos;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Documentos por id interno; los ids crecen, así las listas de postings quedan ordenadas al agregar
+    private final List<Documento> documentos = new ArrayList<>();
+    private final Map<String, Integer> idPorClave = new HashMap<>();
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private int muertos;
+
+    private record Documento(String clave, String texto) {}
+
+    public IndiceTrigramas(Function<T, String> clave, Function<T, String[]> campos) {
+        this.clave = clave;
+        this.campos = campos;
+    }
+
+    /** Agrega la fila o reemplaza la que tenga la misma clave. */
+    public void agregar(T fila) {
+        lock.writeLock().lock();
+        try {
+            agregarSinLock(fila);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Carga masiva. Las claves ya presentes se conservan: si la carga es una lectura de fondo,
+     * lo agregado mientras tanto (escrituras, sincronización) es más reciente que la instantánea.
+     */
+    public void agregarTodos(List<T> filas) {
+        lock.writeLock().lock();
+        try {
+            for (T f : filas) {
+                if (!idPorClave.containsKey(clave.apply(f))) agregarSinLock(f);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void quitar(String claveQuitada) {
+        lock.writeLock().lock();
+        try {
+            quitarSinLock(claveQuitada);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void limpiar() {
+        lock.writeLock().lock();
+        try {
+            documentos.clear();
+            idPorClave.clear();
+            postings.clear();
+            muertos = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int tamano() {
+        lock.readLock().lock();
+        try {
+            return idPorClave.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Claves de las filas cuyo algún campo contiene {@code consulta} (sin distinguir mayúsculas ni acentos),
+     * en orden binario de la clave ({@link Filas#BINARIO}, el mismo que un {@code ORDER BY} sobre ella).
+     */
+    public List<String> buscar(String consulta) {
+        String q = normalizar(consulta);
+        List<String> resultado = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (q.isEmpty()) {
+                for (Documento d : documentos) if (d != null) resultado.add(d.clave());
+            } else if (q.length() < 3) {
+                // Sin trigramas que intersectar: recorrido sobre el texto ya normalizado (sin copias por fila)
+                for (Documento d : documentos) {
+                    if (d != null && d.texto().contains(q)) resultado.add(d.clave());
+                }
+            } else {
+                int[] candidatos = candidatos(q);
+                for (int id : candidatos) {
+                    Documento d = documentos.get(id);
+                    if (d != null && d.texto().contains(q)) resultado.add(d.clave());
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        resultado.sort(Filas.BINARIO);
+        return resultado;
+    }
+
+    // ===== Internos (con el lock tomado) =====
+
+    private void agregarSinLock(T fila) {
+        String k = clave.apply(fila);
+        quitarSinLock(k);
+        agregarSinLock(k, textoNormalizado(fila));
+    }
+
+    private void agregarSinLock(String k, String texto) {
+        int id = documentos.size();
+        documentos.add(new Documento(k, texto));
+        idPorClave.put(k, id);
+        for (int i = 0; i + 3 <= texto.length(); i++) {
+            long t = trigrama(texto, i);
+            if (t < 0) continue;
+            postings.computeIfAbsent(t, x -> new Postings()).agregar(id);
+        }
+    }
+
+    private void quitarSinLock(String k) {
+        Integer id = idPorClave.remove(k);
+        if (id == null) return;
+        documentos.set(id, null); // los postings viejos se descartan al verificar y en la compactación
+        if (++muertos > 1024 && muertos > idPorClave.size()) compactar();
+    }
+
+    /** Reconstruye ids y postings cuando las bajas/ediciones dejaron demasiados huecos. */
+    private void compactar() {
+        List<Documento> vivos = new ArrayList<>(idPorClave.size());
+        for (Documento d : documentos) if (d != null) vivos.add(d);
+        documentos.clear();
+        idPorClave.clear();
+        postings.clear();
+        muertos = 0;
+        for (Documento d : vivos) agregarSinLock(d.clave(), d.texto());
+    }
+
+    private int[] candidatos(String q) {
+        List<Postings> listas = new ArrayList<>();
+        for (int i = 0; i + 3 <= q.length(); i++) {
+            long t = trigrama(q, i);
+            if (t < 0) continue;
+            Postings p = postings.get(t);
+            if (p == null) return new int[0];
+            listas.add(p);
+        }
+        if (listas.isEmpty()) return new int[0]; // solo trigramas que cruzan separadores
+        listas.sort(Comparator.comparingInt(p -> p.tamano));
+        int[] actual = Arrays.copyOf(listas.get(0).ids, listas.get(0).tamano);
+        for (int i = 1; i < listas.size() && actual.length > 0; i++) {
+            actual = intersectar(actual, listas.get(i));
+        }
+        return actual;
+    }
+
+    private static int[] intersectar(int[] a, Postings b) {
+        int[] out = new int[Math.min(a.length, b.tamano)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.tamano) {
+            int x = a[i], y = b.ids[j];
+            if (x == y) { out[n++] = x; i++; j++; }
+            else if (x < y) i++;
+            else j++;
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private String textoNormalizado(T fila) {
+        StringBuilder sb = new StringBuilder();
+        for (String c : campos.apply(fila)) {
+            if (sb.length() > 0) sb.append(SEPARADOR);
+            if (c != null) sb.append(normalizar(c));
+        }
+        return sb.toString();
+    }
+
+    /** Tres caracteres de 16 bits en un long; -1 si el trigrama cruza un separador de campo. */
+    private static long trigrama(String s, int i) {
+        char a = s.charAt(i), b = s.charAt(i + 1), c = s.charAt(i + 2);
+        if (a == SEPARADOR || b == SEPARADOR || c == SEPARADOR) return -1;
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+
+    public static String normalizar(String s) {
+        if (s == null) return "";
+        String n = s.trim().toLowerCase(Locale.ROOT);
+        boolean ascii = true;
+        for (int i = 0; i < n.length() && ascii; i++) ascii = n.charAt(i) < 128;
+        if (ascii) return n;
+        return Normalizer.normalize(n, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+    }
+
+    /** Lista creciente de ids (siempre se agregan en orden ascendente). */
+    private static final class Postings {
+        int[] ids = new int[4];
+        int tamano;
+
+        void agregar(int id) {
+            if (tamano > 0 && ids[tamano - 1] == id) return;
+            if (tamano == ids.length) ids = Arrays.copyOf(ids, tamano * 2);
+            ids[tamano++] = id;
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package org.example.sici1.controller;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Carga masiva de asignaciones por flujo ({@code POST /api/asignaciones/flujo}), para el inicio de
+ * semestre: decenas de miles de renglones sin teclearlos uno a uno en la pantalla de captura.
+ * <ul>
+ *   <li>El cuerpo es NDJSON (un objeto del contrato por línea) o CSV con encabezado
+ *       ({@code ?formato=csv} o {@code Content-Type: text/csv}); se lee línea por línea, nunca completo.</li>
+ *   <li>Los renglones se agrupan por encabezado de inventario (UA, espacio, fecha y empleado, como en
+ *       {@code guardarEncabezado}) y cada grupo se escribe en lotes de {@link LoteEscaneo#MAX_LOTE}.</li>
+ *   <li>La memoria está acotada: a lo más {@link #MAX_PENDIENTES} renglones esperando grupo y
+ *       {@link #EN_COLA} lotes esperando a la BD. Si la BD va lenta, se deja de leer el socket y el
+ *       cliente queda frenado por TCP.</li>
+ *   <li>La respuesta es NDJSON en trozos, con un resultado por línea ({@code "linea": n}) conforme se
+ *       escribe cada lote (no en el orden de entrada) y un renglón final de resumen.</li>
+ * </ul>
+ * <pre>
+ *   curl -N -H 'Content-Type: application/x-ndjson' --data-binary @asignaciones.ndjson \
+ *        http://127.0.0.1:8085/api/asignaciones/flujo
+ * </pre>
+ */
+final class IngestaAsignaciones {
+
+    static final int MAX_PENDIENTES = 4 * LoteEscaneo.MAX_LOTE;
+    static final int EN_COLA = 2;
+    static final int MAX_LINEA = 16 * 1024;
+
+    private static final Tramo FIN = new Tramo(List.of(), List.of());
+
+    /** Un lote listo para la BD: las solicitudes y la línea de entrada de cada una. */
+    private record Tramo(List<Integer> lineas, List<Asignaciones.Solicitud> solicitudes) {}
+
+    private IngestaAsignaciones() {}
+
+    static void atender(HttpExchange ex) throws IOException {
+        String tipo = ex.getRequestHeaders().getFirst("Content-Type");
+        String consulta = ex.getRequestURI().getQuery();
+        boolean csv = (consulta != null && consulta.contains("formato=csv"))
+                || (tipo != null && tipo.toLowerCase().contains("csv"));
+
+        ex.getResponseHeaders().set("Content-Type", "application/x-ndjson; charset=utf-8");
+        ex.sendResponseHeaders(200, 0); // en trozos: los resultados salen mientras se sigue subiendo el cuerpo
+        Salida salida = new Salida(new BufferedWriter(new OutputStreamWriter(ex.getResponseBody(), StandardCharsets.UTF_8)));
+
+        BlockingQueue<Tramo> cola = new ArrayBlockingQueue<>(EN_COLA);
+        Thread escritor = Thread.ofVirtual().name("sici-ingesta-bd").start(() -> escribir(cola, salida));
+        long inicio = System.nanoTime();
+        try (Reader in = new BufferedReader(new InputStreamReader(ex.getRequestBody(), StandardCharsets.UTF_8), 64 * 1024)) {
+            leer(in, csv, cola, salida);
+        } catch (IOException e) {
+            salida.nota("Lectura interrumpida: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                cola.put(FIN);
+                escritor.join();
+            } catch (InterruptedException e) {
+                escritor.interrupt();
+                Thread.currentThread().interrupt();
+            }
+            salida.resumen((System.nanoTime() - inicio) / 1_000_000);
+            salida.cerrar();
+        }
+    }
+
+    // ===================== Lectura y agrupación =====================
+
+    private static void leer(Reader in, boolean csv, BlockingQueue<Tramo> cola, Salida salida)
+            throws IOException, InterruptedException {
+        Map<Asignaciones.Encabezado, Tramo> grupos = new LinkedHashMap<>();
+        int pendientes = 0;
+        String[] columnas = null;
+        StringBuilder linea = new StringBuilder(256);
+        int numero = 0;
+
+        while (!salida.fallo() && leerLinea(in, linea)) {
+            numero++;
+            if (linea.length() == 0 || linea.toString().isBlank()) continue;
+            if (linea.length() > MAX_LINEA) {
+                salida.resultado(numero, Asignaciones.Resultado.invalido(null, "La línea excede " + MAX_LINEA + " caracteres"));
+                continue;
+            }
+            if (csv && columnas == null) {
+                columnas = camposCsv(linea.toString()).toArray(String[]::new);
+                continue;
+            }
+
+            Asignaciones.Solicitud s;
+            try {
+                Map<String, Object> objeto = csv ? objetoCsv(columnas, linea.toString()) : JsonPlano.objeto(linea.toString());
+                s = Asignaciones.Solicitud.desdeJson(objeto);
+            } catch (IllegalArgumentException e) {
+                salida.resultado(numero, Asignaciones.Resultado.invalido(null, e.getMessage()));
+                continue;
+            }
+
+            Asignaciones.Encabezado enc = Asignaciones.Encabezado.de(s);
+            Tramo g = grupos.computeIfAbsent(enc, k -> new Tramo(new ArrayList<>(), new ArrayList<>()));
+            g.lineas().add(numero);
+            g.solicitudes().add(s);
+            pendientes++;
+
+            if (g.solicitudes().size() >= LoteEscaneo.MAX_LOTE) {
+                pendientes -= g.solicitudes().size();
+                cola.put(grupos.remove(enc));
+            } else if (pendientes >= MAX_PENDIENTES) {
+                // Muchos encabezados mezclados: se suelta el grupo más grande para no acumular
+                Asignaciones.Encabezado mayor = null;
+                int tam = 0;
+                for (Map.Entry<Asignaciones.Encabezado, Tramo> e : grupos.entrySet()) {
+                    if (e.getValue().solicitudes().size() > tam) {
+                        tam = e.getValue().solicitudes().size();
+                        mayor = e.getKey();
+                    }
+                }
+                pendientes -= tam;
+                cola.put(grupos.remove(mayor));
+            }
+        }
+        for (Tramo g : grupos.values()) cola.put(g);
+    }
+
+    /** Lee una línea en {@code sb} (sin el salto). Pasado {@link #MAX_LINEA} deja de guardar y solo la consume. */
+    private static boolean leerLinea(Reader in, StringBuilder sb) throws IOException {
+        sb.setLength(0);
+        int c;
+        boolean algo = false;
+        while ((c = in.read()) >= 0) {
+            algo = true;
+            if (c == '\n') break;
+            if (c == '\r') continue;
+            if (sb.length() <= MAX_LINEA) sb.append((char) c);
+        }
+        return algo;
+    }
+
+    // ===================== Escritura =====================
+
+    /** Hilo único de escritura: los lotes de un mismo encabezado se aplican en el orden en que llegaron. */
+    private static void escribir(BlockingQueue<Tramo> cola, Salida salida) {
+        try {
+            for (Tramo siguiente = cola.take(); siguiente != FIN; siguiente = cola.take()) {
+                Tramo t = siguiente;
+                List<Asignaciones.Resultado> resultados;
+                try {
+                    resultados = Metricas.conEtiqueta("IngestaAsignaciones.escribir",
+                            () -> Asignaciones.asignar(t.solicitudes()));
+                } catch (Exception e) {
+                    // Lote perdido (p. ej. sin conexión): se reporta por línea y se intenta el siguiente
+                    e.printStackTrace();
+                    String mensaje = e instanceof SQLException ? "Error de base de datos: " + e.getMessage() : e.toString();
+                    resultados = new ArrayList<>(t.solicitudes().size());
+                    for (Asignaciones.Solicitud s : t.solicitudes()) {
+                        resultados.add(new Asignaciones.Resultado(Asignaciones.Estado.ERROR, s.codigo(), null, null, mensaje));
+                    }
+                }
+                for (int i = 0; i < resultados.size(); i++) salida.resultado(t.lineas().get(i), resultados.get(i));
+                salida.vaciar();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ===================== Respuesta =====================
+
+    /** Respuesta compartida por el lector (inválidos) y el escritor (lotes). */
+    private static final class Salida {
+        private final BufferedWriter w;
+        private final Map<Asignaciones.Estado, Integer> conteo = new EnumMap<>(Asignaciones.Estado.class);
+        private volatile boolean fallo;
+
+        Salida(BufferedWriter w) { this.w = w; }
+
+        boolean fallo() { return fallo; }
+
+        synchronized void resultado(int linea, Asignaciones.Resultado r) {
+            conteo.merge(r.estado(), 1, Integer::sum);
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("linea", linea);
+            m.putAll(r.comoJson());
+            renglon(JsonPlano.escribir(m));
+        }
+
+        synchronized void nota(String mensaje) {
+            renglon(ServidorApi.mensaje(mensaje));
+        }
+
+        synchronized void resumen(long ms) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("resumen", true);
+            int total = 0;
+            for (Asignaciones.Estado e : Asignaciones.Estado.values()) {
+                int n = conteo.getOrDefault(e, 0);
+                m.put(e.name().toLowerCase(), n);
+                total += n;
+            }
+            m.put("total", total);
+            m.put("ms", ms);
+            renglon(JsonPlano.escribir(m));
+        }
+
+        synchronized void vaciar() {
+            if (fallo) return;
+            try {
+                w.flush();
+            } catch (IOException e) {
+                fallo = true; // el cliente se fue: el lector deja de consumir
+            }
+        }
+
+        synchronized void cerrar() {
+            try {
+                w.close();
+            } catch (IOException ignored) {
+            }
+        }
+
+        private void renglon(String json) {
+            if (fallo) return;
+            try {
+                w.write(json);
+                w.write('\n');
+            } catch (IOException e) {
+                fallo = true;
+            }
+        }
+    }
+
+    // ===================== CSV =====================
+
+    private static Map<String, Object> objetoCsv(String[] columnas, String linea) {
+        List<String> campos = camposCsv(linea);
+        if (campos.size() != columnas.length) {
+            throw new IllegalArgumentException("Se esperaban " + columnas.length + " columnas y llegaron " + campos.size());
+        }
+        Map<String, Object> o = new HashMap<>();
+        for (int i = 0; i < columnas.length; i++) {
+            if (!campos.get(i).isEmpty()) o.put(columnas[i], campos.get(i));
+        }
+        return o;
+    }
+
+    /** Separa por comas respetando comillas dobles ({@code ""} dentro de comillas es una comilla). */
+    private static List<String> camposCsv(String linea) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        boolean comillas = false;
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (comillas) {
+                if (c == '"' && i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                    sb.append('"');
+                    i++;
+                } else if (c == '"') {
+                    comillas = false;
+                } else {
+                    sb.append(c);
+                }
+            } else if (c == '"') {
+                comillas = true;
+            } else if (c == ',') {
+                campos.add(sb.toString().trim());
+                sb.setLength(0);
+            } else {
+                sb.append(c);
+            }
+        }
+        campos.add(sb.toString().trim());
+        return campos;
+    }
+}
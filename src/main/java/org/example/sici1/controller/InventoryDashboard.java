@@ -1,5 +1,6 @@
 package org.example.sici1.controller;
 
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -17,6 +18,8 @@ import java.util.*;
 public class InventoryDashboard {
 
     private static final String VIEWS_PATH = "/org/example/sici1/view/";
+    // Vistas que casi siempre se abren tras entrar: se cargan en segundo plano al mostrar el tablero
+    private static final List<String> VISTAS_PRECARGA = List.of("BienesView", "AsignacionesView");
 
     @FXML private BorderPane rootPane;
     @FXML private StackPane contentArea;
@@ -24,24 +27,28 @@ public class InventoryDashboard {
     @FXML private Label lblRol;
 
     @FXML private Button btnCerrarSesion, btnEdificios, btnEspacio, btnUnidadAdministrativa,
-            btnPuesto, btnBienes, btnInventario, btnEmpleado;
+            btnPuesto, btnBienes, btnInventario, btnEmpleado, btnDiagnostico;
 
     private Button currentSelected;
     private final Map<Button, String> buttonViewMap = new LinkedHashMap<>();
+    private GestorVistas vistas;
 
     // Guardamos rol normalizado
-    private final String userRole = (UserSession.getInstance().getRole() == null)
-            ? ""
-            : UserSession.getInstance().getRole().trim().toUpperCase();
-    private final boolean isAdmin = "ADMIN".equals(userRole);
+    private final String userRole = Sesion.actual().isAutenticada() ? Sesion.actual().getRolPrincipal() : "";
+    private final boolean isAdmin = Sesion.actual().tiene(Sesion.Permiso.GESTIONAR_USUARIOS);
+    private final boolean verDiagnostico = Sesion.actual().tiene(Sesion.Permiso.VER_DIAGNOSTICO);
 
     @FXML
     public void initialize() {
+        // Presupuesto de la caché de vistas: una cuarta parte del heap, mínimo 64 MB
+        vistas = new GestorVistas(contentArea, VIEWS_PATH,
+                Math.max(64L * 1024 * 1024, Runtime.getRuntime().maxMemory() / 4));
         initializeButtonMapping();
         applyRoleBasedAccess();
         setupMenuButtonActions();
         setupLogoutButton();
         showWelcomeView();
+        Platform.runLater(() -> vistas.precargar(VISTAS_PRECARGA));
 
         rootPane.widthProperty().addListener((obs, oldVal, newVal) -> handleResponsiveSidebar(newVal.doubleValue()));
     }
@@ -57,6 +64,10 @@ public class InventoryDashboard {
     }
 
     private void applyRoleBasedAccess() {
+        if (btnDiagnostico != null) {
+            btnDiagnostico.setVisible(verDiagnostico);
+            btnDiagnostico.setManaged(verDiagnostico);
+        }
         if (userRole.isEmpty()) {
             if (lblRol != null) lblRol.setText("Usuario");
             return;
@@ -88,6 +99,16 @@ public class InventoryDashboard {
                 });
             }
         });
+        if (btnDiagnostico != null) {
+            btnDiagnostico.setOnAction(event -> {
+                if (!verDiagnostico) {
+                    showAlert("Acceso denegado", "No tienes permisos para acceder a esta sección.");
+                    return;
+                }
+                highlightSelectedButton(btnDiagnostico);
+                vistas.mostrarNodo(new PanelDiagnostico());
+            });
+        }
     }
 
     private void highlightSelectedButton(Button selected) {
@@ -118,7 +139,7 @@ public class InventoryDashboard {
         desc.setStyle("-fx-font-size: 17px; -fx-text-fill: #4A5568; -fx-padding: 10 60 0 60;");
 
         welcomeBox.getChildren().addAll(title, desc);
-        contentArea.getChildren().setAll(welcomeBox);
+        vistas.mostrarNodo(welcomeBox);
 
         if (currentSelected != null) {
             currentSelected.getStyleClass().remove("selected");
@@ -128,11 +149,10 @@ public class InventoryDashboard {
 
     private void switchView(String viewName) {
         try {
-            Parent view = FXMLLoader.load(Objects.requireNonNull(
-                    getClass().getResource(VIEWS_PATH + viewName + ".fxml")));
-            contentArea.getChildren().setAll(view);
-        } catch (IOException | NullPointerException e) {
-            contentArea.getChildren().setAll(new Label("No se pudo cargar la vista: " + viewName));
+            vistas.mostrar(viewName);
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            vistas.mostrarNodo(new Label("No se pudo cargar la vista: " + viewName));
         }
     }
 
@@ -146,7 +166,9 @@ public class InventoryDashboard {
                 ButtonType.YES, ButtonType.NO);
 
         if (confirm.showAndWait().orElse(ButtonType.NO) == ButtonType.YES) {
-            UserSession.getInstance().clear();
+            Sesion.cerrar();
+            vistas.descartarTodo();
+            Catalogos.limpiar();
             try {
                 returnToLoginScreen(event);
             } catch (IOException ex) {
@@ -0,0 +1,175 @@
+package org.example.sici1.controller;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON mínimo para la API de asignaciones: objetos planos (texto, número, booleano o null) y arreglos
+ * de esos objetos. No hay objetos anidados en el contrato, así que no hace falta una biblioteca.
+ * Los errores de sintaxis se reportan con {@link IllegalArgumentException} y la posición.
+ */
+public final class JsonPlano {
+
+    private final String texto;
+    private int pos;
+
+    private JsonPlano(String texto) {
+        this.texto = texto;
+    }
+
+    /** Un objeto plano; los números llegan como {@link BigDecimal}. */
+    public static Map<String, Object> objeto(String texto) {
+        JsonPlano p = new JsonPlano(texto);
+        Map<String, Object> o = p.leerObjeto();
+        p.fin();
+        return o;
+    }
+
+    /** Un arreglo de objetos planos. */
+    public static List<Map<String, Object>> arreglo(String texto) {
+        JsonPlano p = new JsonPlano(texto);
+        List<Map<String, Object>> lista = new ArrayList<>();
+        p.esperar('[');
+        if (!p.siguienteEs(']')) {
+            do {
+                lista.add(p.leerObjeto());
+            } while (p.consumirSi(','));
+        }
+        p.esperar(']');
+        p.fin();
+        return lista;
+    }
+
+    /** Serializa un objeto plano, en el orden del mapa. */
+    public static String escribir(Map<String, ?> campos) {
+        StringBuilder sb = new StringBuilder(64).append('{');
+        boolean primero = true;
+        for (Map.Entry<String, ?> c : campos.entrySet()) {
+            if (!primero) sb.append(',');
+            primero = false;
+            cadena(sb, c.getKey());
+            sb.append(':');
+            Object v = c.getValue();
+            if (v == null) sb.append("null");
+            else if (v instanceof Number || v instanceof Boolean) sb.append(v);
+            else cadena(sb, v.toString());
+        }
+        return sb.append('}').toString();
+    }
+
+    private static void cadena(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        sb.append('"');
+    }
+
+    // ===================== Lectura =====================
+
+    private Map<String, Object> leerObjeto() {
+        Map<String, Object> o = new LinkedHashMap<>();
+        esperar('{');
+        if (!siguienteEs('}')) {
+            do {
+                String clave = leerCadena();
+                esperar(':');
+                o.put(clave, leerValor());
+            } while (consumirSi(','));
+        }
+        esperar('}');
+        return o;
+    }
+
+    private Object leerValor() {
+        espacios();
+        if (pos >= texto.length()) throw error("se esperaba un valor");
+        char c = texto.charAt(pos);
+        if (c == '"') return leerCadena();
+        if (c == '{' || c == '[') throw error("no se admiten valores anidados");
+        if (texto.startsWith("null", pos)) { pos += 4; return null; }
+        if (texto.startsWith("true", pos)) { pos += 4; return Boolean.TRUE; }
+        if (texto.startsWith("false", pos)) { pos += 5; return Boolean.FALSE; }
+        int inicio = pos;
+        while (pos < texto.length() && "+-0123456789.eE".indexOf(texto.charAt(pos)) >= 0) pos++;
+        if (inicio == pos) throw error("valor no válido");
+        try {
+            return new BigDecimal(texto.substring(inicio, pos));
+        } catch (NumberFormatException e) {
+            throw error("número no válido");
+        }
+    }
+
+    private String leerCadena() {
+        esperar('"');
+        StringBuilder sb = new StringBuilder();
+        while (pos < texto.length()) {
+            char c = texto.charAt(pos++);
+            if (c == '"') return sb.toString();
+            if (c != '\\') { sb.append(c); continue; }
+            if (pos >= texto.length()) break;
+            char e = texto.charAt(pos++);
+            switch (e) {
+                case '"', '\\', '/' -> sb.append(e);
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                case 't' -> sb.append('\t');
+                case 'u' -> {
+                    if (pos + 4 > texto.length()) throw error("escape \\u incompleto");
+                    try {
+                        sb.append((char) Integer.parseInt(texto.substring(pos, pos + 4), 16));
+                    } catch (NumberFormatException ex) {
+                        throw error("escape \\u no válido");
+                    }
+                    pos += 4;
+                }
+                default -> throw error("escape no válido");
+            }
+        }
+        throw error("cadena sin cerrar");
+    }
+
+    private void espacios() {
+        while (pos < texto.length() && Character.isWhitespace(texto.charAt(pos))) pos++;
+    }
+
+    private boolean siguienteEs(char c) {
+        espacios();
+        return pos < texto.length() && texto.charAt(pos) == c;
+    }
+
+    private boolean consumirSi(char c) {
+        if (!siguienteEs(c)) return false;
+        pos++;
+        return true;
+    }
+
+    private void esperar(char c) {
+        if (!consumirSi(c)) throw error("se esperaba '" + c + "'");
+    }
+
+    private void fin() {
+        espacios();
+        if (pos < texto.length()) throw error("sobra texto al final");
+    }
+
+    private IllegalArgumentException error(String mensaje) {
+        return new IllegalArgumentException("JSON no válido en la posición " + pos + ": " + mensaje);
+    }
+}
@@ -13,6 +13,13 @@ import javafx.scene.shape.Circle;
 
 import java.io.IOException;
 import java.sql.*;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class LoginController {
 
@@ -20,9 +27,15 @@ public class LoginController {
     @FXML private PasswordField passwordField;
     @FXML private Label errorLabel;
     @FXML private ImageView logoImage;
+    @FXML private Button loginButton;
 
     // Dueño real de las tablas (USUARIOS, ROLES, USUARIO_ROL, etc.)
-    private static final String SCHEMA_OWNER = "ADMIN"; // TODO: cambia si el owner no es ADMIN
+    private static final String SCHEMA_OWNER = Conexion.SCHEMA_OWNER;
+    private static final int TIMEOUT_LOGIN_SEG = 15;
+
+    private CompletableFuture<Sesion> loginEnCurso;
+    // Sentencia en vuelo, para poder cancelarla en el servidor
+    private final AtomicReference<Statement> consultaLogin = new AtomicReference<>();
 
     @FXML
     public void initialize() {
@@ -35,6 +48,11 @@ public class LoginController {
 
     @FXML
     private void handleLogin(ActionEvent event) {
+        if (loginEnCurso != null) {
+            // Mientras se verifica, el botón cancela; Enter en la contraseña no hace nada
+            if (event.getSource() == loginButton) cancelarLogin();
+            return;
+        }
         String username = usernameField.getText() != null ? usernameField.getText().trim() : "";
         String password = passwordField.getText() != null ? passwordField.getText().trim() : "";
 
@@ -43,57 +61,93 @@ public class LoginController {
             return;
         }
 
-        String role = authenticate(username, password);
-        if (role == null) {
-            showError("Credenciales incorrectas");
-            passwordField.clear();
-            return;
-        }
+        setCargando(true);
+        Arranque.alEnviarLogin();
+        // El tope cubre también la espera por una conexión del pool, no solo la consulta
+        CompletableFuture<Sesion> intento = DbExecutor.consultar(cn -> authenticate(cn, username, password))
+                .orTimeout(TIMEOUT_LOGIN_SEG + 5, TimeUnit.SECONDS);
+        loginEnCurso = intento;
+        DbExecutor.enFx(intento, sesion -> {
+            if (loginEnCurso != intento) return; // cancelado por el usuario
+            loginEnCurso = null;
+            setCargando(false);
+            if (sesion == null) {
+                showError("Credenciales incorrectas");
+                passwordField.clear();
+                return;
+            }
 
-        // Guarda el usuario y su rol en una sesión simple
-        UserSession.getInstance().setUser(username, role);
-        redirectToDashboard(event);
+            Sesion.iniciar(sesion);
+            Arranque.alAutenticar();
+            redirectToDashboard(event);
+        }, ex -> {
+            if (loginEnCurso != intento) return;
+            loginEnCurso = null;
+            cancelarConsulta();
+            setCargando(false);
+            if (ex instanceof TimeoutException || ex instanceof SQLTimeoutException) {
+                showError("El servidor no respondió a tiempo. Intenta de nuevo.");
+            } else {
+                ex.printStackTrace();
+                showError("Error de conexión con la base de datos");
+            }
+        });
+    }
+
+    private void cancelarLogin() {
+        loginEnCurso = null;
+        cancelarConsulta();
+        setCargando(false);
+        showError("Inicio de sesión cancelado");
     }
 
-    private String authenticate(String username, String plainPassword) {
+    private void cancelarConsulta() {
+        Statement st = consultaLogin.getAndSet(null);
+        if (st == null) return;
+        try {
+            st.cancel();
+        } catch (SQLException ignore) {}
+    }
+
+    private void setCargando(boolean cargando) {
+        if (loginButton != null) loginButton.setText(cargando ? "CANCELAR" : "INGRESAR");
+        usernameField.setDisable(cargando);
+        passwordField.setDisable(cargando);
+        if (cargando && errorLabel != null) errorLabel.setText("Verificando credenciales...");
+        else if (errorLabel != null) errorLabel.setText("");
+    }
+
+    /** Credenciales, empleado y roles en una sola ida y vuelta; null si no son válidas. */
+    private Sesion authenticate(Connection cn, String username, String plainPassword) throws SQLException {
         final String sql =
-                "SELECT u.id_usuario, u.hash_password, COALESCE(MAX(r.nombre), 'USUARIO') AS rol " +
+                "SELECT u.id_usuario, u.id_empleado, u.hash_password, " +
+                        "       LISTAGG(r.nombre, ',') WITHIN GROUP (ORDER BY r.nombre) AS roles " +
                         "FROM " + SCHEMA_OWNER + ".usuarios u " +
                         "LEFT JOIN " + SCHEMA_OWNER + ".usuario_rol ur ON ur.id_usuario = u.id_usuario " +
                         "LEFT JOIN " + SCHEMA_OWNER + ".roles r ON r.id_rol = ur.id_rol " +
                         "WHERE UPPER(u.username) = UPPER(?) AND u.activo = 'S' " +
-                        "GROUP BY u.id_usuario, u.hash_password";
-
-        try (Connection cn = getConnection();
-             PreparedStatement ps = cn.prepareStatement(sql)) {
+                        "GROUP BY u.id_usuario, u.id_empleado, u.hash_password";
 
+        try (PreparedStatement ps = cn.prepareStatement(sql)) {
             ps.setString(1, username);
+            ps.setQueryTimeout(TIMEOUT_LOGIN_SEG);
+            consultaLogin.set(ps);
 
             try (ResultSet rs = ps.executeQuery()) {
                 if (!rs.next()) return null;
 
                 String stored = rs.getString("hash_password");
-                String role   = rs.getString("rol");
-
                 if (!isPasswordValid(plainPassword, stored)) return null;
-                return role != null ? role : "USUARIO";
-            }
-        } catch (SQLException ex) {
-            ex.printStackTrace();
-            showError("Error de conexión con la base de datos");
-            return null;
-        }
-    }
 
-    private Connection getConnection() throws SQLException {
-        try {
-            Connection cn = Conexion.conectar();
-            try (Statement st = cn.createStatement()) {
-                st.execute("ALTER SESSION SET CURRENT_SCHEMA=" + SCHEMA_OWNER);
+                long idUsuario = rs.getLong("id_usuario");
+                long idEmpleado = rs.getLong("id_empleado");
+                Long empleado = rs.wasNull() ? null : idEmpleado;
+                String roles = rs.getString("roles");
+                Set<String> conjunto = roles == null ? Set.of() : new LinkedHashSet<>(Arrays.asList(roles.split(",")));
+                return new Sesion(username, idUsuario, empleado, conjunto);
             }
-            return cn;
-        } catch (ClassNotFoundException e) {
-            throw new SQLException("Driver Oracle no encontrado", e);
+        } finally {
+            consultaLogin.set(null);
         }
     }
 
@@ -122,6 +176,7 @@ public class LoginController {
             currentStage.close();
 
             dashboardStage.show();
+            Arranque.alMostrarTablero(dashboardStage.getScene());
 
         } catch (IOException e) {
             showError("Error al iniciar el sistema");
@@ -0,0 +1,421 @@
+package org.example.sici1.controller;
+
+import java.io.IOException;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Cola de escaneos para inventario físico con pistola de código de barras.
+ * Los códigos se encolan sin esperar a la BD; un único drenador los toma en lotes y resuelve cada lote
+ * con tres viajes en total (búsqueda por conjunto, INSERT ... WHERE NOT EXISTS en batch JDBC, y la
+ * lectura de los ID_DETALLE nuevos), sin importar cuántos códigos traiga. Mientras un lote está en
+ * vuelo, los escaneos siguientes se acumulan para el próximo.
+ * Los resultados de cada lote se entregan juntos, en el orden de escaneo, en el hilo de JavaFX.
+ * Cada escaneo pasa antes por la {@link BitacoraEscaneos}: si la BD no responde, la cola se detiene,
+ * los escaneos siguen anotándose en disco y se reenvían por lotes al volver la conexión.
+ */
+public class LoteEscaneo {
+
+    /** Tope por lote: cabe holgado en el límite de 1000 binds de un IN de Oracle. */
+    static final int MAX_LOTE = 512;
+
+    /** Espera entre reintentos sin conexión: empieza en 1 s y se duplica hasta 30 s. */
+    private static final long REINTENTO_MIN_MS = 1_000;
+    private static final long REINTENTO_MAX_MS = 30_000;
+
+    public enum Resultado { AGREGADO, REPETIDO, NO_EXISTE }
+
+    /** {@code posicion} es el registro en la bitácora local; -1 si no se pudo escribir en ella. */
+    public record Escaneo(long idInventario, String codigo, long posicion) {}
+
+    /**
+     * {@code fila} viene cuando el bien quedó en el inventario: AGREGADO, o REPETIDO contra un renglón que ya
+     * estaba en la BD (p. ej. un reenvío de un lote que sí se había insertado antes de perder la conexión).
+     */
+    public record Salida(Escaneo escaneo, Resultado resultado, AsignacionesView.DetalleRow fila) {}
+
+    private record BienEncontrado(long idBien, String codigo, String descripcion, String estado) {}
+
+    private final BitacoraEscaneos bitacora;
+    private final ConcurrentLinkedQueue<Escaneo> cola = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendientes = new AtomicInteger();
+    private final AtomicBoolean drenando = new AtomicBoolean();
+
+    // Sin conexión los escaneos solo se anotan en la bitácora; el reintento los vuelve a encolar desde ahí
+    private volatile boolean sinConexion;
+    private final List<Escaneo> sinBitacora = new ArrayList<>();
+    private long esperaReintentoMs = REINTENTO_MIN_MS;
+
+    private final Consumer<List<Salida>> alTerminarLote;
+    private final BiConsumer<List<Escaneo>, Throwable> alFallar;
+    private final Consumer<Integer> alPerderConexion;
+
+    public LoteEscaneo(BitacoraEscaneos bitacora,
+                       Consumer<List<Salida>> alTerminarLote,
+                       BiConsumer<List<Escaneo>, Throwable> alFallar,
+                       Consumer<Integer> alPerderConexion) {
+        this.bitacora = bitacora;
+        this.alTerminarLote = alTerminarLote;
+        this.alFallar = alFallar;
+        this.alPerderConexion = alPerderConexion;
+    }
+
+    /** Anota el escaneo en la bitácora y lo encola; nunca espera a la red. */
+    public Escaneo encolar(long idInventario, String codigo) {
+        long posicion = -1;
+        try {
+            posicion = bitacora.agregar(idInventario, codigo).posicion();
+        } catch (IOException e) {
+            e.printStackTrace(); // sin bitácora el escaneo igual se intenta, solo que no sobrevive a un cierre
+        }
+        Escaneo e = new Escaneo(idInventario, codigo, posicion);
+        if (sinConexion) {
+            // Queda en disco sin reclamar: el próximo reintento (de esta u otra cola) lo toma de ahí
+            if (posicion < 0) synchronized (sinBitacora) { sinBitacora.add(e); }
+            else bitacora.liberar(idInventario, posicion);
+            return e;
+        }
+        cola.add(e);
+        pendientes.incrementAndGet();
+        arrancarDrenador();
+        return e;
+    }
+
+    /** Escaneos aún sin resolver (en cola o en el lote en vuelo). */
+    public int pendientes() { return pendientes.get(); }
+
+    public boolean isSinConexion() { return sinConexion; }
+
+    /** Pendientes en bitácora de un inventario, para mostrarlos al abrirlo. */
+    public List<Escaneo> pendientesDe(long idInventario) throws IOException {
+        List<Escaneo> lista = new ArrayList<>();
+        for (BitacoraEscaneos.Registro r : bitacora.pendientes(idInventario)) {
+            lista.add(new Escaneo(r.idInventario(), r.codigo(), r.posicion()));
+        }
+        return lista;
+    }
+
+    /**
+     * Reenvía lo que quedó en bitácora de sesiones anteriores (cierre o corte antes de confirmar).
+     * La bitácora lo entrega una sola vez por proceso, a la primera cola que lo pida.
+     */
+    public void reanudar() {
+        DbExecutor.execute(() -> {
+            try {
+                encolarReclamados(bitacora.reclamarAlArrancar());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    private void arrancarDrenador() {
+        if (drenando.compareAndSet(false, true)) DbExecutor.execute(this::drenar);
+    }
+
+    private void drenar() {
+        try {
+            List<Escaneo> lote;
+            while (!sinConexion && !(lote = tomar()).isEmpty()) {
+                List<Escaneo> enVuelo = lote;
+                EventosJfr.LoteDeEscaneos evento = new EventosJfr.LoteDeEscaneos();
+                evento.begin();
+                evento.escaneos = enVuelo.size();
+                try {
+                    List<Salida> salidas = procesar(enVuelo);
+                    evento.end();
+                    if (evento.shouldCommit()) {
+                        for (Salida sal : salidas) {
+                            switch (sal.resultado()) {
+                                case AGREGADO -> evento.agregados++;
+                                case REPETIDO -> evento.repetidos++;
+                                case NO_EXISTE -> evento.noExisten++;
+                            }
+                        }
+                        evento.commit();
+                    }
+                    confirmar(enVuelo);
+                    pendientes.addAndGet(-enVuelo.size());
+                    esperaReintentoMs = REINTENTO_MIN_MS;
+                    DbExecutor.FX.execute(() -> alTerminarLote.accept(salidas));
+                } catch (SQLException ex) {
+                    evento.error = true;
+                    evento.commit();
+                    if (esFallaDeConexion(ex)) {
+                        pasarASinConexion(enVuelo);
+                    } else {
+                        // Error de datos: reintentar no lo arreglaría, se informa y se saca de la bitácora
+                        confirmar(enVuelo);
+                        pendientes.addAndGet(-enVuelo.size());
+                        DbExecutor.FX.execute(() -> alFallar.accept(enVuelo, ex));
+                    }
+                }
+            }
+        } finally {
+            drenando.set(false);
+            // Un escaneo pudo llegar entre el último poll y el set(false)
+            if (!sinConexion && !cola.isEmpty()) arrancarDrenador();
+        }
+    }
+
+    private void pasarASinConexion(List<Escaneo> enVuelo) {
+        sinConexion = true;
+        List<Escaneo> descartados = new ArrayList<>(enVuelo);
+        Escaneo e;
+        while ((e = cola.poll()) != null) descartados.add(e);
+        synchronized (sinBitacora) {
+            for (Escaneo d : descartados) {
+                if (d.posicion() < 0) sinBitacora.add(d);
+                else bitacora.liberar(d.idInventario(), d.posicion());
+            }
+        }
+        pendientes.set(0);
+
+        int enBitacora;
+        try {
+            enBitacora = bitacora.contarPendientes();
+        } catch (IOException ex) {
+            enBitacora = descartados.size();
+        }
+        int aviso = enBitacora;
+        DbExecutor.FX.execute(() -> alPerderConexion.accept(aviso));
+
+        long espera = esperaReintentoMs;
+        esperaReintentoMs = Math.min(esperaReintentoMs * 2, REINTENTO_MAX_MS);
+        DbExecutor.executeDespues(espera, this::reencolarDesdeBitacora);
+    }
+
+    /** Reintento tras perder la conexión: toma lo pendiente que ninguna otra cola esté enviando. */
+    private void reencolarDesdeBitacora() {
+        List<BitacoraEscaneos.Registro> reclamados = List.of();
+        try {
+            reclamados = bitacora.reclamarPendientes();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        encolarReclamados(reclamados);
+    }
+
+    private void encolarReclamados(List<BitacoraEscaneos.Registro> reclamados) {
+        List<Escaneo> todos = new ArrayList<>();
+        for (BitacoraEscaneos.Registro r : reclamados) {
+            todos.add(new Escaneo(r.idInventario(), r.codigo(), r.posicion()));
+        }
+        synchronized (sinBitacora) {
+            todos.addAll(sinBitacora);
+            sinBitacora.clear();
+        }
+        sinConexion = false;
+        cola.addAll(todos);
+        pendientes.addAndGet(todos.size());
+        arrancarDrenador();
+    }
+
+    private void confirmar(List<Escaneo> escaneos) {
+        Map<Long, List<Long>> porInventario = new LinkedHashMap<>();
+        for (Escaneo e : escaneos) {
+            if (e.posicion() >= 0) porInventario.computeIfAbsent(e.idInventario(), k -> new ArrayList<>()).add(e.posicion());
+        }
+        porInventario.forEach((idInventario, posiciones) -> {
+            try {
+                bitacora.confirmar(idInventario, posiciones);
+            } catch (IOException ex) {
+                ex.printStackTrace(); // a lo sumo se reintenta al reanudar; el INSERT es idempotente
+            }
+        });
+    }
+
+    /** Red caída, BD inalcanzable o pool sin conexiones: lo que se resuelve reintentando más tarde. */
+    static boolean esFallaDeConexion(SQLException ex) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof SQLRecoverableException || t instanceof SQLTransientConnectionException
+                    || t instanceof SQLNonTransientConnectionException || t instanceof IOException) return true;
+            if (t instanceof SQLException s && s.getSQLState() != null && s.getSQLState().startsWith("08")) return true;
+            if (t.getMessage() != null && t.getMessage().contains("UCP-")) return true; // pool sin conexión a la BD
+        }
+        return false;
+    }
+
+    private List<Escaneo> tomar() {
+        List<Escaneo> lote = new ArrayList<>();
+        Escaneo e;
+        while (lote.size() < MAX_LOTE && (e = cola.poll()) != null) lote.add(e);
+        return lote;
+    }
+
+    private List<Salida> procesar(List<Escaneo> lote) throws SQLException {
+        try (Connection cn = Conexion.conectar()) {
+            return resolver(cn, lote);
+        }
+    }
+
+    /**
+     * Resuelve un lote (hasta {@link #MAX_LOTE} escaneos) con una conexión ya abierta; las salidas vienen en
+     * el orden del lote. Es la misma escritura que usa la API HTTP de asignaciones.
+     */
+    static List<Salida> resolver(Connection cn, List<Escaneo> lote) throws SQLException {
+        // Normalmente todo el lote es del mismo inventario, pero el operador pudo cambiar de encabezado
+        Map<Long, List<Escaneo>> porInventario = new LinkedHashMap<>();
+        for (Escaneo e : lote) porInventario.computeIfAbsent(e.idInventario(), k -> new ArrayList<>()).add(e);
+
+        // Por identidad: el mismo código escaneado dos veces son dos escaneos distintos
+        Map<Escaneo, Salida> salidas = new IdentityHashMap<>();
+        for (Map.Entry<Long, List<Escaneo>> g : porInventario.entrySet()) {
+            procesarInventario(cn, g.getKey(), g.getValue(), salidas);
+        }
+        List<Salida> enOrden = new ArrayList<>(lote.size());
+        for (Escaneo e : lote) enOrden.add(salidas.get(e));
+        return enOrden;
+    }
+
+    private static void procesarInventario(Connection cn, long idInventario, List<Escaneo> escaneos,
+                                    Map<Escaneo, Salida> salidas) throws SQLException {
+        // 1) Búsqueda por conjunto de todos los códigos del lote
+        Map<String, BienEncontrado> bienes = buscarBienes(cn, escaneos);
+
+        // Repetidos dentro del mismo lote: solo el primero intenta insertar
+        Map<Long, Escaneo> aInsertar = new LinkedHashMap<>();
+        for (Escaneo e : escaneos) {
+            BienEncontrado b = bienes.get(clave(e.codigo()));
+            if (b == null) salidas.put(e, new Salida(e, Resultado.NO_EXISTE, null));
+            else if (aInsertar.putIfAbsent(b.idBien(), e) != null) salidas.put(e, new Salida(e, Resultado.REPETIDO, null));
+        }
+        if (aInsertar.isEmpty()) return;
+
+        // 2) Inserción en batch; lo que ya estaba en el inventario no se inserta (conteo 0)
+        List<Long> ids = new ArrayList<>(aInsertar.keySet());
+        int[] conteos = insertarDetalles(cn, idInventario, ids);
+
+        // 3) ID_DETALLE de lo insertado y de lo que ya estaba, en la misma lectura. Si la conexión cae aquí
+        //    (ya con el commit hecho) el lote se reenvía y vuelve como REPETIDO, pero con su renglón: la
+        //    vista lo muestra en vez de perderlo.
+        Map<Long, Long> detallePorBien = leerIdsDetalle(cn, idInventario, ids);
+
+        for (int i = 0; i < ids.size(); i++) {
+            Escaneo e = aInsertar.get(ids.get(i));
+            BienEncontrado b = bienes.get(clave(e.codigo()));
+            Long idDetalle = detallePorBien.get(b.idBien());
+            AsignacionesView.DetalleRow fila = idDetalle == null ? null
+                    : new AsignacionesView.DetalleRow(idDetalle, b.codigo(), b.descripcion(), b.estado());
+            if (conteos[i] == 0) {
+                salidas.put(e, new Salida(e, Resultado.REPETIDO, fila));
+            } else {
+                salidas.put(e, new Salida(e, Resultado.AGREGADO, fila != null ? fila
+                        : new AsignacionesView.DetalleRow(-1L, b.codigo(), b.descripcion(), b.estado())));
+            }
+        }
+    }
+
+    private static Map<String, BienEncontrado> buscarBienes(Connection cn, List<Escaneo> escaneos) throws SQLException {
+        int tam = tamanoIn(escaneos.size());
+        String sql = "SELECT id_bien, codigo_inventario, descripcion, estado FROM bienes " +
+                "WHERE UPPER(codigo_inventario) IN (" + marcadores(tam) + ")";
+        Map<String, BienEncontrado> bienes = new HashMap<>();
+        try (PreparedStatement ps = cn.prepareStatement(sql)) {
+            for (int i = 0; i < tam; i++) {
+                if (i < escaneos.size()) ps.setString(i + 1, clave(escaneos.get(i).codigo()));
+                else ps.setNull(i + 1, Types.VARCHAR);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    BienEncontrado b = new BienEncontrado(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4));
+                    bienes.put(clave(b.codigo()), b);
+                }
+            }
+        }
+        return bienes;
+    }
+
+    private static int[] insertarDetalles(Connection cn, long idInventario, List<Long> idsBien) throws SQLException {
+        final String sql = """
+            INSERT INTO DETALLE_INVENTARIO (ID_INVENTARIO, ID_BIEN, ACTIVO)
+            SELECT ?, ?, 'S' FROM dual
+            WHERE NOT EXISTS (SELECT 1 FROM DETALLE_INVENTARIO WHERE ID_INVENTARIO = ? AND ID_BIEN = ?)
+            """;
+        boolean autoCommit = cn.getAutoCommit();
+        cn.setAutoCommit(false);
+        try {
+            // Otro operador pudo insertar el mismo bien entre el NOT EXISTS y el commit: un reintento lo resuelve
+            for (int intento = 1; ; intento++) {
+                try (PreparedStatement ps = cn.prepareStatement(sql)) {
+                    for (long idBien : idsBien) {
+                        ps.setLong(1, idInventario);
+                        ps.setLong(2, idBien);
+                        ps.setLong(3, idInventario);
+                        ps.setLong(4, idBien);
+                        ps.addBatch();
+                    }
+                    int[] conteos = ps.executeBatch();
+                    cn.commit();
+                    return conteos;
+                } catch (BatchUpdateException ex) {
+                    cn.rollback();
+                    if (intento >= 2 || !esViolacionUnica(ex)) throw ex;
+                }
+            }
+        } catch (SQLException ex) {
+            cn.rollback();
+            throw ex;
+        } finally {
+            cn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static Map<Long, Long> leerIdsDetalle(Connection cn, long idInventario, List<Long> idsBien) throws SQLException {
+        int tam = tamanoIn(idsBien.size());
+        String sql = "SELECT ID_BIEN, ID_DETALLE FROM DETALLE_INVENTARIO " +
+                "WHERE ID_INVENTARIO = ? AND ID_BIEN IN (" + marcadores(tam) + ")";
+        Map<Long, Long> ids = new HashMap<>();
+        try (PreparedStatement ps = cn.prepareStatement(sql)) {
+            ps.setLong(1, idInventario);
+            for (int i = 0; i < tam; i++) {
+                if (i < idsBien.size()) ps.setLong(i + 2, idsBien.get(i));
+                else ps.setNull(i + 2, Types.NUMERIC);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) ids.put(rs.getLong(1), rs.getLong(2));
+            }
+        }
+        return ids;
+    }
+
+    /** Tamaños de IN en potencias de 2 (rellenos con NULL): pocas variantes de SQL para la cache de sentencias. */
+    private static int tamanoIn(int n) {
+        int tam = 8;
+        while (tam < n) tam <<= 1;
+        return tam;
+    }
+
+    private static String marcadores(int n) {
+        return "?,".repeat(n - 1) + "?";
+    }
+
+    private static String clave(String codigo) {
+        return codigo == null ? "" : codigo.trim().toUpperCase(Locale.ROOT);
+    }
+
+    static boolean esViolacionUnica(SQLException ex) {
+        // ORA-00001: unique constraint violated
+        return ex != null && ("23000".equals(ex.getSQLState()) ||
+                (ex.getMessage() != null && ex.getMessage().contains("ORA-00001")));
+    }
+}
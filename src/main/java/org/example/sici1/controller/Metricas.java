@@ -0,0 +1,178 @@
+package org.example.sici1.controller;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas de acceso a datos por operación lógica ({@code BienesView.cargarBienes}, {@code Catalogos.roles}...).
+ * Cada conexión que entrega {@link Conexion#conectar()} se mide de préstamo a cierre: espera del pool,
+ * tiempo de uso, sentencias, filas leídas, bytes de LOB y errores. La operación se toma del método de la
+ * vista que pidió la consulta (o de la etiqueta explícita de {@link DbExecutor#consultar(String, DbExecutor.Consulta)}).
+ * Se desactiva con {@code -Dsici.metricas=false}: las conexiones se entregan sin envolver.
+ */
+public final class Metricas {
+
+    public static final boolean ACTIVAS = !"false".equalsIgnoreCase(System.getProperty("sici.metricas"));
+
+    private static final String PAQUETE = "org.example.sici1.";
+    private static final StackWalker PILA = StackWalker.getInstance();
+    private static final ThreadLocal<String> ETIQUETA = new ThreadLocal<>();
+    private static final Map<String, Operacion> OPERACIONES = new ConcurrentHashMap<>();
+    private static volatile Instant desde = Instant.now();
+
+    private Metricas() {}
+
+    /** Lo acumulado para una operación. */
+    static final class Operacion {
+        final Histograma latencia = new Histograma();
+        final Histograma espera = new Histograma();
+        final LongAdder errores = new LongAdder();
+        final LongAdder sentencias = new LongAdder();
+        final LongAdder filas = new LongAdder();
+        final LongAdder bytesLob = new LongAdder();
+    }
+
+    public record Resumen(String operacion, long llamadas, long errores, long sentencias,
+                          double p50Ms, double p90Ms, double p99Ms, double maxMs, double totalMs,
+                          double esperaP99Ms, double esperaMaxMs, long filas, long bytesLob) {}
+
+    // ===================== Registro =====================
+
+    /** Etiqueta la conexión que se pida dentro de {@code tarea} en este hilo. */
+    static <T> T conEtiqueta(String operacion, DbExecutor.Tarea<T> tarea) throws Exception {
+        String anterior = ETIQUETA.get();
+        ETIQUETA.set(operacion);
+        try {
+            return tarea.ejecutar();
+        } finally {
+            if (anterior == null) ETIQUETA.remove();
+            else ETIQUETA.set(anterior);
+        }
+    }
+
+    /** Operación en curso: la etiqueta del hilo o, si no hay, el primer método de la aplicación en la pila. */
+    static String operacionActual() {
+        String etiqueta = ETIQUETA.get();
+        return etiqueta != null ? etiqueta : llamador();
+    }
+
+    /** {@code Clase.metodo} del primer marco de la aplicación fuera de la capa de datos. */
+    static String llamador() {
+        return PILA.walk(marcos -> marcos
+                .filter(m -> m.getClassName().startsWith(PAQUETE) && !esInfraestructura(m.getClassName()))
+                .findFirst()
+                .map(m -> nombreCorto(m.getClassName()) + "." + metodoLogico(m.getMethodName()))
+                .orElse("desconocida"));
+    }
+
+    static void registrar(String operacion, long esperaNs, long usoNs, long sentencias, long filas,
+                          long bytesLob, boolean error) {
+        Operacion op = OPERACIONES.computeIfAbsent(operacion, k -> new Operacion());
+        op.espera.registrar(esperaNs / 1_000);
+        op.latencia.registrar(usoNs / 1_000);
+        op.sentencias.add(sentencias);
+        op.filas.add(filas);
+        op.bytesLob.add(bytesLob);
+        if (error) op.errores.increment();
+    }
+
+    /** El préstamo falló (pool agotado o BD caída): cuenta como error con su espera. */
+    static void registrarFalloPrestamo(String operacion, long esperaNs) {
+        Operacion op = OPERACIONES.computeIfAbsent(operacion, k -> new Operacion());
+        op.espera.registrar(esperaNs / 1_000);
+        op.errores.increment();
+    }
+
+    // ===================== Consulta =====================
+
+    /** Operaciones ordenadas por tiempo total acumulado (las que más pesan primero). */
+    public static List<Resumen> resumen() {
+        List<Resumen> lista = new ArrayList<>();
+        OPERACIONES.forEach((nombre, op) -> lista.add(new Resumen(nombre,
+                op.latencia.conteo(), op.errores.sum(), op.sentencias.sum(),
+                ms(op.latencia.percentil(0.50)), ms(op.latencia.percentil(0.90)), ms(op.latencia.percentil(0.99)),
+                ms(op.latencia.maximoMicros()), ms(op.latencia.sumaMicros()),
+                ms(op.espera.percentil(0.99)), ms(op.espera.maximoMicros()),
+                op.filas.sum(), op.bytesLob.sum())));
+        lista.sort(Comparator.comparingDouble(Resumen::totalMs).reversed());
+        return lista;
+    }
+
+    public static Instant desde() { return desde; }
+
+    public static void reiniciar() {
+        OPERACIONES.clear();
+        desde = Instant.now();
+    }
+
+    /**
+     * Vuelca el resumen (CSV) y, debajo, los histogramas de latencia de cada operación y los bloqueos
+     * del hilo de JavaFX con su pila ({@link VigilanteFx}).
+     * Se escribe a un temporal y se mueve al final, como las exportaciones.
+     */
+    public static void volcar(Path destino) throws IOException {
+        Path tmp = destino.resolveSibling(destino.getFileName() + ".tmp");
+        try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            w.write("# SICI diagnóstico " + LocalDateTime.now().withNano(0) + " (desde " + desde + ")\n");
+            w.write("# " + Conexion.estadisticas() + "\n");
+            w.write("operacion,llamadas,errores,sentencias,p50_ms,p90_ms,p99_ms,max_ms,total_ms,espera_p99_ms,espera_max_ms,filas,bytes_lob\n");
+            for (Resumen r : resumen()) {
+                w.write(String.format(Locale.ROOT, "%s,%d,%d,%d,%.3f,%.3f,%.3f,%.3f,%.1f,%.3f,%.3f,%d,%d%n",
+                        r.operacion(), r.llamadas(), r.errores(), r.sentencias(), r.p50Ms(), r.p90Ms(), r.p99Ms(),
+                        r.maxMs(), r.totalMs(), r.esperaP99Ms(), r.esperaMaxMs(), r.filas(), r.bytesLob()));
+            }
+            for (Map.Entry<String, Operacion> e : OPERACIONES.entrySet()) {
+                w.write("\n# histograma " + e.getKey() + " (hasta_us,conteo)\n");
+                for (Histograma.Cubeta c : e.getValue().latencia.cubetas()) {
+                    w.write(c.hastaMicros() + "," + c.conteo() + "\n");
+                }
+            }
+            for (VigilanteFx.Resumen b : VigilanteFx.resumen()) {
+                w.write("\n# " + b.tipo() + " " + b.sitio() + ": " + b.veces() + " veces, total " + b.totalMs()
+                        + " ms, máx " + b.maxMs() + " ms\n");
+                w.write(b.pila());
+            }
+        }
+        Files.move(tmp, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // ===================== Utilidades =====================
+
+    private static boolean esInfraestructura(String clase) {
+        String corto = nombreCorto(clase);
+        return corto.equals("Conexion") || corto.equals("DbExecutor") || corto.equals("Metricas")
+                || corto.equals("ConexionMedida");
+    }
+
+    private static String nombreCorto(String clase) {
+        String s = clase.substring(clase.lastIndexOf('.') + 1);
+        int interna = s.indexOf('$');
+        return interna >= 0 ? s.substring(0, interna) : s;
+    }
+
+    /** {@code lambda$cargarBienes$3} → {@code cargarBienes}; {@code <init>} → {@code new}. */
+    private static String metodoLogico(String metodo) {
+        if (metodo.startsWith("lambda$")) {
+            int fin = metodo.indexOf('$', 7);
+            return fin > 7 ? metodo.substring(7, fin) : metodo;
+        }
+        return metodo.equals("<init>") ? "new" : metodo;
+    }
+
+    private static double ms(long micros) {
+        return micros / 1000.0;
+    }
+}
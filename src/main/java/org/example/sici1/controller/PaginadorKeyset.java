@@ -0,0 +1,244 @@
+package org.example.sici1.controller;
+
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.control.IndexedCell;
+import javafx.scene.control.TableView;
+import javafx.scene.control.skin.VirtualFlow;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Modelo paginado por keyset para tablas grandes.
+ * La tabla solo ve una ventana de páginas residentes; al acercarse a un borde se pide la
+ * página vecina (WHERE clave &gt; última / &lt; primera) y se descarta la del extremo opuesto.
+ * La página siguiente se precarga en segundo plano para que el scroll no espere a la BD.
+ * Todo el estado se toca solo desde el hilo de JavaFX, y las páginas llegadas se aplican siempre en una
+ * vuelta posterior de ese hilo: nunca dentro del pintado de la fila que las pidió.
+ */
+public class PaginadorKeyset<T> {
+
+    /**
+     * Carga una página ordenada por la clave en orden binario ({@link Filas#BINARIO}, el de las sesiones del pool).
+     * {@code clave == null} significa "desde el principio".
+     */
+    @FunctionalInterface
+    public interface CargadorPagina<T> {
+        List<T> cargar(Connection cn, String filtro, String clave, boolean haciaAtras, int limite) throws SQLException;
+    }
+
+    private final TableView<T> tabla;
+    private final CargadorPagina<T> cargador;
+    private final Function<T, String> clave;
+    private final int tamanoPagina;
+    private final int maxPaginas;
+    private final int margen;
+
+    private final ObservableList<T> filas = FXCollections.observableArrayList();
+    private final List<Integer> paginas = new ArrayList<>(); // tamaño de cada página residente, en orden
+
+    private String filtro = "";
+    private boolean hayAnteriores, haySiguientes;
+    private boolean cargandoAdelante, cargandoAtras;
+    private CompletableFuture<List<T>> precarga;
+    private int generacion;
+    private Consumer<Throwable> alFallar = e -> {};
+
+    public PaginadorKeyset(TableView<T> tabla, CargadorPagina<T> cargador, Function<T, String> clave,
+                           int tamanoPagina, int maxPaginas) {
+        this.tabla = tabla;
+        this.cargador = cargador;
+        this.clave = clave;
+        this.tamanoPagina = tamanoPagina;
+        this.maxPaginas = Math.max(2, maxPaginas);
+        this.margen = Math.max(1, tamanoPagina / 10);
+    }
+
+    public ObservableList<T> getFilas() { return filas; }
+
+    public void setAlFallar(Consumer<Throwable> alFallar) { this.alFallar = alFallar; }
+
+    /** Cambia el filtro (búsqueda en BD) y vuelve a la primera página. */
+    public void setFiltro(String filtro) {
+        this.filtro = filtro == null ? "" : filtro;
+        reiniciar();
+    }
+
+    /** Descarta la ventana y carga la primera página. El tiempo de primer pintado no depende del tamaño de la tabla. */
+    public void reiniciar() {
+        int gen = ++generacion;
+        filas.clear();
+        paginas.clear();
+        precarga = null;
+        hayAnteriores = false;
+        haySiguientes = false;
+        cargandoAtras = false;
+        cargandoAdelante = true;
+        alTerminar(DbExecutor.conIndicador(tabla, pedir(null, false)), pagina -> {
+            if (gen != generacion) return;
+            cargandoAdelante = false;
+            agregarAlFinal(pagina);
+        }, e -> {
+            if (gen != generacion) return;
+            cargandoAdelante = false;
+            alFallar.accept(e);
+        });
+    }
+
+    /** Avisar cada vez que se pinta una fila; decide si hay que pedir páginas vecinas. */
+    public void alMostrarFila(int indice) {
+        if (indice < 0 || filas.isEmpty()) return;
+        if (indice >= filas.size() - margen) avanzar();
+        else if (indice < margen) retroceder();
+    }
+
+    private void avanzar() {
+        if (!haySiguientes || cargandoAdelante) return;
+        int gen = generacion;
+        CompletableFuture<List<T>> futuro = precarga != null ? precarga : pedir(ultimaClave(), false);
+        precarga = null;
+        cargandoAdelante = true;
+        alTerminar(futuro, pagina -> {
+            if (gen != generacion) return;
+            cargandoAdelante = false;
+            agregarAlFinal(pagina);
+        }, e -> {
+            if (gen != generacion) return;
+            cargandoAdelante = false;
+            alFallar.accept(e);
+        });
+    }
+
+    private void retroceder() {
+        if (!hayAnteriores || cargandoAtras) return;
+        int gen = generacion;
+        cargandoAtras = true;
+        alTerminar(pedir(primeraClave(), true), pagina -> {
+            if (gen != generacion) return;
+            cargandoAtras = false;
+            agregarAlInicio(pagina);
+        }, e -> {
+            if (gen != generacion) return;
+            cargandoAtras = false;
+            alFallar.accept(e);
+        });
+    }
+
+    private void agregarAlFinal(List<T> pagina) {
+        haySiguientes = pagina.size() == tamanoPagina;
+        if (pagina.isEmpty()) return;
+        filas.addAll(pagina);
+        paginas.add(pagina.size());
+        if (paginas.size() > maxPaginas) {
+            int primeraVisible = primeraFilaVisible();
+            int quitadas = paginas.remove(0);
+            filas.remove(0, quitadas);
+            hayAnteriores = true;
+            tabla.scrollTo(Math.max(0, primeraVisible - quitadas));
+        }
+        if (haySiguientes) precarga = pedir(ultimaClave(), false);
+    }
+
+    private void agregarAlInicio(List<T> pagina) {
+        hayAnteriores = pagina.size() == tamanoPagina;
+        if (pagina.isEmpty()) return;
+        int primeraVisible = primeraFilaVisible();
+        filas.addAll(0, pagina);
+        paginas.add(0, pagina.size());
+        if (paginas.size() > maxPaginas) {
+            int quitadas = paginas.remove(paginas.size() - 1);
+            filas.remove(filas.size() - quitadas, filas.size());
+            haySiguientes = true;
+            precarga = null;
+        }
+        tabla.scrollTo(primeraVisible + pagina.size());
+    }
+
+    // ===== Parches tras escrituras (sin recargar la ventana) =====
+
+    public T buscar(String claveBuscada) {
+        return Filas.buscar(filas, f -> claveBuscada.equals(clave.apply(f)));
+    }
+
+    /** Inserta la fila en orden si su clave cae dentro del rango residente y cumple el filtro; si no, aparecerá al paginar. */
+    public void insertar(T fila) {
+        String k = clave.apply(fila);
+        if (!filtro.isEmpty() && !k.toUpperCase().contains(filtro.toUpperCase())) return;
+        if (hayAnteriores && !filas.isEmpty() && Filas.BINARIO.compare(k, primeraClave()) < 0) return;
+        if (haySiguientes && !filas.isEmpty() && Filas.BINARIO.compare(k, ultimaClave()) > 0) return;
+        int i = Filas.insertarOrdenado(filas, fila, Comparator.comparing(clave, Filas.BINARIO));
+        if (paginas.isEmpty()) {
+            paginas.add(1);
+        } else {
+            // En un borde entre páginas cuenta para la anterior (la posición 0 es de la primera)
+            int p = paginaDe(Math.max(0, i - 1));
+            paginas.set(p, paginas.get(p) + 1);
+        }
+        precarga = null; // la clave de continuación pudo cambiar
+    }
+
+    public void quitar(String claveQuitada) {
+        int i = -1;
+        for (int k = 0; k < filas.size() && i < 0; k++) {
+            if (claveQuitada.equals(clave.apply(filas.get(k)))) i = k;
+        }
+        if (i < 0) return;
+        int p = paginaDe(i);
+        filas.remove(i);
+        if (paginas.get(p) > 1) paginas.set(p, paginas.get(p) - 1);
+        else paginas.remove(p); // página vacía: deja de contar para el descarte por extremos
+        precarga = null;
+    }
+
+    /** Índice de la página residente que contiene la fila {@code indice} de {@link #filas}. */
+    private int paginaDe(int indice) {
+        int acumulado = 0;
+        for (int p = 0; p < paginas.size(); p++) {
+            acumulado += paginas.get(p);
+            if (indice < acumulado) return p;
+        }
+        return paginas.size() - 1;
+    }
+
+    /**
+     * Como {@link DbExecutor#enFx}, pero siempre en una vuelta posterior del hilo de JavaFX. Con la precarga
+     * ya terminada, {@code enFx} correría en línea dentro de {@link #alMostrarFila}, o sea, cambiando
+     * {@link #filas} y el scroll a mitad del pintado de la tabla.
+     */
+    private static <R> void alTerminar(CompletableFuture<R> futuro, Consumer<R> ok, Consumer<Throwable> error) {
+        futuro.whenComplete((valor, ex) -> Platform.runLater(() -> {
+            if (ex == null) ok.accept(valor);
+            else error.accept(DbExecutor.causa(ex));
+        }));
+    }
+
+    private CompletableFuture<List<T>> pedir(String desde, boolean haciaAtras) {
+        String f = filtro;
+        return DbExecutor.consultar(cn -> {
+            List<T> pagina = cargador.cargar(cn, f, desde, haciaAtras, tamanoPagina);
+            if (haciaAtras) Collections.reverse(pagina);
+            return pagina;
+        });
+    }
+
+    private String primeraClave() { return filas.isEmpty() ? null : clave.apply(filas.get(0)); }
+
+    private String ultimaClave() { return filas.isEmpty() ? null : clave.apply(filas.get(filas.size() - 1)); }
+
+    private int primeraFilaVisible() {
+        if (tabla.lookup(".virtual-flow") instanceof VirtualFlow<?> flow) {
+            IndexedCell<?> celda = flow.getFirstVisibleCell();
+            if (celda != null) return celda.getIndex();
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,153 @@
+package org.example.sici1.controller;
+
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.value.ObservableValue;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableRow;
+import javafx.scene.control.TableView;
+import javafx.scene.control.Tooltip;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
+import javafx.stage.Window;
+import javafx.util.Duration;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Panel de diagnóstico (solo administradores): latencias por operación de BD, espera del pool,
+ * filas y bytes de LOB leídos desde que arrancó la aplicación (o desde el último reinicio), el uso de la
+ * cache de imágenes de bienes, más los bloqueos del hilo de JavaFX que detectó {@link VigilanteFx}.
+ * Se refresca solo mientras está en pantalla y su ventana se muestra.
+ */
+public class PanelDiagnostico extends VBox {
+
+    private static final DateTimeFormatter ARCHIVO = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final TableView<Metricas.Resumen> tabla = new TableView<>();
+    private final TableView<VigilanteFx.Resumen> tablaFx = new TableView<>();
+    private final Label lblPool = new Label();
+    private final Label lblImagenes = new Label();
+    private final Timeline refresco = new Timeline(new KeyFrame(Duration.seconds(2), e -> actualizar()));
+    private final ObservableValue<Boolean> enPantalla; // referencia fuerte: el binding de flatMap no se recolecta
+
+    public PanelDiagnostico() {
+        super(12);
+        setPadding(new Insets(24));
+
+        Label titulo = new Label("Diagnóstico de acceso a datos");
+        titulo.setStyle("-fx-font-size: 22px; -fx-font-weight: bold; -fx-text-fill: #4361EE;");
+        lblPool.setStyle("-fx-text-fill: #4A5568;");
+        lblImagenes.setStyle("-fx-text-fill: #4A5568;");
+
+        tabla.getColumns().add(columna("Operación", 240, Metricas.Resumen::operacion));
+        tabla.getColumns().add(columna("Llamadas", 80, Metricas.Resumen::llamadas));
+        tabla.getColumns().add(columna("Errores", 70, Metricas.Resumen::errores));
+        tabla.getColumns().add(columna("p50 ms", 80, r -> ms(r.p50Ms())));
+        tabla.getColumns().add(columna("p90 ms", 80, r -> ms(r.p90Ms())));
+        tabla.getColumns().add(columna("p99 ms", 80, r -> ms(r.p99Ms())));
+        tabla.getColumns().add(columna("Máx ms", 80, r -> ms(r.maxMs())));
+        tabla.getColumns().add(columna("Total s", 80, r -> String.format(Locale.ROOT, "%.1f", r.totalMs() / 1000)));
+        tabla.getColumns().add(columna("Espera pool p99", 110, r -> ms(r.esperaP99Ms())));
+        tabla.getColumns().add(columna("Filas", 90, Metricas.Resumen::filas));
+        tabla.getColumns().add(columna("LOB KB", 80, r -> r.bytesLob() / 1024));
+        tabla.setPlaceholder(new Label(Metricas.ACTIVAS ? "Aún no hay consultas registradas."
+                : "Métricas desactivadas (-Dsici.metricas=false)."));
+        VBox.setVgrow(tabla, Priority.ALWAYS);
+
+        Label tituloFx = new Label("Bloqueos del hilo de JavaFX (más de " + VigilanteFx.UMBRAL_MS + " ms) y BD en el hilo de JavaFX");
+        tituloFx.setStyle("-fx-font-size: 15px; -fx-font-weight: bold; -fx-text-fill: #4A5568;");
+        tablaFx.getColumns().add(columna("Tipo", 90, VigilanteFx.Resumen::tipo));
+        tablaFx.getColumns().add(columna("Sitio", 420, VigilanteFx.Resumen::sitio));
+        tablaFx.getColumns().add(columna("Veces", 70, VigilanteFx.Resumen::veces));
+        tablaFx.getColumns().add(columna("Total ms", 90, VigilanteFx.Resumen::totalMs));
+        tablaFx.getColumns().add(columna("Máx ms", 80, VigilanteFx.Resumen::maxMs));
+        tablaFx.setPlaceholder(new Label("Sin bloqueos registrados."));
+        tablaFx.setPrefHeight(180);
+        // La pila completa del sitio, al pasar el cursor
+        tablaFx.setRowFactory(tv -> {
+            TableRow<VigilanteFx.Resumen> fila = new TableRow<>();
+            fila.itemProperty().addListener((obs, antes, r) ->
+                    fila.setTooltip(r == null || r.pila() == null ? null : new Tooltip(r.pila())));
+            return fila;
+        });
+
+        Button btnActualizar = new Button("Actualizar");
+        btnActualizar.setOnAction(e -> actualizar());
+        Button btnReiniciar = new Button("Reiniciar");
+        btnReiniciar.setOnAction(e -> { Metricas.reiniciar(); VigilanteFx.reiniciar(); actualizar(); });
+        Button btnGuardar = new Button("Guardar en archivo…");
+        btnGuardar.setOnAction(e -> guardar());
+        HBox barra = new HBox(10, btnActualizar, btnReiniciar, btnGuardar);
+
+        getChildren().addAll(titulo, lblPool, lblImagenes, barra, tabla, tituloFx, tablaFx);
+
+        refresco.setCycleCount(Timeline.INDEFINITE);
+        // Corre solo con el panel en una escena cuya ventana está visible: sacarlo de la escena u ocultar
+        // la ventana lo detiene
+        enPantalla = sceneProperty().flatMap(Scene::windowProperty).flatMap(Window::showingProperty).orElse(false);
+        enPantalla.subscribe(visible -> {
+            if (visible) { actualizar(); refresco.play(); }
+            else refresco.stop();
+        });
+    }
+
+    private void actualizar() {
+        tabla.getItems().setAll(Metricas.resumen());
+        tablaFx.getItems().setAll(VigilanteFx.resumen());
+        lblPool.setText(Conexion.estadisticas() + "   ·   desde " + Metricas.desde());
+        CacheImagenes.Estadisticas img = BienesView.estadisticasImagenes();
+        lblImagenes.setText(String.format(Locale.ROOT,
+                "Cache de imágenes: %d entradas, %.1f de %.1f MB   ·   %.0f %% aciertos (%d/%d)   ·   %d desalojos",
+                img.entradas(), img.bytes() / 1048576.0, img.maxBytes() / 1048576.0, img.tasaAciertos() * 100,
+                img.aciertos(), img.aciertos() + img.fallos(), img.desalojos()));
+    }
+
+    private void guardar() {
+        FileChooser fc = new FileChooser();
+        fc.setTitle("Guardar diagnóstico");
+        fc.setInitialFileName("sici-diagnostico-" + LocalDateTime.now().format(ARCHIVO) + ".csv");
+        fc.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV", "*.csv"));
+        File f = fc.showSaveDialog(getScene().getWindow());
+        if (f == null) return;
+        Path destino = f.toPath();
+        DbExecutor.enFx(DbExecutor.supply(() -> { Metricas.volcar(destino); return destino; }),
+                p -> mostrarAlerta("Diagnóstico guardado en " + p, Alert.AlertType.INFORMATION),
+                ex -> {
+                    ex.printStackTrace();
+                    mostrarAlerta("No se pudo guardar el diagnóstico: " + ex.getMessage(), Alert.AlertType.ERROR);
+                });
+    }
+
+    private static <S, T> TableColumn<S, T> columna(String titulo, double ancho, Function<S, T> valor) {
+        TableColumn<S, T> c = new TableColumn<>(titulo);
+        c.setPrefWidth(ancho);
+        c.setCellValueFactory(d -> new SimpleObjectProperty<>(valor.apply(d.getValue())));
+        return c;
+    }
+
+    private static String ms(double v) {
+        return String.format(Locale.ROOT, "%.1f", v);
+    }
+
+    private void mostrarAlerta(String mensaje, Alert.AlertType tipo) {
+        Alert alert = new Alert(tipo);
+        alert.setTitle("Diagnóstico");
+        alert.setHeaderText(null);
+        alert.setContentText(mensaje);
+        alert.showAndWait();
+    }
+}
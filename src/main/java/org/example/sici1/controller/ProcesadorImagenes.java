@@ -0,0 +1,109 @@
+package org.example.sici1.controller;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Prepara las fotos de bienes al subirlas: una miniatura para la UI y una versión completa
+ * con resolución tope, ambas re-codificadas a JPEG. Así en la BD ya no terminan fotos de 5–10 MB
+ * y las vistas solo decodifican la miniatura. Pensado para correr fuera del hilo de JavaFX.
+ */
+public final class ProcesadorImagenes {
+
+    /** Lado mayor de la miniatura: cubre los ImageView de 110 y 220 px. */
+    public static final int LADO_MINIATURA = 220;
+    /** Lado mayor de la imagen completa que se guarda. */
+    public static final int LADO_COMPLETA = 1600;
+
+    private static final float CALIDAD_MINIATURA = 0.80f;
+    private static final float CALIDAD_COMPLETA = 0.85f;
+
+    private ProcesadorImagenes() {}
+
+    public record ImagenProcesada(byte[] miniatura, byte[] completa) {}
+
+    public static ImagenProcesada procesar(byte[] original) throws IOException {
+        BufferedImage img = ImageIO.read(new ByteArrayInputStream(original));
+        if (img == null) throw new IOException("Formato de imagen no soportado");
+
+        BufferedImage completa = escalar(img, LADO_COMPLETA);
+        BufferedImage miniatura = escalar(completa, LADO_MINIATURA);
+        return new ImagenProcesada(
+                codificarJpeg(miniatura, CALIDAD_MINIATURA),
+                codificarJpeg(completa, CALIDAD_COMPLETA)
+        );
+    }
+
+    /**
+     * Reduce a lo sumo a {@code ladoMax} conservando proporción. Baja a la mitad en pasos
+     * sucesivos antes del ajuste final: con un solo paso bilineal las reducciones grandes quedan dentadas.
+     */
+    static BufferedImage escalar(BufferedImage origen, int ladoMax) {
+        int w = origen.getWidth(), h = origen.getHeight();
+        double factor = Math.min(1.0, (double) ladoMax / Math.max(w, h));
+        int destW = Math.max(1, (int) Math.round(w * factor));
+        int destH = Math.max(1, (int) Math.round(h * factor));
+
+        BufferedImage actual = aRgb(origen);
+        while (actual.getWidth() / 2 >= destW && actual.getHeight() / 2 >= destH) {
+            actual = redimensionar(actual, actual.getWidth() / 2, actual.getHeight() / 2);
+        }
+        if (actual.getWidth() != destW || actual.getHeight() != destH) {
+            actual = redimensionar(actual, destW, destH);
+        }
+        return actual;
+    }
+
+    private static BufferedImage redimensionar(BufferedImage src, int w, int h) {
+        BufferedImage dst = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = dst.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(src, 0, 0, w, h, null);
+        } finally {
+            g.dispose();
+        }
+        return dst;
+    }
+
+    /** JPEG no tiene canal alfa: los PNG transparentes se aplanan sobre blanco. */
+    private static BufferedImage aRgb(BufferedImage src) {
+        if (src.getType() == BufferedImage.TYPE_INT_RGB) return src;
+        BufferedImage rgb = new BufferedImage(src.getWidth(), src.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, src.getWidth(), src.getHeight());
+            g.drawImage(src, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return rgb;
+    }
+
+    private static byte[] codificarJpeg(BufferedImage img, float calidad) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(calidad);
+            writer.write(null, new IIOImage(img, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,391 @@
+package org.example.sici1.controller;
+
+import oracle.ucp.admin.UniversalConnectionPoolManagerImpl;
+import oracle.ucp.jdbc.PoolDataSource;
+import oracle.ucp.jdbc.PoolDataSourceFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Prueba de carga de la captura de inventario, sin interfaz: N operadores simultáneos repiten el flujo de
+ * {@code AsignacionesView} (crear encabezado → agregar bienes por código → desasignarlos) con la misma
+ * escritura que la pantalla ({@link Asignaciones#crearInventario}, {@link LoteEscaneo#resolver}).
+ * Cada paso pide su propia conexión, como la pantalla, así que se ve cuándo se satura el pool.
+ * <pre>
+ *   java -cp SICI1.jar org.example.sici1.controller.PruebaCargaCaptura \
+ *        --destino embebida --operadores 30 --segundos 60 --pensar 300 --latencia 20
+ * </pre>
+ * Destinos:
+ * <ul>
+ *   <li>{@code embebida} (por omisión): H2 en memoria en modo Oracle con las tablas de la captura y
+ *       {@code --bienes} bienes sintéticos, detrás de un pool UCP de {@code --pool} conexiones. El driver
+ *       de H2 solo entra al jar construido con el perfil {@code carga} ({@code mvn -Pcarga package}).</li>
+ *   <li>{@code jdbc}: cualquier BD con el esquema de SICI ({@code --url --usuario --clave}), con su propio pool.</li>
+ *   <li>{@code app}: el pool de la aplicación ({@link Conexion}); también alimenta {@link Metricas}.</li>
+ * </ul>
+ * {@code --pensar} es el tiempo medio entre escaneos del operador (±50 %) y {@code --latencia} se suma a cada
+ * ida y vuelta a la BD (ejecutar, commit, rollback) para simular la red hasta la BD en la nube.
+ * Con {@code jdbc}/{@code app}, {@code --unidad --espacio --empleado} deben existir; los encabezados creados
+ * se borran al terminar cada ciclo. A diferencia de la pantalla, no se busca antes un encabezado existente:
+ * todos los operadores usan la misma UA + espacio + fecha y cada uno necesita el suyo para poder borrarlo.
+ */
+public final class PruebaCargaCaptura {
+
+    private static final String URL_EMBEBIDA = "jdbc:h2:mem:sici_carga;MODE=Oracle;DB_CLOSE_DELAY=-1";
+
+    enum Paso { ENCABEZADO, ESCANEO, DESASIGNAR, LIMPIEZA }
+
+    /** Lo acumulado de un paso: latencia total (incluye la espera del pool) y la espera del pool sola. */
+    private static final class Medida {
+        final Histograma latencia = new Histograma();
+        final Histograma espera = new Histograma();
+        final LongAdder errores = new LongAdder();
+    }
+
+    @FunctionalInterface
+    private interface Trabajo<T> {
+        T con(Connection cn) throws SQLException;
+    }
+
+    private final Map<Paso, Medida> medidas = new EnumMap<>(Paso.class);
+    private final LongAdder ciclos = new LongAdder();
+    private final LongAdder agregados = new LongAdder();
+    private final LongAdder repetidos = new LongAdder();
+    private final LongAdder noExisten = new LongAdder();
+
+    private String destino = "embebida";
+    private String url;
+    private String usuario;
+    private String clave;
+    private int operadores = 15;
+    private int segundos = 60;
+    private int escaneosPorCiclo = 20;
+    private long pensarMs = 500;
+    private long latenciaMs = 0;
+    private int pool = 15;
+    private int bienes = 20_000;
+    private long unidad = 1;
+    private long espacio = 1;
+    private long empleado = 1;
+
+    private PoolDataSource pds;
+    private List<String> codigos;
+    private volatile long finNs;
+
+    public static void main(String[] args) throws Exception {
+        PruebaCargaCaptura p = new PruebaCargaCaptura();
+        p.leerOpciones(args);
+        p.preparar();
+        p.correr();
+    }
+
+    private void leerOpciones(String[] args) {
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String v = args[i + 1];
+            switch (args[i]) {
+                case "--destino" -> destino = v;
+                case "--url" -> url = v;
+                case "--usuario" -> usuario = v;
+                case "--clave" -> clave = v;
+                case "--operadores" -> operadores = Integer.parseInt(v);
+                case "--segundos" -> segundos = Integer.parseInt(v);
+                case "--escaneos" -> escaneosPorCiclo = Integer.parseInt(v);
+                case "--pensar" -> pensarMs = Long.parseLong(v);
+                case "--latencia" -> latenciaMs = Long.parseLong(v);
+                case "--pool" -> pool = Integer.parseInt(v);
+                case "--bienes" -> bienes = Integer.parseInt(v);
+                case "--unidad" -> unidad = Long.parseLong(v);
+                case "--espacio" -> espacio = Long.parseLong(v);
+                case "--empleado" -> empleado = Long.parseLong(v);
+                default -> throw new IllegalArgumentException("Opción desconocida: " + args[i]);
+            }
+        }
+        if (destino.equals("jdbc") && url == null) throw new IllegalArgumentException("--destino jdbc requiere --url");
+        for (Paso p : Paso.values()) medidas.put(p, new Medida());
+    }
+
+    // ===================== Destino =====================
+
+    private void preparar() throws SQLException {
+        switch (destino) {
+            case "embebida" -> {
+                try {
+                    Class.forName("org.h2.Driver");
+                } catch (ClassNotFoundException e) {
+                    throw new IllegalStateException("--destino embebida requiere H2 en el classpath (mvn -Pcarga package)", e);
+                }
+                crearEsquemaEmbebido();
+                pds = crearPool(URL_EMBEBIDA, "org.h2.Driver", "sa", "");
+            }
+            case "jdbc" -> pds = crearPool(url,
+                    url.startsWith("jdbc:oracle:") ? "oracle.jdbc.pool.OracleDataSource"
+                            : DriverManager.getDriver(url).getClass().getName(),
+                    usuario, clave);
+            case "app" -> pds = null;
+            default -> throw new IllegalArgumentException("Destino desconocido: " + destino + " (embebida, jdbc o app)");
+        }
+        try (Connection cn = prestar();
+             PreparedStatement ps = cn.prepareStatement(
+                     "SELECT codigo_inventario FROM bienes ORDER BY id_bien FETCH FIRST ? ROWS ONLY")) {
+            ps.setInt(1, Math.max(bienes, 1));
+            List<String> lista = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) lista.add(rs.getString(1));
+            }
+            if (lista.isEmpty()) throw new SQLException("El destino no tiene bienes que escanear");
+            codigos = lista;
+        }
+    }
+
+    /** Mismos parámetros que el pool de la aplicación, salvo el tamaño. */
+    private PoolDataSource crearPool(String url, String fabrica, String usuario, String clave) throws SQLException {
+        PoolDataSource p = PoolDataSourceFactory.getPoolDataSource();
+        p.setConnectionPoolName("SICI_CARGA");
+        p.setConnectionFactoryClassName(fabrica);
+        p.setURL(url);
+        if (usuario != null) p.setUser(usuario);
+        if (clave != null) p.setPassword(clave);
+        p.setInitialPoolSize(Math.min(3, pool));
+        p.setMinPoolSize(Math.min(3, pool));
+        p.setMaxPoolSize(pool);
+        p.setValidateConnectionOnBorrow(true);
+        p.setConnectionWaitTimeout(60);
+        return p;
+    }
+
+    /** Las tablas que toca la captura, con los nombres de columnas de producción. */
+    private void crearEsquemaEmbebido() throws SQLException {
+        try (Connection cn = DriverManager.getConnection(URL_EMBEBIDA, "sa", "");
+             Statement st = cn.createStatement()) {
+            st.execute("""
+                CREATE TABLE BIENES (
+                    ID_BIEN NUMBER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                    CODIGO_INVENTARIO VARCHAR2(60) NOT NULL UNIQUE,
+                    DESCRIPCION VARCHAR2(200),
+                    ESTADO VARCHAR2(30))
+                """);
+            st.execute("CREATE INDEX IX_BIENES_CODIGO ON BIENES (UPPER(CODIGO_INVENTARIO))");
+            st.execute("""
+                CREATE TABLE INVENTARIO (
+                    ID_INVENTARIO NUMBER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                    ID_UNIDAD_ADMINISTRATIVA NUMBER NOT NULL,
+                    ID_UNIDAD NUMBER NOT NULL,
+                    ID_EMPLEADO NUMBER NOT NULL,
+                    FECHA DATE NOT NULL,
+                    ACTIVO CHAR(1) DEFAULT 'S',
+                    CREADO_EN TIMESTAMP,
+                    ACTUALIZADO_EN TIMESTAMP)
+                """);
+            st.execute("""
+                CREATE TABLE DETALLE_INVENTARIO (
+                    ID_DETALLE NUMBER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                    ID_INVENTARIO NUMBER NOT NULL,
+                    ID_BIEN NUMBER NOT NULL,
+                    ACTIVO CHAR(1) DEFAULT 'S',
+                    CONSTRAINT UQ_DETALLE_INV_BIEN UNIQUE (ID_INVENTARIO, ID_BIEN))
+                """);
+            cn.setAutoCommit(false);
+            try (PreparedStatement ps = cn.prepareStatement(
+                    "INSERT INTO BIENES (CODIGO_INVENTARIO, DESCRIPCION, ESTADO) VALUES (?, ?, 'BUENO')")) {
+                for (int i = 1; i <= bienes; i++) {
+                    ps.setString(1, String.format("CARGA-%06d", i));
+                    ps.setString(2, "Bien de prueba " + i);
+                    ps.addBatch();
+                    if (i % 1000 == 0) ps.executeBatch();
+                }
+                ps.executeBatch();
+            }
+            cn.commit();
+        }
+    }
+
+    private Connection prestar() throws SQLException {
+        return pds != null ? pds.getConnection() : Conexion.conectar();
+    }
+
+    private Conexion.EstadisticasPool estadoPool() {
+        return pds != null ? Conexion.estadisticas(pds) : Conexion.estadisticas();
+    }
+
+    // ===================== Operadores =====================
+
+    private void correr() throws InterruptedException {
+        System.out.printf(Locale.ROOT, "Carga: %d operadores, %d s, destino %s, %d escaneos por ciclo, pensar %d ms, latencia %d ms%s%n",
+                operadores, segundos, destino, escaneosPorCiclo, pensarMs, latenciaMs,
+                pds != null ? ", pool " + pool : "");
+        long inicio = System.nanoTime();
+        finNs = inicio + segundos * 1_000_000_000L;
+
+        Thread avance = Thread.ofPlatform().daemon().name("sici-carga-avance").start(() -> {
+            try {
+                while (true) {
+                    Thread.sleep(10_000);
+                    System.out.printf(Locale.ROOT, "  %3d s: %d escaneos, %d ciclos, %s%n",
+                            (System.nanoTime() - inicio) / 1_000_000_000L,
+                            medidas.get(Paso.ESCANEO).latencia.conteo(), ciclos.sum(), estadoPool());
+                }
+            } catch (InterruptedException ignored) {
+            }
+        });
+        try (ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < operadores; i++) hilos.submit(this::operar);
+        }
+        avance.interrupt();
+        reportar(System.nanoTime() - inicio);
+        if (pds != null) cerrarPool();
+    }
+
+    /** Un operador: ciclos completos hasta que se acabe el tiempo; el último ciclo siempre se desasigna. */
+    private Void operar() throws InterruptedException {
+        Thread.sleep(ThreadLocalRandom.current().nextLong(pensarMs + 1)); // que no arranquen todos a la vez
+        while (!terminado()) {
+            Long idInventario = medir(Paso.ENCABEZADO, cn -> {
+                return Asignaciones.crearInventario(cn, unidad, espacio, empleado, LocalDate.now());
+            });
+            if (idInventario == null) {
+                pensar();
+                continue;
+            }
+
+            List<Long> detalles = new ArrayList<>();
+            for (int k = 0; k < escaneosPorCiclo && !terminado(); k++) {
+                pensar();
+                String codigo = codigos.get(ThreadLocalRandom.current().nextInt(codigos.size()));
+                LoteEscaneo.Escaneo escaneo = new LoteEscaneo.Escaneo(idInventario, codigo, k);
+                LoteEscaneo.Salida s = medir(Paso.ESCANEO, cn -> LoteEscaneo.resolver(cn, List.of(escaneo)).get(0));
+                if (s == null) continue;
+                switch (s.resultado()) {
+                    case AGREGADO -> {
+                        agregados.increment();
+                        detalles.add(s.fila().getIdDetalle());
+                    }
+                    case REPETIDO -> repetidos.increment();
+                    case NO_EXISTE -> noExisten.increment();
+                }
+            }
+
+            for (long idDetalle : detalles) {
+                if (!terminado()) pensar();
+                medir(Paso.DESASIGNAR, cn -> ejecutar(cn, "DELETE FROM DETALLE_INVENTARIO WHERE ID_DETALLE = ?", idDetalle));
+            }
+            // Lo que quedó (escaneos fallidos a medias) se borra con el encabezado
+            medir(Paso.LIMPIEZA, cn -> ejecutar(cn, "DELETE FROM DETALLE_INVENTARIO WHERE ID_INVENTARIO = ?", idInventario)
+                    + ejecutar(cn, "DELETE FROM INVENTARIO WHERE ID_INVENTARIO = ?", idInventario));
+            ciclos.increment();
+        }
+        return null;
+    }
+
+    private boolean terminado() {
+        return System.nanoTime() >= finNs;
+    }
+
+    private void pensar() throws InterruptedException {
+        if (pensarMs <= 0) return;
+        Thread.sleep(pensarMs / 2 + ThreadLocalRandom.current().nextLong(pensarMs + 1));
+    }
+
+    private static int ejecutar(Connection cn, String sql, long id) throws SQLException {
+        try (PreparedStatement ps = cn.prepareStatement(sql)) {
+            ps.setLong(1, id);
+            return ps.executeUpdate();
+        }
+    }
+
+    /** Pide conexión, ejecuta y registra; un error se cuenta y devuelve null para que el operador siga. */
+    private <T> T medir(Paso paso, Trabajo<T> trabajo) {
+        Medida m = medidas.get(paso);
+        long inicio = System.nanoTime();
+        boolean prestada = false;
+        try (Connection cn = prestar()) {
+            prestada = true;
+            m.espera.registrar((System.nanoTime() - inicio) / 1_000);
+            return trabajo.con(latenciaMs > 0 ? conLatencia(cn, latenciaMs) : cn);
+        } catch (SQLException e) {
+            if (!prestada) m.espera.registrar((System.nanoTime() - inicio) / 1_000);
+            m.errores.increment();
+            if (m.errores.sum() <= 5) System.out.println(paso + ": " + e.getMessage());
+            return null;
+        } finally {
+            m.latencia.registrar((System.nanoTime() - inicio) / 1_000);
+        }
+    }
+
+    // ===================== Latencia simulada =====================
+
+    /** Envuelve la conexión (y sus sentencias) para dormir {@code ms} en cada ida y vuelta a la BD. */
+    private static Connection conLatencia(Connection cn, long ms) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new Retraso(cn, ms));
+    }
+
+    private record Retraso(Object real, long ms) implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            String nombre = metodo.getName();
+            if (nombre.startsWith("execute") || nombre.equals("commit") || nombre.equals("rollback")) {
+                Thread.sleep(ms);
+            }
+            Object r;
+            try {
+                r = metodo.invoke(real, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (r instanceof Statement st && metodo.getReturnType().isInterface()
+                    && Statement.class.isAssignableFrom(metodo.getReturnType())) {
+                return Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                        new Class<?>[]{metodo.getReturnType()}, new Retraso(st, ms));
+            }
+            return r;
+        }
+    }
+
+    // ===================== Reporte =====================
+
+    private void reportar(long duracionNs) {
+        double seg = duracionNs / 1e9;
+        long escaneos = medidas.get(Paso.ESCANEO).latencia.conteo();
+        System.out.printf(Locale.ROOT, "%nCiclos: %d  Escaneos: %d (agregados %d, repetidos %d, no existen %d) → %.1f escaneos/s%n",
+                ciclos.sum(), escaneos, agregados.sum(), repetidos.sum(), noExisten.sum(), escaneos / seg);
+        System.out.println("paso          llamadas  errores   p50 ms   p90 ms   p99 ms   máx ms | espera pool p50   p99   máx");
+        for (Map.Entry<Paso, Medida> e : medidas.entrySet()) {
+            Histograma l = e.getValue().latencia;
+            Histograma w = e.getValue().espera;
+            System.out.printf(Locale.ROOT, "%-12s %9d %8d %8.1f %8.1f %8.1f %8.1f | %15.1f %5.1f %5.1f%n",
+                    e.getKey(), l.conteo(), e.getValue().errores.sum(),
+                    l.percentil(0.50) / 1000.0, l.percentil(0.90) / 1000.0, l.percentil(0.99) / 1000.0,
+                    l.maximoMicros() / 1000.0,
+                    w.percentil(0.50) / 1000.0, w.percentil(0.99) / 1000.0, w.maximoMicros() / 1000.0);
+        }
+        System.out.println(estadoPool());
+    }
+
+    private void cerrarPool() {
+        try {
+            UniversalConnectionPoolManagerImpl.getUniversalConnectionPoolManager()
+                    .destroyConnectionPool(pds.getConnectionPoolName());
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
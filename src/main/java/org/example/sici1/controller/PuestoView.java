@@ -1,5 +1,6 @@
 package org.example.sici1.controller;
 
+import javafx.beans.Observable;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -9,23 +10,29 @@ import javafx.scene.control.*;
 import javafx.scene.input.MouseButton;
 
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
-public class PuestoView {
+public class PuestoView implements VistaActivable {
 
     @FXML private TableView<Puesto> tablePuestos;
     @FXML private TableColumn<Puesto, String> colNombre, colEstado;
     @FXML private TextField txtBuscar;
     @FXML private Button btnNuevo, btnBuscar, btnEditar;
 
-    private final ObservableList<Puesto> puestos = FXCollections.observableArrayList();
+    // Con extractor: editar una fila en sitio avisa a la lista (filtro y claves de búsqueda)
+    private final ObservableList<Puesto> puestos = FXCollections.observableArrayList(
+            p -> new Observable[]{p.nombreProperty(), p.estadoProperty()});
     private final FilteredList<Puesto> puestosFiltrados = new FilteredList<>(puestos);
+    private BuscadorDiferido<Puesto> buscador;
+    private SincronizadorCatalogos.Suscripcion<Puesto> cambios;
 
     // === PERMISOS ===
-    private final String userRole = UserSession.getInstance().getRole();
-    private final boolean isAdmin = "ADMIN".equalsIgnoreCase(userRole); // <-- Solo admin modifica
+    private final boolean isAdmin = Sesion.actual().tiene(Sesion.Permiso.EDITAR_CATALOGOS); // <-- Solo admin modifica
 
-    private static final String SCHEMA_OWNER = "ADMIN";
 
     @FXML
     public void initialize() {
@@ -38,6 +45,15 @@ public class PuestoView {
 
         tablePuestos.setItems(puestosFiltrados);
 
+        // Cambios de otros operadores (antes de la carga inicial para no perder ninguno)
+        cambios = SincronizadorCatalogos.suscribir("puestos",
+                "SELECT id_puesto, nombre, activo, actualizado_en FROM puestos WHERE actualizado_en > ?",
+                rs -> new Puesto(rs.getLong("id_puesto"), rs.getString("nombre"),
+                        "S".equals(rs.getString("activo")) ? "Activo" : "Inactivo"),
+                this::fusionarCambios,
+                "id_puesto", this::quitarBorrados
+        );
+
         cargarPuestos();
 
         if (isAdmin) configurarAccionesAdmin();
@@ -49,9 +65,9 @@ public class PuestoView {
     }
 
     private void configurarBuscador() {
+        buscador = new BuscadorDiferido<>(txtBuscar, puestosFiltrados, p -> new String[]{p.getNombre()});
         btnBuscar.setOnAction(e -> buscarPuestos());
         txtBuscar.setOnAction(e -> buscarPuestos());
-        txtBuscar.textProperty().addListener((obs, oldVal, newVal) -> buscarPuestos());
     }
 
     private void configurarAccionesAdmin() {
@@ -77,6 +93,15 @@ public class PuestoView {
         });
     }
 
+    // ---- Ciclo de vida en caché (GestorVistas) ----
+    @Override public void alActivar() { cambios.reanudar(); }
+
+    @Override public void alDesactivar() { cambios.pausar(); }
+
+    @Override public void alDescartar() { cambios.cancelar(); }
+
+    @Override public long memoriaEstimada() { return BYTES_BASE + puestos.size() * BYTES_POR_FILA; }
+
     // ---- Acciones de UI ----
 
     private void editarSeleccionado() {
@@ -115,10 +140,7 @@ public class PuestoView {
     }
 
     private void buscarPuestos() {
-        String texto = txtBuscar.getText() == null ? "" : txtBuscar.getText().toLowerCase().trim();
-        puestosFiltrados.setPredicate(p ->
-                texto.isEmpty() || p.getNombre().toLowerCase().contains(texto)
-        );
+        buscador.buscarAhora();
     }
 
     private void mostrarDialogoNuevo() {
@@ -138,10 +160,6 @@ public class PuestoView {
                 mostrarAlerta("Error", "El nombre no puede estar vacío", Alert.AlertType.ERROR);
                 return;
             }
-            if (puestoExiste(nombre)) {
-                mostrarAlerta("Error", "Ya existe un puesto con ese nombre", Alert.AlertType.ERROR);
-                return;
-            }
             insertarPuesto(nombre);
         });
     }
@@ -163,11 +181,7 @@ public class PuestoView {
                 mostrarAlerta("Error", "El nombre no puede estar vacío", Alert.AlertType.ERROR);
                 return;
             }
-            if (!nombreNuevo.equals(puesto.getNombre()) && puestoExiste(nombreNuevo)) {
-                mostrarAlerta("Error", "Ya existe un puesto con ese nombre", Alert.AlertType.ERROR);
-                return;
-            }
-            actualizarPuesto(puesto.getNombre(), nombreNuevo);
+            actualizarPuesto(puesto, nombreNuevo);
         });
     }
 
@@ -175,88 +189,137 @@ public class PuestoView {
 
     private void cargarPuestos() {
         puestos.clear();
-        String sql = "SELECT nombre, activo FROM puestos ORDER BY nombre";
-        try (Connection cn = getConnection();
-             Statement st = cn.createStatement();
-             ResultSet rs = st.executeQuery(sql)) {
-
-            while (rs.next()) {
-                puestos.add(new Puesto(
-                        rs.getString("nombre"),
-                        "S".equals(rs.getString("activo")) ? "Activo" : "Inactivo"
-                ));
+        String sql = "SELECT id_puesto, nombre, activo FROM puestos ORDER BY UPPER(nombre), nombre";
+        CompletableFuture<List<Puesto>> carga = DbExecutor.consultar(cn -> {
+            List<Puesto> lista = new ArrayList<>();
+            try (Statement st = cn.createStatement();
+                 ResultSet rs = st.executeQuery(sql)) {
+
+                while (rs.next()) {
+                    lista.add(new Puesto(
+                            rs.getLong("id_puesto"),
+                            rs.getString("nombre"),
+                            "S".equals(rs.getString("activo")) ? "Activo" : "Inactivo"
+                    ));
+                }
             }
-        } catch (SQLException e) {
+            lista.sort(Filas.porTexto(Puesto::getNombre));
+            return lista;
+        });
+        DbExecutor.enFx(DbExecutor.conIndicador(tablePuestos, carga), puestos::setAll, e -> {
             mostrarAlerta("Error", "No se pudo cargar los puestos", Alert.AlertType.ERROR);
             e.printStackTrace();
+        });
+    }
+
+    private void fusionarCambios(List<Puesto> cambios) {
+        Catalogos.PUESTOS.invalidar(); // cambios hechos desde otros equipos
+        for (Puesto c : cambios) {
+            // Por id: un puesto renombrado en otro equipo se actualiza, no se duplica
+            Puesto actual = Filas.buscar(puestos, p -> p.getId() == c.getId());
+            if (actual == null) {
+                Filas.insertarOrdenado(puestos, c, Filas.porTexto(Puesto::getNombre));
+            } else {
+                actual.setNombre(c.getNombre());
+                actual.setEstado(c.getEstado());
+                Filas.reubicar(puestos, actual, Filas.porTexto(Puesto::getNombre));
+            }
         }
+        tablePuestos.refresh();
+    }
+
+    /** Puestos borrados en otro equipo: {@code vivos} son los id_puesto que siguen en la BD. */
+    private void quitarBorrados(Set<String> borrados) {
+        if (puestos.removeIf(p -> borrados.contains(String.valueOf(p.getId())))) Catalogos.PUESTOS.invalidar();
     }
 
     private void insertarPuesto(String nombre) {
         if (!isAdmin) { mostrarAlerta("Error", "No autorizado", Alert.AlertType.WARNING); return; }
 
-        String sql = "INSERT INTO puestos (nombre, activo) VALUES (?, 'S')";
-        try (Connection cn = getConnection(); PreparedStatement ps = cn.prepareStatement(sql)) {
-            ps.setString(1, nombre);
-            ps.executeUpdate();
-            cargarPuestos();
-        } catch (SQLException e) {
+        String sql = "INSERT INTO puestos (nombre, activo, actualizado_en) VALUES (?, 'S', SYSTIMESTAMP)";
+        // Devuelve la fila creada (id generado); null si el nombre ya existe
+        CompletableFuture<Puesto> alta = DbExecutor.consultar(cn -> {
+            if (puestoExiste(cn, nombre)) return null;
+            try (PreparedStatement ps = cn.prepareStatement(sql, new String[]{"id_puesto"})) {
+                ps.setString(1, nombre);
+                ps.executeUpdate();
+                Catalogos.PUESTOS.invalidar();
+                try (ResultSet gk = ps.getGeneratedKeys()) {
+                    if (!gk.next()) throw new SQLException("No se obtuvo id_puesto");
+                    return new Puesto(gk.getLong(1), nombre, "Activo");
+                }
+            }
+        });
+        DbExecutor.enFx(alta, nuevo -> {
+            if (nuevo == null) {
+                mostrarAlerta("Error", "Ya existe un puesto con ese nombre", Alert.AlertType.ERROR);
+                return;
+            }
+            // Parche en sitio en lugar de recargar la tabla completa
+            Filas.insertarOrdenado(puestos, nuevo, Filas.porTexto(Puesto::getNombre));
+            tablePuestos.getSelectionModel().select(nuevo);
+        }, e -> {
             mostrarAlerta("Error", "No se pudo insertar el puesto", Alert.AlertType.ERROR);
             e.printStackTrace();
-        }
+        });
     }
 
-    private void actualizarPuesto(String nombreOriginal, String nuevoNombre) {
+    private void actualizarPuesto(Puesto puesto, String nuevoNombre) {
         if (!isAdmin) { mostrarAlerta("Error", "No autorizado", Alert.AlertType.WARNING); return; }
 
-        String sql = "UPDATE puestos SET nombre = ?, actualizado_en = SYSTIMESTAMP WHERE nombre = ?";
-        try (Connection cn = getConnection(); PreparedStatement ps = cn.prepareStatement(sql)) {
-            ps.setString(1, nuevoNombre);
-            ps.setString(2, nombreOriginal);
-            ps.executeUpdate();
-            cargarPuestos();
-        } catch (SQLException e) {
+        boolean cambiaNombre = !nuevoNombre.equals(puesto.getNombre());
+        long id = puesto.getId();
+        String sql = "UPDATE puestos SET nombre = ?, actualizado_en = SYSTIMESTAMP WHERE id_puesto = ?";
+        CompletableFuture<Boolean> edicion = DbExecutor.consultar(cn -> {
+            if (cambiaNombre && puestoExiste(cn, nuevoNombre)) return false;
+            try (PreparedStatement ps = cn.prepareStatement(sql)) {
+                ps.setString(1, nuevoNombre);
+                ps.setLong(2, id);
+                ps.executeUpdate();
+                Catalogos.PUESTOS.invalidar();
+            }
+            return true;
+        });
+        DbExecutor.enFx(edicion, actualizado -> {
+            if (!actualizado) {
+                mostrarAlerta("Error", "Ya existe un puesto con ese nombre", Alert.AlertType.ERROR);
+                return;
+            }
+            puesto.setNombre(nuevoNombre);
+            Filas.reubicar(puestos, puesto, Filas.porTexto(Puesto::getNombre));
+            buscarPuestos();
+        }, e -> {
             mostrarAlerta("Error", "No se pudo actualizar el puesto", Alert.AlertType.ERROR);
             e.printStackTrace();
-        }
+        });
     }
 
     private void actualizarEstado(Puesto puesto) {
         if (!isAdmin) { mostrarAlerta("Error", "No autorizado", Alert.AlertType.WARNING); return; }
 
-        String sql = "UPDATE puestos SET activo = ?, actualizado_en = SYSTIMESTAMP WHERE nombre = ?";
-        try (Connection cn = getConnection(); PreparedStatement ps = cn.prepareStatement(sql)) {
-            ps.setString(1, "Activo".equalsIgnoreCase(puesto.getEstado()) ? "S" : "N");
-            ps.setString(2, puesto.getNombre());
-            ps.executeUpdate();
-        } catch (SQLException e) {
+        String activo = "Activo".equalsIgnoreCase(puesto.getEstado()) ? "S" : "N";
+        long id = puesto.getId();
+        String sql = "UPDATE puestos SET activo = ?, actualizado_en = SYSTIMESTAMP WHERE id_puesto = ?";
+        CompletableFuture<Integer> cambio = DbExecutor.consultar(cn -> {
+            try (PreparedStatement ps = cn.prepareStatement(sql)) {
+                ps.setString(1, activo);
+                ps.setLong(2, id);
+                return ps.executeUpdate();
+            }
+        });
+        DbExecutor.enFx(cambio, n -> Catalogos.PUESTOS.invalidar(), e -> {
             mostrarAlerta("Error", "No se pudo cambiar el estado del puesto", Alert.AlertType.ERROR);
             e.printStackTrace();
-        }
+        });
     }
 
-    private boolean puestoExiste(String nombre) {
+    private boolean puestoExiste(Connection cn, String nombre) throws SQLException {
         String sql = "SELECT COUNT(*) FROM puestos WHERE UPPER(nombre) = UPPER(?)";
-        try (Connection cn = getConnection(); PreparedStatement ps = cn.prepareStatement(sql)) {
+        try (PreparedStatement ps = cn.prepareStatement(sql)) {
             ps.setString(1, nombre);
             try (ResultSet rs = ps.executeQuery()) {
                 return rs.next() && rs.getInt(1) > 0;
             }
-        } catch (SQLException e) {
-            mostrarAlerta("Error", "Error al verificar existencia del puesto", Alert.AlertType.ERROR);
-            return false; // no bloquear por error de validación
-        }
-    }
-
-    private Connection getConnection() throws SQLException {
-        try {
-            Connection cn = Conexion.conectar();
-            try (Statement st = cn.createStatement()) {
-                st.execute("ALTER SESSION SET CURRENT_SCHEMA=" + SCHEMA_OWNER);
-            }
-            return cn;
-        } catch (ClassNotFoundException e) {
-            throw new SQLException("Driver Oracle no encontrado", e);
         }
     }
 
@@ -270,14 +333,18 @@ public class PuestoView {
 
     // ---- Modelo ----
     public static class Puesto {
+        private final long id;
         private final SimpleStringProperty nombre;
         private final SimpleStringProperty estado;
 
-        public Puesto(String nombre, String estado) {
+        public Puesto(long id, String nombre, String estado) {
+            this.id = id;
             this.nombre = new SimpleStringProperty(nombre);
             this.estado = new SimpleStringProperty(estado);
         }
 
+        public long getId() { return id; }
+
         public String getNombre() { return nombre.get(); }
         public void setNombre(String nombre) { this.nombre.set(nombre); }
         public String getEstado() { return estado.get(); }
@@ -0,0 +1,171 @@
+package org.example.sici1.controller;
+
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JRParameter;
+import net.sf.jasperreports.engine.JasperExportManager;
+import net.sf.jasperreports.engine.JasperPrint;
+import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.fill.AsynchronousFillHandle;
+import net.sf.jasperreports.engine.fill.AsynchronousFilllListener;
+import net.sf.jasperreports.engine.fill.FillListener;
+import net.sf.jasperreports.engine.fill.JRSwapFileVirtualizer;
+import net.sf.jasperreports.engine.util.JRLoader;
+import net.sf.jasperreports.engine.util.JRSwapFile;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.IntConsumer;
+
+/**
+ * Llenado y exportación del reporte de inventario (Inventario.jasper).
+ * El .jasper compilado se deserializa una sola vez y se comparte; cada llenado usa un virtualizador
+ * con archivo de intercambio, así que un inventario de miles de renglones mantiene en memoria solo unas
+ * pocas páginas y el resto vive en disco. Pensado para correr fuera del hilo de JavaFX.
+ */
+public final class ReporteInventario {
+
+    private static final String RECURSO = "/Inventario.jasper";
+    /** Páginas que el virtualizador mantiene en memoria; el resto va al archivo de intercambio. */
+    private static final int PAGINAS_EN_MEMORIA = 50;
+
+    private static volatile JasperReport compilado;
+
+    private ReporteInventario() {}
+
+    /** Resultado de un llenado; {@link #cerrar()} libera el archivo de intercambio (cuando ya no se muestre). */
+    public static final class Llenado implements AutoCloseable {
+        private final JasperPrint print;
+        private final JRSwapFileVirtualizer virtualizador;
+        private final long milisegundos;
+
+        private Llenado(JasperPrint print, JRSwapFileVirtualizer virtualizador, long milisegundos) {
+            this.print = print;
+            this.virtualizador = virtualizador;
+            this.milisegundos = milisegundos;
+        }
+
+        public JasperPrint getPrint() { return print; }
+
+        public int getPaginas() { return print.getPages().size(); }
+
+        public long getMilisegundos() { return milisegundos; }
+
+        public void exportarPdf(Path destino) throws JRException {
+            JasperExportManager.exportReportToPdfFile(print, destino.toString());
+        }
+
+        public void cerrar() { virtualizador.cleanup(); }
+
+        @Override public void close() { cerrar(); }
+    }
+
+    /** El reporte compilado, cargado la primera vez que se pide. */
+    public static JasperReport compilado() throws JRException {
+        JasperReport r = compilado;
+        if (r == null) {
+            synchronized (ReporteInventario.class) {
+                r = compilado;
+                if (r == null) {
+                    InputStream input = ReporteInventario.class.getResourceAsStream(RECURSO);
+                    if (input == null) throw new JRException("No se encontró el recurso Inventario.jasper");
+                    r = (JasperReport) JRLoader.loadObject(input);
+                    compilado = r;
+                }
+            }
+        }
+        return r;
+    }
+
+    /**
+     * Llena el reporte de un inventario. {@code alGenerarPagina} recibe el número de páginas generadas
+     * hasta el momento (desde el hilo del llenado). El evento JFR {@code sici.LlenadoReporte} lleva el tiempo
+     * y el heap que quedó ocupado de más al terminar (diferencia antes/después del heap usado).
+     */
+    public static Llenado llenar(Connection cn, long idInventario, IntConsumer alGenerarPagina) throws Exception {
+        return llenar(cn, idInventario, alGenerarPagina, true);
+    }
+
+    /** Igual que {@link #llenar}, sin medir el heap (con llenados en paralelo la diferencia no es de ninguno). */
+    public static Llenado llenarEnLote(Connection cn, long idInventario, IntConsumer alGenerarPagina) throws Exception {
+        return llenar(cn, idInventario, alGenerarPagina, false);
+    }
+
+    /** Parámetros del reporte para un inventario, sin virtualizador. */
+    static Map<String, Object> parametros(long idInventario) {
+        Map<String, Object> parametros = new HashMap<>();
+        // Ajusta a los parámetros reales de tu reporte
+        parametros.put("p_id_inventario", idInventario);
+        parametros.put("fecha", Date.valueOf(LocalDate.now()));
+        return parametros;
+    }
+
+    private static Llenado llenar(Connection cn, long idInventario, IntConsumer alGenerarPagina, boolean medirHeap)
+            throws Exception {
+        JasperReport reporte = compilado();
+
+        JRSwapFile swap = new JRSwapFile(System.getProperty("java.io.tmpdir"), 4096, 200);
+        JRSwapFileVirtualizer virtualizador = new JRSwapFileVirtualizer(PAGINAS_EN_MEMORIA, swap, true);
+
+        Map<String, Object> parametros = parametros(idInventario);
+        parametros.put(JRParameter.REPORT_VIRTUALIZER, virtualizador);
+
+        long heapAntes = medirHeap ? heapUsado() : 0;
+        long inicio = System.nanoTime();
+        EventosJfr.LlenadoReporte evento = new EventosJfr.LlenadoReporte();
+        evento.begin();
+        evento.idInventario = idInventario;
+        try {
+            JasperPrint print = llenarConProgreso(reporte, parametros, cn, alGenerarPagina);
+            virtualizador.setReadOnly(true); // ya no se agregan páginas: lo intercambiado no vuelve a escribirse
+            evento.paginas = print.getPages().size();
+            if (medirHeap) evento.heapRetenido = heapUsado() - heapAntes;
+            return new Llenado(print, virtualizador, (System.nanoTime() - inicio) / 1_000_000);
+        } catch (Exception e) {
+            evento.error = true;
+            virtualizador.cleanup();
+            throw e;
+        } finally {
+            evento.commit();
+        }
+    }
+
+    private static JasperPrint llenarConProgreso(JasperReport reporte, Map<String, Object> parametros, Connection cn,
+                                                 IntConsumer alGenerarPagina) throws Exception {
+        CompletableFuture<JasperPrint> resultado = new CompletableFuture<>();
+        AsynchronousFillHandle handle = AsynchronousFillHandle.createHandle(reporte, parametros, cn);
+        handle.addFillListener(new FillListener() {
+            @Override public void pageGenerated(JasperPrint print, int indice) { alGenerarPagina.accept(indice + 1); }
+            @Override public void pageUpdated(JasperPrint print, int indice) {}
+        });
+        handle.addListener(new AsynchronousFilllListener() {
+            @Override public void reportFinished(JasperPrint print) { resultado.complete(print); }
+            @Override public void reportCancelled() { resultado.cancel(false); }
+            @Override public void reportFillError(Throwable t) { resultado.completeExceptionally(t); }
+        });
+        handle.startFill();
+        try {
+            return resultado.get();
+        } catch (InterruptedException e) {
+            handle.cancellFill();
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof Exception ex) throw ex;
+            throw e;
+        }
+    }
+
+    /** Heap usado en este momento (incluye basura aún no recolectada). */
+    static long heapUsado() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,127 @@
+package org.example.sici1.controller;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Generación de los PDF de todos los inventarios de un periodo (cierre de año).
+ * Los inventarios se llenan en paralelo con un límite fijo de concurrencia: el llenado es de CPU y
+ * cada uno además ocupa una conexión, así que no conviene pasar de los núcleos ni acaparar el pool.
+ * Todos comparten el Inventario.jasper compilado de {@link ReporteInventario}.
+ */
+public final class ReportesMasivos {
+
+    /** Deja conexiones libres en el pool (máx. 15) para el resto de la aplicación. */
+    private static final int MAX_CONCURRENCIA = 6;
+
+    private ReportesMasivos() {}
+
+    public record Avance(int total, int generados, int fallidos) {}
+
+    public record Resumen(int total, int generados, List<String> fallas, long milisegundos, Path archivoFallas) {
+        public double reportesPorMinuto() {
+            return milisegundos == 0 ? 0 : generados * 60_000.0 / milisegundos;
+        }
+    }
+
+    public static int concurrenciaPorDefecto() {
+        return Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), MAX_CONCURRENCIA));
+    }
+
+    /**
+     * Llena y exporta un PDF por cada inventario activo con FECHA en [desde, hasta]
+     * (y de la unidad administrativa dada, si no es null). {@code alAvanzar} corre en el hilo de JavaFX.
+     */
+    public static CompletableFuture<Resumen> generar(LocalDate desde, LocalDate hasta, Long idUnidadAdmin,
+                                                     Path destino, int concurrencia, Consumer<Avance> alAvanzar) {
+        return DbExecutor.consultar(cn -> listarInventarios(cn, desde, hasta, idUnidadAdmin))
+                .thenApply(ids -> ejecutar(ids, destino, concurrencia, alAvanzar));
+    }
+
+    private static List<Long> listarInventarios(Connection cn, LocalDate desde, LocalDate hasta, Long idUnidadAdmin)
+            throws java.sql.SQLException {
+        String sql = "SELECT ID_INVENTARIO FROM INVENTARIO WHERE ACTIVO = 'S' AND FECHA BETWEEN ? AND ?"
+                + (idUnidadAdmin != null ? " AND ID_UNIDAD_ADMINISTRATIVA = ?" : "")
+                + " ORDER BY ID_INVENTARIO";
+        List<Long> ids = new ArrayList<>();
+        try (PreparedStatement ps = cn.prepareStatement(sql)) {
+            ps.setDate(1, Date.valueOf(desde));
+            ps.setDate(2, Date.valueOf(hasta));
+            if (idUnidadAdmin != null) ps.setLong(3, idUnidadAdmin);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) ids.add(rs.getLong(1));
+            }
+        }
+        return ids;
+    }
+
+    private static Resumen ejecutar(List<Long> ids, Path destino, int concurrencia, Consumer<Avance> alAvanzar) {
+        EventosJfr.TrabajoMasivo evento = new EventosJfr.TrabajoMasivo();
+        evento.begin();
+        long inicio = System.nanoTime();
+        AtomicInteger generados = new AtomicInteger();
+        List<String> fallas = Collections.synchronizedList(new ArrayList<>());
+        int total = ids.size();
+        DbExecutor.FX.execute(() -> alAvanzar.accept(new Avance(total, 0, 0)));
+
+        AtomicInteger numero = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, concurrencia), r -> {
+            Thread t = new Thread(r, "sici-reportes-" + numero.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<CompletableFuture<Void>> tareas = new ArrayList<>(total);
+            for (long id : ids) {
+                tareas.add(CompletableFuture.runAsync(() -> {
+                    try (Connection cn = Conexion.conectar();
+                         ReporteInventario.Llenado llenado = ReporteInventario.llenarEnLote(cn, id, p -> {})) {
+                        llenado.exportarPdf(destino.resolve("reporte_inventario_" + id + ".pdf"));
+                        generados.incrementAndGet();
+                    } catch (Exception e) {
+                        fallas.add("Inventario " + id + ": " + e.getMessage());
+                    }
+                    Avance avance = new Avance(total, generados.get(), fallas.size());
+                    DbExecutor.FX.execute(() -> alAvanzar.accept(avance));
+                }, workers));
+            }
+            CompletableFuture.allOf(tareas.toArray(new CompletableFuture[0])).join();
+        } finally {
+            workers.shutdown();
+        }
+
+        long ms = (System.nanoTime() - inicio) / 1_000_000;
+        Path archivoFallas = null;
+        if (!fallas.isEmpty()) {
+            archivoFallas = destino.resolve("reportes_fallidos.txt");
+            try {
+                Files.write(archivoFallas, fallas, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                e.printStackTrace();
+                archivoFallas = null;
+            }
+        }
+        Resumen resumen = new Resumen(total, generados.get(), List.copyOf(fallas), ms, archivoFallas);
+        evento.trabajo = "ReportesMasivos";
+        evento.archivo = destino.toString();
+        evento.elementos = resumen.generados();
+        evento.fallidos = fallas.size();
+        evento.commit();
+        return resumen;
+    }
+}
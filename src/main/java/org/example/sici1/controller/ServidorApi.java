@@ -0,0 +1,211 @@
+package org.example.sici1.controller;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * API HTTP de asignaciones para las terminales de mano y otros sistemas, sin JavaFX.
+ * Servidor HTTP del JDK, un hilo virtual por petición; la concurrencia real contra la BD la limita el pool.
+ * <pre>
+ *   POST /api/asignaciones        un objeto del contrato del README  → 201 / 404 / 409 / 422
+ *   POST /api/asignaciones/lote   arreglo de objetos                 → 200 con un resultado por elemento
+ *   POST /api/asignaciones/flujo  NDJSON o CSV por flujo              → 200 con resultados por línea ({@link IngestaAsignaciones})
+ *   GET  /api/salud               estado del pool
+ * </pre>
+ * Si se define {@code -Dsici.api.token} (o {@code SICI_API_TOKEN}), toda petición debe traer
+ * {@code Authorization: Bearer <token>}. Sin token solo se escucha en la interfaz local: con otro
+ * {@code --host} el servidor no arranca.
+ * <pre>
+ *   java -cp SICI1.jar org.example.sici1.controller.ServidorApi --puerto 8085 --host 0.0.0.0
+ * </pre>
+ */
+public final class ServidorApi {
+
+    /** Tope del cuerpo de una petición (el lote más grande cabe de sobra). */
+    static final int MAX_CUERPO = 8 * 1024 * 1024;
+    static final int MAX_LOTE_API = 10_000;
+
+    private final HttpServer servidor;
+    private final ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor();
+    private final byte[] token;
+
+    public ServidorApi(String host, int puerto, String token) throws IOException {
+        this.token = token == null || token.isBlank() ? null : token.getBytes(StandardCharsets.UTF_8);
+        InetSocketAddress direccion = new InetSocketAddress(host, puerto);
+        if (this.token == null && (direccion.isUnresolved() || !direccion.getAddress().isLoopbackAddress())) {
+            throw new IllegalArgumentException("Sin token la API solo puede escuchar en la interfaz local (127.0.0.1); "
+                    + "defina sici.api.token o SICI_API_TOKEN para usar --host " + host);
+        }
+        servidor = HttpServer.create(direccion, 256);
+        servidor.setExecutor(hilos);
+        servidor.createContext("/api/asignaciones", this::atender);
+        servidor.createContext("/api/salud", this::atender);
+    }
+
+    public void iniciar() {
+        servidor.start();
+        System.out.println("API de asignaciones escuchando en " + servidor.getAddress()
+                + (token == null ? " (sin token)" : ""));
+    }
+
+    public void detener() {
+        servidor.stop(2);
+        hilos.shutdown();
+    }
+
+    public InetSocketAddress direccion() {
+        return servidor.getAddress();
+    }
+
+    private void atender(HttpExchange ex) throws IOException {
+        try (ex) {
+            if (!autorizado(ex)) {
+                responder(ex, 401, mensaje("No autorizado"));
+                return;
+            }
+            String ruta = ex.getRequestURI().getPath();
+            String metodo = ex.getRequestMethod();
+            if (ruta.equals("/api/salud") && metodo.equals("GET")) {
+                responder(ex, 200, JsonPlano.escribir(Map.of("estado", "ok", "pool", Conexion.estadisticas().toString())));
+            } else if (ruta.equals("/api/asignaciones") && metodo.equals("POST")) {
+                asignarUna(ex);
+            } else if (ruta.equals("/api/asignaciones/lote") && metodo.equals("POST")) {
+                asignarLote(ex);
+            } else if (ruta.equals("/api/asignaciones/flujo") && metodo.equals("POST")) {
+                IngestaAsignaciones.atender(ex);
+            } else {
+                responder(ex, 404, mensaje("Ruta no encontrada: " + metodo + " " + ruta));
+            }
+        } catch (CuerpoDemasiadoGrande e) {
+            responder(ex, 413, mensaje("El cuerpo excede " + MAX_CUERPO + " bytes; use /api/asignaciones/flujo"));
+        } catch (IllegalArgumentException e) {
+            responder(ex, 400, mensaje(e.getMessage()));
+        } catch (SQLException e) {
+            e.printStackTrace();
+            responder(ex, LoteEscaneo.esFallaDeConexion(e) ? 503 : 500, mensaje("Error de base de datos: " + e.getMessage()));
+        } catch (Exception e) {
+            e.printStackTrace();
+            responder(ex, 500, mensaje("Error interno: " + e.getMessage()));
+        }
+    }
+
+    private void asignarUna(HttpExchange ex) throws Exception {
+        Asignaciones.Solicitud s;
+        try {
+            s = Asignaciones.Solicitud.desdeJson(JsonPlano.objeto(leerCuerpo(ex)));
+        } catch (IllegalArgumentException e) {
+            responder(ex, 422, JsonPlano.escribir(Asignaciones.Resultado.invalido(null, e.getMessage()).comoJson()));
+            return;
+        }
+        Asignaciones.Resultado r = Metricas.conEtiqueta("ServidorApi.asignarUna",
+                () -> Asignaciones.asignar(List.of(s))).get(0);
+        int estado = switch (r.estado()) {
+            case AGREGADO -> 201;
+            case REPETIDO -> 409;
+            case NO_EXISTE -> 404;
+            case INVALIDO -> 422;
+            case ERROR -> 500;
+        };
+        responder(ex, estado, JsonPlano.escribir(r.comoJson()));
+    }
+
+    /** Un resultado por elemento, en el mismo orden; los inválidos no impiden escribir los demás. */
+    private void asignarLote(HttpExchange ex) throws Exception {
+        List<Map<String, Object>> objetos = JsonPlano.arreglo(leerCuerpo(ex));
+        if (objetos.size() > MAX_LOTE_API) {
+            responder(ex, 413, mensaje("Máximo " + MAX_LOTE_API + " elementos por lote; use /api/asignaciones/flujo"));
+            return;
+        }
+        Asignaciones.Resultado[] resultados = new Asignaciones.Resultado[objetos.size()];
+        List<Asignaciones.Solicitud> validas = new ArrayList<>();
+        List<Integer> posiciones = new ArrayList<>();
+        for (int i = 0; i < objetos.size(); i++) {
+            try {
+                validas.add(Asignaciones.Solicitud.desdeJson(objetos.get(i)));
+                posiciones.add(i);
+            } catch (IllegalArgumentException e) {
+                Object codigo = objetos.get(i).get("bien_codigo_inventario");
+                resultados[i] = Asignaciones.Resultado.invalido(codigo == null ? null : codigo.toString(), e.getMessage());
+            }
+        }
+        if (!validas.isEmpty()) {
+            List<Asignaciones.Resultado> escritos = Metricas.conEtiqueta("ServidorApi.asignarLote",
+                    () -> Asignaciones.asignar(validas));
+            for (int k = 0; k < escritos.size(); k++) resultados[posiciones.get(k)] = escritos.get(k);
+        }
+        StringBuilder sb = new StringBuilder(resultados.length * 96 + 2).append('[');
+        for (int i = 0; i < resultados.length; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(JsonPlano.escribir(resultados[i].comoJson()));
+        }
+        responder(ex, 200, sb.append(']').toString());
+    }
+
+    private boolean autorizado(HttpExchange ex) {
+        if (token == null) return true;
+        String h = ex.getRequestHeaders().getFirst("Authorization");
+        if (h == null || !h.startsWith("Bearer ")) return false;
+        return MessageDigest.isEqual(token, h.substring(7).trim().getBytes(StandardCharsets.UTF_8));
+    }
+
+    static final class CuerpoDemasiadoGrande extends IOException {}
+
+    static String leerCuerpo(HttpExchange ex) throws IOException {
+        try (InputStream in = ex.getRequestBody()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                if (out.size() + n > MAX_CUERPO) throw new CuerpoDemasiadoGrande();
+                out.write(buf, 0, n);
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        }
+    }
+
+    static void responder(HttpExchange ex, int estado, String json) throws IOException {
+        byte[] cuerpo = json.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        ex.sendResponseHeaders(estado, cuerpo.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(cuerpo);
+        }
+    }
+
+    static String mensaje(String texto) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("mensaje", texto);
+        return JsonPlano.escribir(m);
+    }
+
+    public static void main(String[] args) throws IOException {
+        String host = "127.0.0.1";
+        int puerto = 8085;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--host" -> host = args[i + 1];
+                case "--puerto" -> puerto = Integer.parseInt(args[i + 1]);
+                default -> throw new IllegalArgumentException("Opción desconocida: " + args[i]);
+            }
+        }
+        String token = System.getProperty("sici.api.token", System.getenv("SICI_API_TOKEN"));
+        ServidorApi api = new ServidorApi(host, puerto, token);
+        Runtime.getRuntime().addShutdownHook(new Thread(api::detener, "sici-api-cierre"));
+        api.iniciar();
+    }
+}
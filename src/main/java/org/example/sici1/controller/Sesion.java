@@ -0,0 +1,81 @@
+package org.example.sici1.controller;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Sesión del usuario autenticado. Inmutable: se arma completa en el login (usuario, empleado, roles y
+ * permisos en una sola consulta) y se publica de una vez, así que cualquier hilo la lee sin sincronizar
+ * y las vistas consultan permisos sin volver a la BD. Cerrar sesión publica {@link #ANONIMA}.
+ */
+public final class Sesion {
+
+    public enum Permiso {
+        VER_CATALOGOS,
+        CAPTURAR_INVENTARIO,
+        EDITAR_CATALOGOS,
+        EDITAR_BIENES,
+        IMPORTAR_BIENES,
+        GESTIONAR_USUARIOS,
+        VER_DIAGNOSTICO;
+
+        /** Permisos que otorga cada rol; un rol desconocido solo consulta y captura. */
+        static Set<Permiso> deRoles(Set<String> roles) {
+            if (roles.contains("ADMIN")) return EnumSet.allOf(Permiso.class);
+            return EnumSet.of(VER_CATALOGOS, CAPTURAR_INVENTARIO);
+        }
+    }
+
+    public static final Sesion ANONIMA = new Sesion(null, 0, null, Set.of());
+
+    private static volatile Sesion actual = ANONIMA;
+
+    private final String usuario;
+    private final long idUsuario;
+    private final Long idEmpleado;
+    private final Set<String> roles;
+    private final Set<Permiso> permisos;
+
+    public Sesion(String usuario, long idUsuario, Long idEmpleado, Set<String> roles) {
+        Set<String> normalizados = new LinkedHashSet<>();
+        for (String r : roles) {
+            if (r != null && !r.isBlank()) normalizados.add(r.trim().toUpperCase());
+        }
+        this.usuario = usuario;
+        this.idUsuario = idUsuario;
+        this.idEmpleado = idEmpleado;
+        this.roles = Collections.unmodifiableSet(normalizados);
+        this.permisos = Collections.unmodifiableSet(Permiso.deRoles(normalizados));
+    }
+
+    public static Sesion actual() { return actual; }
+
+    public static void iniciar(Sesion sesion) { actual = sesion; }
+
+    public static void cerrar() { actual = ANONIMA; }
+
+    public String getUsuario() { return usuario; }
+
+    public long getIdUsuario() { return idUsuario; }
+
+    /** Empleado ligado al usuario (null si la cuenta no tiene uno). */
+    public Long getIdEmpleado() { return idEmpleado; }
+
+    public Set<String> getRoles() { return roles; }
+
+    public Set<Permiso> getPermisos() { return permisos; }
+
+    public boolean tiene(Permiso p) { return permisos.contains(p); }
+
+    public boolean esAdmin() { return roles.contains("ADMIN"); }
+
+    /** Rol a mostrar: ADMIN si lo tiene; si no, el primero (los roles llegan ordenados), o USUARIO. */
+    public String getRolPrincipal() {
+        if (esAdmin()) return "ADMIN";
+        return roles.isEmpty() ? "USUARIO" : roles.iterator().next();
+    }
+
+    public boolean isAutenticada() { return usuario != null; }
+}
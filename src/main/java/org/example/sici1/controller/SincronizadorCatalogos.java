@@ -0,0 +1,210 @@
+package org.example.sici1.controller;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Sincronización incremental de catálogos entre operadores.
+ * Cada suscripción guarda su marca de agua (máximo ACTUALIZADO_EN visto) y cada cierto tiempo
+ * pide solo las filas cambiadas desde esa marca; la vista las fusiona en su lista viva.
+ * Se consulta con un pequeño solape hacia atrás porque una fila puede confirmarse después de que
+ * se estampó su ACTUALIZADO_EN; la fusión es idempotente (por clave), así que repetir filas no importa.
+ * Una vista oculta pausa su suscripción y al volver la reanuda: recibe de una vez lo cambiado mientras tanto.
+ * <p>
+ * Un DELETE no deja fila con ACTUALIZADO_EN. Para las bajas, la suscripción que indica su columna clave lee
+ * además las lápidas de {@code BAJAS_CATALOGO} (las escriben triggers, ver {@code sql/bajas_catalogo.sql})
+ * con la misma marca, así que cada ronda cuesta lo cambiado y no el tamaño de la tabla. Un cambio de clave
+ * deja lápida de la clave vieja. Si en la misma ronda una clave trae fila y lápida, gana la más reciente
+ * (borrada y vuelta a dar de alta, o cambiada y luego borrada).
+ */
+public final class SincronizadorCatalogos {
+
+    private static final long PERIODO_SEG = 15;
+    private static final long SOLAPE_MS = 5_000;
+    private static final String SQL_BAJAS =
+            "SELECT CLAVE, ACTUALIZADO_EN FROM BAJAS_CATALOGO WHERE TABLA = ? AND ACTUALIZADO_EN > ?";
+
+    private static final List<Suscripcion<?>> SUSCRIPCIONES = new CopyOnWriteArrayList<>();
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "sici-sync");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static {
+        TIMER.scheduleWithFixedDelay(SincronizadorCatalogos::sondear, PERIODO_SEG, PERIODO_SEG, TimeUnit.SECONDS);
+    }
+
+    private SincronizadorCatalogos() {}
+
+    @FunctionalInterface
+    public interface Mapeador<T> {
+        T mapear(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * Registra una fuente de cambios. {@code sqlDelta} recibe un único parámetro (la marca)
+     * y debe proyectar una columna ACTUALIZADO_EN. {@code aplicar} corre en el hilo de JavaFX.
+     * Suscribirse antes de la carga inicial: la marca se toma del reloj de la BD en ese momento.
+     */
+    public static <T> Suscripcion<T> suscribir(String tabla, String sqlDelta, Mapeador<T> mapeador, Consumer<List<T>> aplicar) {
+        return suscribir(tabla, sqlDelta, mapeador, aplicar, null, null);
+    }
+
+    /**
+     * Como {@link #suscribir(String, String, Mapeador, Consumer)}, y además entrega bajas: {@code quitar} recibe
+     * (en el hilo de JavaFX) las claves, como texto, borradas de {@code tabla} desde la última ronda.
+     * {@code sqlDelta} debe proyectar también {@code columnaClave}.
+     */
+    public static <T> Suscripcion<T> suscribir(String tabla, String sqlDelta, Mapeador<T> mapeador, Consumer<List<T>> aplicar,
+                                               String columnaClave, Consumer<Set<String>> quitar) {
+        Suscripcion<T> s = new Suscripcion<>(tabla, sqlDelta, mapeador, aplicar, columnaClave, quitar);
+        SUSCRIPCIONES.add(s);
+        DbExecutor.consultar(cn -> {
+            Timestamp ahora;
+            try (Statement st = cn.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT CAST(SYSTIMESTAMP AS TIMESTAMP) FROM dual")) {
+                ahora = rs.next() ? rs.getTimestamp(1) : null;
+            }
+            return ahora;
+        }).thenAccept(ahora -> {
+            synchronized (s) {
+                if (s.marca == null) s.marca = ahora;
+            }
+        });
+        return s;
+    }
+
+    /** Fuerza una ronda inmediata (por ejemplo, al volver a una vista). */
+    public static void sincronizarAhora() {
+        TIMER.execute(SincronizadorCatalogos::sondear);
+    }
+
+    private static void sondear() {
+        for (Suscripcion<?> s : SUSCRIPCIONES) s.sondear();
+    }
+
+    /** Lo leído en una ronda, ya conciliado: ninguna clave de {@code bajas} viene en {@code cambios}. */
+    private record Ronda<T>(List<T> cambios, Set<String> bajas) {}
+
+    public static final class Suscripcion<T> {
+        private final String tabla;
+        private final String sqlDelta;
+        private final Mapeador<T> mapeador;
+        private final Consumer<List<T>> aplicar;
+        private final String columnaClave;
+        private final Consumer<Set<String>> quitar;
+        private final AtomicBoolean enCurso = new AtomicBoolean();
+        private volatile boolean activa = true;
+        private volatile boolean pausada;
+        private Timestamp marca;
+
+        private Suscripcion(String tabla, String sqlDelta, Mapeador<T> mapeador, Consumer<List<T>> aplicar,
+                            String columnaClave, Consumer<Set<String>> quitar) {
+            this.tabla = tabla;
+            this.sqlDelta = sqlDelta;
+            this.mapeador = mapeador;
+            this.aplicar = aplicar;
+            this.columnaClave = columnaClave;
+            this.quitar = quitar;
+        }
+
+        public String getTabla() { return tabla; }
+
+        public synchronized Timestamp getMarca() { return marca; }
+
+        public void cancelar() {
+            activa = false;
+            SUSCRIPCIONES.remove(this);
+        }
+
+        /** Deja de consultar sin perder la marca (la vista está oculta pero en caché). */
+        public void pausar() { pausada = true; }
+
+        /** Vuelve a consultar y se pone al día de inmediato con todo lo cambiado desde la marca. */
+        public void reanudar() {
+            pausada = false;
+            TIMER.execute(this::sondear);
+        }
+
+        private void sondear() {
+            Timestamp desde;
+            synchronized (this) {
+                if (marca == null) return;
+                desde = new Timestamp(marca.getTime() - SOLAPE_MS);
+            }
+            if (!activa || pausada || !enCurso.compareAndSet(false, true)) return;
+
+            DbExecutor.enFx(DbExecutor.consultar(cn -> {
+                List<T> filas = new ArrayList<>();
+                List<String> claves = new ArrayList<>();
+                List<Timestamp> tiempos = new ArrayList<>();
+                Timestamp max = null;
+                try (PreparedStatement ps = cn.prepareStatement(sqlDelta)) {
+                    ps.setTimestamp(1, desde);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            filas.add(mapeador.mapear(rs));
+                            Timestamp t = rs.getTimestamp("ACTUALIZADO_EN");
+                            if (columnaClave != null) {
+                                claves.add(rs.getString(columnaClave));
+                                tiempos.add(t);
+                            }
+                            if (t != null && (max == null || t.after(max))) max = t;
+                        }
+                    }
+                }
+                Map<String, Timestamp> bajas = new HashMap<>();
+                if (columnaClave != null) {
+                    try (PreparedStatement ps = cn.prepareStatement(SQL_BAJAS)) {
+                        ps.setString(1, tabla.toUpperCase(Locale.ROOT));
+                        ps.setTimestamp(2, desde);
+                        try (ResultSet rs = ps.executeQuery()) {
+                            while (rs.next()) {
+                                Timestamp t = rs.getTimestamp(2);
+                                bajas.merge(rs.getString(1), t, (a, b) -> a.after(b) ? a : b);
+                                if (max == null || t.after(max)) max = t;
+                            }
+                        }
+                    }
+                }
+                synchronized (this) {
+                    if (max != null && max.after(marca)) marca = max;
+                }
+                if (bajas.isEmpty()) return new Ronda<>(filas, Set.of());
+
+                List<T> cambios = new ArrayList<>(filas.size());
+                for (int i = 0; i < filas.size(); i++) {
+                    Timestamp baja = bajas.get(claves.get(i));
+                    Timestamp alta = tiempos.get(i);
+                    if (baja == null) cambios.add(filas.get(i));
+                    else if (alta != null && alta.after(baja)) {
+                        bajas.remove(claves.get(i)); // se volvió a dar de alta después de borrarse
+                        cambios.add(filas.get(i));
+                    }
+                }
+                return new Ronda<>(cambios, bajas.keySet());
+            }), ronda -> {
+                enCurso.set(false);
+                if (!activa) return;
+                if (!ronda.cambios().isEmpty()) aplicar.accept(ronda.cambios());
+                if (!ronda.bajas().isEmpty()) quitar.accept(ronda.bajas());
+            }, e -> enCurso.set(false));
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.example.sici1.controller;
 
+import javafx.beans.Observable;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -10,9 +11,13 @@ import javafx.scene.layout.GridPane;
 import javafx.geometry.Insets;
 
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
-public class UbicacionesView {
+public class UbicacionesView implements VistaActivable {
 
     // ===== FXML =====
     @FXML private TableView<Ubicacion> tablaUbicaciones;
@@ -21,16 +26,16 @@ public class UbicacionesView {
     @FXML private Button btnAgregar, btnEditar, btnBuscar;
 
     // ===== Datos en memoria + filtro =====
-    private final ObservableList<Ubicacion> ubicaciones = FXCollections.observableArrayList();
+    // Con extractor: editar una fila en sitio avisa a la lista (filtro y claves de búsqueda)
+    private final ObservableList<Ubicacion> ubicaciones = FXCollections.observableArrayList(
+            u -> new Observable[]{u.nombreProperty(), u.descripcionProperty(), u.edificioProperty(), u.estadoProperty()});
     private final FilteredList<Ubicacion> ubicacionesFiltradas = new FilteredList<>(ubicaciones, p -> true);
+    private BuscadorDiferido<Ubicacion> buscador;
+    private SincronizadorCatalogos.Suscripcion<Ubicacion> cambios;
 
     // ===== Permisos (MISMA LÓGICA QUE EN EdificiosView) =====
     // Solo ADMIN puede modificar; USUARIO (u otros) solo consulta
-    private final String userRole = UserSession.getInstance().getRole();
-    private final boolean isAdmin = "ADMIN".equalsIgnoreCase(userRole);
-
-    // Esquema dueño de tablas
-    private static final String SCHEMA_OWNER = "ADMIN";
+    private final boolean isAdmin = Sesion.actual().tiene(Sesion.Permiso.EDITAR_CATALOGOS);
 
     // ===== Ciclo de vida =====
     @FXML
@@ -44,8 +49,9 @@ public class UbicacionesView {
         btnEditar.setVisible(isAdmin);
 
         // Buscador (disponible para todos)
+        buscador = new BuscadorDiferido<>(txtBuscar, ubicacionesFiltradas,
+                u -> new String[]{u.getNombre(), u.getDescripcion(), u.getEdificio()});
         btnBuscar.setOnAction(e -> buscarUbicaciones());
-        txtBuscar.textProperty().addListener((obs, oldVal, newVal) -> buscarUbicaciones());
 
         // Acciones SOLO para admin
         if (isAdmin) {
@@ -53,6 +59,27 @@ public class UbicacionesView {
             btnEditar.setOnAction(e -> mostrarDialogoEditar());
         }
 
+        // Cambios de otros operadores (antes de la carga inicial para no perder ninguno).
+        // Renombrar un edificio también cuenta como cambio de sus ubicaciones.
+        cambios = SincronizadorCatalogos.suscribir("unidades",
+                "SELECT id_unidad, nombre, descripcion, edificio, activo, actualizado_en FROM (" +
+                        "  SELECT u.id_unidad, u.nombre, u.codigo AS descripcion, e.nombre AS edificio, u.activo, " +
+                        "         GREATEST(NVL(u.actualizado_en, TIMESTAMP '1900-01-01 00:00:00'), " +
+                        "                  NVL(e.actualizado_en, TIMESTAMP '1900-01-01 00:00:00')) AS actualizado_en " +
+                        "  FROM unidades u " +
+                        "  JOIN edificios e ON u.id_edificio = e.id_edificio" +
+                        ") WHERE actualizado_en > ?",
+                rs -> new Ubicacion(
+                        rs.getLong("id_unidad"),
+                        rs.getString("nombre"),
+                        rs.getString("descripcion") == null ? "" : rs.getString("descripcion"),
+                        rs.getString("edificio"),
+                        "S".equals(rs.getString("activo")) ? "Activo" : "Inactivo"
+                ),
+                this::fusionarCambios,
+                "id_unidad", this::quitarBorrados
+        );
+
         // Carga inicial desde BD
         cargarDatos();
     }
@@ -68,42 +95,51 @@ public class UbicacionesView {
 
     /** Filtro por texto para nombre/código/edificio */
     private void buscarUbicaciones() {
-        String texto = txtBuscar.getText() == null ? "" : txtBuscar.getText().toLowerCase().trim();
-        ubicacionesFiltradas.setPredicate(ubicacion ->
-                texto.isEmpty()
-                        || ubicacion.getNombre().toLowerCase().contains(texto)
-                        || ubicacion.getDescripcion().toLowerCase().contains(texto)
-                        || ubicacion.getEdificio().toLowerCase().contains(texto)
-        );
+        buscador.buscarAhora();
     }
 
+    // ===== Ciclo de vida en caché (GestorVistas) =====
+    @Override public void alActivar() { cambios.reanudar(); }
+
+    @Override public void alDesactivar() { cambios.pausar(); }
+
+    @Override public void alDescartar() { cambios.cancelar(); }
+
+    @Override public long memoriaEstimada() { return BYTES_BASE + ubicaciones.size() * BYTES_POR_FILA; }
+
     // ===== Carga de datos =====
     private void cargarDatos() {
         ubicaciones.clear();
 
         // SQL CORRECTO: UNIDADES tiene (nombre, codigo, id_edificio, activo, ...)
         final String sql =
-                "SELECT u.nombre, u.codigo AS descripcion, e.nombre AS edificio, u.activo " +
+                "SELECT u.id_unidad, u.nombre, u.codigo AS descripcion, e.nombre AS edificio, u.activo " +
                         "FROM unidades u " +
                         "JOIN edificios e ON u.id_edificio = e.id_edificio " +
-                        "ORDER BY u.nombre";
-
-        try (Connection cn = getConnection();
-             Statement st = cn.createStatement();
-             ResultSet rs = st.executeQuery(sql)) {
-
-            while (rs.next()) {
-                ubicaciones.add(new Ubicacion(
-                        rs.getString("nombre"),
-                        rs.getString("descripcion") == null ? "" : rs.getString("descripcion"),
-                        rs.getString("edificio"),
-                        "S".equals(rs.getString("activo")) ? "Activo" : "Inactivo"
-                ));
+                        "ORDER BY UPPER(u.nombre), u.nombre";
+
+        CompletableFuture<List<Ubicacion>> carga = DbExecutor.consultar(cn -> {
+            List<Ubicacion> lista = new ArrayList<>();
+            try (Statement st = cn.createStatement();
+                 ResultSet rs = st.executeQuery(sql)) {
+
+                while (rs.next()) {
+                    lista.add(new Ubicacion(
+                            rs.getLong("id_unidad"),
+                            rs.getString("nombre"),
+                            rs.getString("descripcion") == null ? "" : rs.getString("descripcion"),
+                            rs.getString("edificio"),
+                            "S".equals(rs.getString("activo")) ? "Activo" : "Inactivo"
+                    ));
+                }
             }
-        } catch (SQLException e) {
+            lista.sort(Filas.porTexto(Ubicacion::getNombre));
+            return lista;
+        });
+        DbExecutor.enFx(DbExecutor.conIndicador(tablaUbicaciones, carga), ubicaciones::setAll, e -> {
             mostrarAlerta("Error al cargar ubicaciones.", Alert.AlertType.ERROR);
             e.printStackTrace();
-        }
+        });
     }
 
     // ===== Alta/edición (SOLO ADMIN) =====
@@ -117,10 +153,6 @@ public class UbicacionesView {
                 mostrarAlerta("El nombre no puede estar vacío.", Alert.AlertType.WARNING);
                 return;
             }
-            if (ubicacionExiste(nueva.getNombre())) {
-                mostrarAlerta("La ubicación ya existe.", Alert.AlertType.WARNING);
-                return;
-            }
             insertarUbicacion(nueva);
         });
     }
@@ -136,15 +168,7 @@ public class UbicacionesView {
         }
 
         Dialog<Ubicacion> dialog = crearDialogoUbicacion("Editar Ubicación", seleccionada);
-        dialog.showAndWait().ifPresent(editada -> {
-            // Si cambia el nombre, valida duplicado
-            if (!editada.getNombre().equalsIgnoreCase(seleccionada.getNombre())
-                    && ubicacionExiste(editada.getNombre())) {
-                mostrarAlerta("Nombre duplicado.", Alert.AlertType.WARNING);
-                return;
-            }
-            actualizarUbicacion(seleccionada, editada);
-        });
+        dialog.showAndWait().ifPresent(editada -> actualizarUbicacion(seleccionada, editada));
     }
 
     /** Construye el diálogo de alta/edición con ComboBox de edificios (por nombre) */
@@ -163,7 +187,8 @@ public class UbicacionesView {
 
         TextField txtNombre = new TextField();           // -> UNIDADES.NOMBRE
         TextField txtDescripcion = new TextField();      // -> UNIDADES.CODIGO
-        ComboBox<String> cmbEdificio = new ComboBox<>(cargarEdificios()); // nombres de edificios
+        ComboBox<String> cmbEdificio = new ComboBox<>();   // nombres de edificios
+        cargarEdificios(cmbEdificio);
         CheckBox chkActivo = new CheckBox("Activo");     // -> UNIDADES.ACTIVO 'S'/'N'
 
         if (existente != null) {
@@ -185,6 +210,7 @@ public class UbicacionesView {
         dialog.setResultConverter(boton -> {
             if (boton == guardarBtn) {
                 return new Ubicacion(
+                        existente == null ? 0 : existente.getId(),
                         txtNombre.getText().trim(),
                         txtDescripcion.getText().trim(),
                         cmbEdificio.getValue(),
@@ -203,27 +229,66 @@ public class UbicacionesView {
 
         // SQL CORRECTO: la columna se llama CODIGO (no "descripcion")
         final String sql =
-                "INSERT INTO unidades (nombre, codigo, id_edificio, activo) " +
-                        "VALUES (?, ?, (SELECT id_edificio FROM edificios WHERE nombre = ?), ?)";
-
-        try (Connection cn = getConnection(); PreparedStatement ps = cn.prepareStatement(sql)) {
-            ps.setString(1, u.getNombre());
-            ps.setString(2, u.getDescripcion()); // -> CODIGO
-            ps.setString(3, u.getEdificio());
-            ps.setString(4, "Activo".equalsIgnoreCase(u.getEstado()) ? "S" : "N");
-            ps.executeUpdate();
-            cargarDatos(); // recarga tabla
-        } catch (SQLException e) {
+                "INSERT INTO unidades (nombre, codigo, id_edificio, activo, actualizado_en) " +
+                        "VALUES (?, ?, (SELECT id_edificio FROM edificios WHERE nombre = ?), ?, SYSTIMESTAMP)";
+
+        // Devuelve la fila del diálogo con su id_unidad generado; null si el nombre ya existe
+        CompletableFuture<Ubicacion> alta = DbExecutor.consultar(cn -> {
+            if (ubicacionExiste(cn, u.getNombre())) return null;
+            try (PreparedStatement ps = cn.prepareStatement(sql, new String[]{"id_unidad"})) {
+                ps.setString(1, u.getNombre());
+                ps.setString(2, u.getDescripcion()); // -> CODIGO
+                ps.setString(3, u.getEdificio());
+                ps.setString(4, "Activo".equalsIgnoreCase(u.getEstado()) ? "S" : "N");
+                ps.executeUpdate();
+                Catalogos.ESPACIOS.invalidar();
+                try (ResultSet gk = ps.getGeneratedKeys()) {
+                    if (!gk.next()) throw new SQLException("No se obtuvo id_unidad");
+                    return new Ubicacion(gk.getLong(1), u.getNombre(), u.getDescripcion(), u.getEdificio(), u.getEstado());
+                }
+            }
+        });
+        DbExecutor.enFx(alta, insertada -> {
+            if (insertada == null) {
+                mostrarAlerta("La ubicación ya existe.", Alert.AlertType.WARNING);
+                return;
+            }
+            // Parche en sitio, sin recargar la tabla
+            Filas.insertarOrdenado(ubicaciones, insertada, Filas.porTexto(Ubicacion::getNombre));
+            tablaUbicaciones.getSelectionModel().select(insertada);
+        }, e -> {
             mostrarAlerta("No se pudo agregar la ubicación.", Alert.AlertType.ERROR);
             e.printStackTrace();
+        });
+    }
+
+    private void fusionarCambios(List<Ubicacion> cambios) {
+        Catalogos.ESPACIOS.invalidar(); // cambios hechos desde otros equipos
+        for (Ubicacion c : cambios) {
+            // Por id: una ubicación renombrada en otro equipo se actualiza, no se duplica
+            Ubicacion actual = Filas.buscar(ubicaciones, u -> u.getId() == c.getId());
+            if (actual == null) {
+                Filas.insertarOrdenado(ubicaciones, c, Filas.porTexto(Ubicacion::getNombre));
+            } else {
+                actual.setNombre(c.getNombre());
+                actual.setDescripcion(c.getDescripcion());
+                actual.setEdificio(c.getEdificio());
+                actual.setEstado(c.getEstado());
+                Filas.reubicar(ubicaciones, actual, Filas.porTexto(Ubicacion::getNombre));
+            }
         }
+        tablaUbicaciones.refresh();
+    }
+
+    /** Ubicaciones borradas en otro equipo: {@code vivos} son los id_unidad que siguen en la BD. */
+    private void quitarBorrados(Set<String> borrados) {
+        if (ubicaciones.removeIf(u -> borrados.contains(String.valueOf(u.getId())))) Catalogos.ESPACIOS.invalidar();
     }
 
     private void actualizarUbicacion(Ubicacion original, Ubicacion nueva) {
         // Guardia de seguridad: solo admin
         if (!isAdmin) { mostrarAlerta("No autorizado.", Alert.AlertType.WARNING); return; }
 
-        // Actualiza por nombre (si tienes UNIQUE mejor actualizar por una PK/ID)
         final String sql =
                 "UPDATE unidades " +
                         "   SET nombre = ?, " +
@@ -231,61 +296,56 @@ public class UbicacionesView {
                         "       id_edificio = (SELECT id_edificio FROM edificios WHERE nombre = ?), " +
                         "       activo = ?, " +
                         "       actualizado_en = SYSTIMESTAMP " +
-                        " WHERE nombre = ?";
-
-        try (Connection cn = getConnection(); PreparedStatement ps = cn.prepareStatement(sql)) {
-            ps.setString(1, nueva.getNombre());
-            ps.setString(2, nueva.getDescripcion()); // -> CODIGO
-            ps.setString(3, nueva.getEdificio());
-            ps.setString(4, "Activo".equalsIgnoreCase(nueva.getEstado()) ? "S" : "N");
-            ps.setString(5, original.getNombre());
-            ps.executeUpdate();
-            cargarDatos(); // recarga tabla
-        } catch (SQLException e) {
+                        " WHERE id_unidad = ?";
+
+        // Si cambia el nombre, valida duplicado
+        boolean cambiaNombre = !nueva.getNombre().equalsIgnoreCase(original.getNombre());
+        long id = original.getId();
+        CompletableFuture<Boolean> edicion = DbExecutor.consultar(cn -> {
+            if (cambiaNombre && ubicacionExiste(cn, nueva.getNombre())) return false;
+            try (PreparedStatement ps = cn.prepareStatement(sql)) {
+                ps.setString(1, nueva.getNombre());
+                ps.setString(2, nueva.getDescripcion()); // -> CODIGO
+                ps.setString(3, nueva.getEdificio());
+                ps.setString(4, "Activo".equalsIgnoreCase(nueva.getEstado()) ? "S" : "N");
+                ps.setLong(5, id);
+                ps.executeUpdate();
+                Catalogos.ESPACIOS.invalidar();
+            }
+            return true;
+        });
+        DbExecutor.enFx(edicion, actualizada -> {
+            if (!actualizada) {
+                mostrarAlerta("Nombre duplicado.", Alert.AlertType.WARNING);
+                return;
+            }
+            original.setNombre(nueva.getNombre());
+            original.setDescripcion(nueva.getDescripcion());
+            original.setEdificio(nueva.getEdificio());
+            original.setEstado(nueva.getEstado());
+            Filas.reubicar(ubicaciones, original, Filas.porTexto(Ubicacion::getNombre));
+            buscarUbicaciones();
+        }, e -> {
             mostrarAlerta("No se pudo actualizar la ubicación.", Alert.AlertType.ERROR);
             e.printStackTrace();
-        }
+        });
     }
 
     // ===== Utilidades =====
-    private boolean ubicacionExiste(String nombre) {
+    private boolean ubicacionExiste(Connection cn, String nombre) throws SQLException {
         final String sql = "SELECT COUNT(*) FROM unidades WHERE UPPER(nombre) = UPPER(?)";
-        try (Connection cn = getConnection(); PreparedStatement ps = cn.prepareStatement(sql)) {
+        try (PreparedStatement ps = cn.prepareStatement(sql)) {
             ps.setString(1, nombre);
             try (ResultSet rs = ps.executeQuery()) {
                 return rs.next() && rs.getInt(1) > 0;
             }
-        } catch (SQLException e) {
-            // Ante error al validar, no bloquear (retorna false)
-            return false;
-        }
-    }
-
-    /** Carga nombres de edificios (puedes filtrar a activos si prefieres) */
-    private ObservableList<String> cargarEdificios() {
-        ObservableList<String> edificios = FXCollections.observableArrayList();
-        final String sql = "SELECT nombre FROM edificios ORDER BY nombre";
-        try (Connection cn = getConnection();
-             Statement st = cn.createStatement();
-             ResultSet rs = st.executeQuery(sql)) {
-            while (rs.next()) edificios.add(rs.getString("nombre"));
-        } catch (SQLException e) {
-            mostrarAlerta("Error al cargar edificios.", Alert.AlertType.ERROR);
         }
-        return edificios;
     }
 
-    // ===== Infra de conexión (mismo patrón que el login) =====
-    private Connection getConnection() throws SQLException {
-        try {
-            Connection cn = Conexion.conectar();
-            try (Statement st = cn.createStatement()) {
-                st.execute("ALTER SESSION SET CURRENT_SCHEMA=" + SCHEMA_OWNER);
-            }
-            return cn;
-        } catch (ClassNotFoundException e) {
-            throw new SQLException("Driver Oracle no encontrado", e);
-        }
+    /** Nombres de edificios desde la caché compartida: abrir el diálogo ya no consulta la BD cada vez */
+    private void cargarEdificios(ComboBox<String> cmbEdificio) {
+        Catalogos.EDIFICIOS.enCombo(cmbEdificio,
+                e -> mostrarAlerta("Error al cargar edificios.", Alert.AlertType.ERROR));
     }
 
     // ===== Alertas (MISMA FIRMA QUE EN EdificiosView: 2 PARÁMETROS) =====
@@ -299,13 +359,16 @@ public class UbicacionesView {
 
     // ===== Modelo =====
     public static class Ubicacion {
+        private final long id;                                        // UNIDADES.ID_UNIDAD (0 = aún sin guardar)
         private final SimpleStringProperty nombre, descripcion, edificio, estado;
-        public Ubicacion(String nombre, String descripcion, String edificio, String estado) {
+        public Ubicacion(long id, String nombre, String descripcion, String edificio, String estado) {
+            this.id = id;
             this.nombre = new SimpleStringProperty(nombre);           // UNIDADES.NOMBRE
             this.descripcion = new SimpleStringProperty(descripcion); // UNIDADES.CODIGO (mostrado como "Descripción")
             this.edificio = new SimpleStringProperty(edificio);       // EDIFICIOS.NOMBRE (se resuelve a ID en SQL)
             this.estado = new SimpleStringProperty(estado);           // 'Activo'/'Inactivo' (mapeo S/N)
         }
+        public long getId() { return id; }
         public String getNombre() { return nombre.get(); }
         public void setNombre(String n) { nombre.set(n); }
         public String getDescripcion() { return descripcion.get(); }
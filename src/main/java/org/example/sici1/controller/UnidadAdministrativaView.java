@@ -1,5 +1,6 @@
 package org.example.sici1.controller;
 
+import javafx.beans.Observable;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
@@ -11,9 +12,13 @@ import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.GridPane;
 
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
-public class UnidadAdministrativaView {
+public class UnidadAdministrativaView implements VistaActivable {
 
     // === FXML: coincide con el FXML proporcionado ===
     @FXML private TableView<Unidad> tableUnidades;
@@ -25,15 +30,17 @@ public class UnidadAdministrativaView {
     @FXML private Button btnBuscar;
 
     // === Datos + filtro ===
-    private final ObservableList<Unidad> unidades = FXCollections.observableArrayList();
+    // Con extractor: editar una fila en sitio avisa a la lista (filtro y claves de búsqueda)
+    private final ObservableList<Unidad> unidades = FXCollections.observableArrayList(
+            u -> new Observable[]{u.nombreProperty(), u.estadoProperty()});
     private final FilteredList<Unidad> unidadesFiltradas = new FilteredList<>(unidades, p -> true);
+    private BuscadorDiferido<Unidad> buscador;
+    private SincronizadorCatalogos.Suscripcion<Unidad> cambios;
 
     // === Permisos ===
-    private final String userRole = safe(UserSession.getInstance() != null ? UserSession.getInstance().getRole() : "USER");
-    private final boolean isAdmin = "ADMIN".equalsIgnoreCase(userRole);
+    private final boolean isAdmin = Sesion.actual().tiene(Sesion.Permiso.EDITAR_CATALOGOS);
 
     // === Config BD ===
-    private static final String SCHEMA_OWNER = "ADMIN";
     private static final String TBL = "UNIDADES_ADMINISTRATIVAS";
 
     @FXML
@@ -46,6 +53,16 @@ public class UnidadAdministrativaView {
         if (btnEditar  != null) btnEditar.setVisible(isAdmin);
 
         tableUnidades.setItems(unidadesFiltradas);
+
+        // Cambios de otros operadores (antes de la carga inicial para no perder ninguno)
+        cambios = SincronizadorCatalogos.suscribir(TBL,
+                "SELECT ID, NOMBRE, ACTIVO, ACTUALIZADO_EN FROM " + TBL + " WHERE ACTUALIZADO_EN > ?",
+                rs -> new Unidad(rs.getInt("ID"), rs.getString("NOMBRE"),
+                        "S".equalsIgnoreCase(rs.getString("ACTIVO")) ? "Activo" : "Inactivo"),
+                this::fusionarCambios,
+                "ID", this::quitarBorrados
+        );
+
         cargarUnidades();
 
         if (isAdmin) {
@@ -93,20 +110,24 @@ public class UnidadAdministrativaView {
     private void configurarBuscador() {
         if (btnBuscar != null) btnBuscar.setOnAction(e -> buscarUnidades());
         if (txtBuscar != null) {
+            buscador = new BuscadorDiferido<>(txtBuscar, unidadesFiltradas, u -> new String[]{u.getNombre(), u.getEstado()});
             txtBuscar.setOnAction(e -> buscarUnidades());
-            txtBuscar.textProperty().addListener((obs, oldVal, newVal) -> buscarUnidades());
         }
     }
 
     private void buscarUnidades() {
-        String texto = (txtBuscar == null || txtBuscar.getText() == null) ? "" : txtBuscar.getText().toLowerCase().trim();
-        unidadesFiltradas.setPredicate(u ->
-                texto.isEmpty() ||
-                        (u.getNombre() != null && u.getNombre().toLowerCase().contains(texto)) ||
-                        (u.getEstado() != null && u.getEstado().toLowerCase().contains(texto))
-        );
+        if (buscador != null) buscador.buscarAhora();
     }
 
+    // === Ciclo de vida en caché (GestorVistas) ===
+    @Override public void alActivar() { cambios.reanudar(); }
+
+    @Override public void alDesactivar() { cambios.pausar(); }
+
+    @Override public void alDescartar() { cambios.cancelar(); }
+
+    @Override public long memoriaEstimada() { return BYTES_BASE + unidades.size() * BYTES_POR_FILA; }
+
     // === Diálogo: NUEVO (nombre + estado) ===
     private void mostrarDialogoNuevo() {
         if (!isAdmin) { mostrarAlerta("No autorizado", "Solo un administrador puede crear unidades.", Alert.AlertType.WARNING); return; }
@@ -140,13 +161,7 @@ public class UnidadAdministrativaView {
         });
 
         Optional<Unidad> res = dialog.showAndWait();
-        res.ifPresent(u -> {
-            if (unidadExiste(u.getNombre())) {
-                mostrarAlerta("Error", "Ya existe una unidad con ese nombre.", Alert.AlertType.ERROR);
-                return;
-            }
-            insertarUnidad(u.getNombre(), "Activo".equalsIgnoreCase(u.getEstado()));
-        });
+        res.ifPresent(u -> insertarUnidad(u.getNombre(), "Activo".equalsIgnoreCase(u.getEstado())));
     }
 
     // === Diálogo: EDITAR (nombre + estado) ===
@@ -175,10 +190,6 @@ public class UnidadAdministrativaView {
                     mostrarAlerta("Error", "El nombre no puede estar vacío.", Alert.AlertType.ERROR);
                     return null;
                 }
-                if (!nuevoNombre.equalsIgnoreCase(unidad.getNombre()) && unidadExiste(nuevoNombre)) {
-                    mostrarAlerta("Error", "Ya existe una unidad con ese nombre.", Alert.AlertType.ERROR);
-                    return null;
-                }
                 return new Unidad(unidad.getId(), nuevoNombre, cmbEstado.getValue());
             }
             return null;
@@ -189,91 +200,129 @@ public class UnidadAdministrativaView {
     }
 
     // === BD ===
-    private boolean unidadExiste(String nombre) {
+    private boolean unidadExiste(Connection cn, String nombre) throws SQLException {
         String sql = "SELECT COUNT(*) FROM " + TBL + " WHERE UPPER(NOMBRE) = UPPER(?)";
-        try (Connection cn = getConnection(); PreparedStatement ps = cn.prepareStatement(sql)) {
+        try (PreparedStatement ps = cn.prepareStatement(sql)) {
             ps.setString(1, nombre);
             try (ResultSet rs = ps.executeQuery()) {
                 return rs.next() && rs.getInt(1) > 0;
             }
-        } catch (SQLException e) {
-            mostrarAlerta("Error", "Error al verificar existencia.", Alert.AlertType.ERROR);
-            return false;
         }
     }
 
     private void cargarUnidades() {
         unidades.clear();
-        String sql = "SELECT ID, NOMBRE, ACTIVO FROM " + TBL + " ORDER BY NOMBRE";
-        try (Connection cn = getConnection();
-             Statement st = cn.createStatement();
-             ResultSet rs = st.executeQuery(sql)) {
-
-            while (rs.next()) {
-                int id = rs.getInt("ID");
-                String nombre = rs.getString("NOMBRE");
-                String estado = "S".equalsIgnoreCase(rs.getString("ACTIVO")) ? "Activo" : "Inactivo";
-                unidades.add(new Unidad(id, nombre, estado));
+        String sql = "SELECT ID, NOMBRE, ACTIVO FROM " + TBL + " ORDER BY UPPER(NOMBRE), NOMBRE";
+        CompletableFuture<List<Unidad>> carga = DbExecutor.consultar(cn -> {
+            List<Unidad> lista = new ArrayList<>();
+            try (Statement st = cn.createStatement();
+                 ResultSet rs = st.executeQuery(sql)) {
+
+                while (rs.next()) {
+                    int id = rs.getInt("ID");
+                    String nombre = rs.getString("NOMBRE");
+                    String estado = "S".equalsIgnoreCase(rs.getString("ACTIVO")) ? "Activo" : "Inactivo";
+                    lista.add(new Unidad(id, nombre, estado));
+                }
+            }
+            lista.sort(Filas.porTexto(Unidad::getNombre));
+            return lista;
+        });
+        DbExecutor.enFx(DbExecutor.conIndicador(tableUnidades, carga), unidades::setAll,
+                e -> mostrarAlerta("Error", "No se pudo cargar unidades.", Alert.AlertType.ERROR));
+    }
+
+    private void fusionarCambios(List<Unidad> cambios) {
+        Catalogos.UNIDADES_ADMIN.invalidar(); // cambios hechos desde otros equipos
+        for (Unidad c : cambios) {
+            Unidad actual = Filas.buscar(unidades, u -> u.getId() == c.getId());
+            if (actual == null) {
+                Filas.insertarOrdenado(unidades, c, Filas.porTexto(Unidad::getNombre));
+            } else {
+                actual.setNombre(c.getNombre());
+                actual.setEstado(c.getEstado());
+                Filas.reubicar(unidades, actual, Filas.porTexto(Unidad::getNombre));
             }
-        } catch (SQLException ex) {
-            mostrarAlerta("Error", "No se pudo cargar unidades.", Alert.AlertType.ERROR);
         }
+        tableUnidades.refresh();
+    }
+
+    /** Unidades borradas en otro equipo: {@code vivos} son los ID que siguen en la BD. */
+    private void quitarBorrados(Set<String> borrados) {
+        if (unidades.removeIf(u -> borrados.contains(String.valueOf(u.getId())))) Catalogos.UNIDADES_ADMIN.invalidar();
     }
 
     private void insertarUnidad(String nombre, boolean activo) {
         if (!isAdmin) { mostrarAlerta("No autorizado", "Solo un administrador puede crear unidades.", Alert.AlertType.WARNING); return; }
-        String sql = "INSERT INTO " + TBL + " (NOMBRE, ACTIVO) VALUES (?, ?)";
-        try (Connection cn = getConnection(); PreparedStatement ps = cn.prepareStatement(sql)) {
-            ps.setString(1, nombre);
-            ps.setString(2, activo ? "S" : "N");
-            ps.executeUpdate();
-            cargarUnidades();
-        } catch (SQLException ex) {
-            mostrarAlerta("Error", "No se pudo guardar la unidad.", Alert.AlertType.ERROR);
-        }
+        String sql = "INSERT INTO " + TBL + " (NOMBRE, ACTIVO, ACTUALIZADO_EN) VALUES (?, ?, SYSTIMESTAMP)";
+        // Devuelve la fila creada (ID generado) para parchar la lista; null si el nombre ya existe
+        CompletableFuture<Unidad> alta = DbExecutor.consultar(cn -> {
+            if (unidadExiste(cn, nombre)) return null;
+            try (PreparedStatement ps = cn.prepareStatement(sql, new String[]{"ID"})) {
+                ps.setString(1, nombre);
+                ps.setString(2, activo ? "S" : "N");
+                ps.executeUpdate();
+                Catalogos.UNIDADES_ADMIN.invalidar();
+                try (ResultSet gk = ps.getGeneratedKeys()) {
+                    if (!gk.next()) throw new SQLException("No se obtuvo ID");
+                    return new Unidad(gk.getInt(1), nombre, activo ? "Activo" : "Inactivo");
+                }
+            }
+        });
+        DbExecutor.enFx(alta, nueva -> {
+            if (nueva == null) {
+                mostrarAlerta("Error", "Ya existe una unidad con ese nombre.", Alert.AlertType.ERROR);
+                return;
+            }
+            Filas.insertarOrdenado(unidades, nueva, Filas.porTexto(Unidad::getNombre));
+            tableUnidades.getSelectionModel().select(nueva);
+        }, e -> mostrarAlerta("Error", "No se pudo guardar la unidad.", Alert.AlertType.ERROR));
     }
 
     private void actualizarUnidad(Unidad unidad, String nuevoNombre, String nuevoEstado) {
         if (!isAdmin) { mostrarAlerta("No autorizado", "Solo un administrador puede editar unidades.", Alert.AlertType.WARNING); return; }
+        boolean cambiaNombre = !nuevoNombre.equalsIgnoreCase(unidad.getNombre());
+        int id = unidad.getId();
         String sql = "UPDATE " + TBL + " SET NOMBRE = ?, ACTIVO = ?, ACTUALIZADO_EN = SYSTIMESTAMP WHERE ID = ?";
-        try (Connection cn = getConnection(); PreparedStatement ps = cn.prepareStatement(sql)) {
-            ps.setString(1, nuevoNombre);
-            ps.setString(2, "Activo".equalsIgnoreCase(nuevoEstado) ? "S" : "N");
-            ps.setInt(3, unidad.getId());
-            ps.executeUpdate();
-
+        CompletableFuture<Boolean> edicion = DbExecutor.consultar(cn -> {
+            if (cambiaNombre && unidadExiste(cn, nuevoNombre)) return false;
+            try (PreparedStatement ps = cn.prepareStatement(sql)) {
+                ps.setString(1, nuevoNombre);
+                ps.setString(2, "Activo".equalsIgnoreCase(nuevoEstado) ? "S" : "N");
+                ps.setInt(3, id);
+                ps.executeUpdate();
+                Catalogos.UNIDADES_ADMIN.invalidar();
+            }
+            return true;
+        });
+        DbExecutor.enFx(edicion, actualizada -> {
+            if (!actualizada) {
+                mostrarAlerta("Error", "Ya existe una unidad con ese nombre.", Alert.AlertType.ERROR);
+                return;
+            }
             // Refresca modelo local
             unidad.setNombre(nuevoNombre);
             unidad.setEstado(nuevoEstado);
+            Filas.reubicar(unidades, unidad, Filas.porTexto(Unidad::getNombre));
             tableUnidades.refresh();
-        } catch (SQLException ex) {
-            mostrarAlerta("Error", "No se pudo actualizar la unidad.", Alert.AlertType.ERROR);
-        }
+        }, e -> mostrarAlerta("Error", "No se pudo actualizar la unidad.", Alert.AlertType.ERROR));
     }
 
     // Mantengo por si lo llamas desde otro flujo
     private void actualizarEstadoUnidad(Unidad unidad) {
         if (!isAdmin) { mostrarAlerta("No autorizado", "Solo un administrador puede cambiar el estado.", Alert.AlertType.WARNING); return; }
+        String activo = "Activo".equalsIgnoreCase(unidad.getEstado()) ? "S" : "N";
+        int id = unidad.getId();
         String sql = "UPDATE " + TBL + " SET ACTIVO = ?, ACTUALIZADO_EN = SYSTIMESTAMP WHERE ID = ?";
-        try (Connection cn = getConnection(); PreparedStatement ps = cn.prepareStatement(sql)) {
-            ps.setString(1, "Activo".equalsIgnoreCase(unidad.getEstado()) ? "S" : "N");
-            ps.setInt(2, unidad.getId());
-            ps.executeUpdate();
-        } catch (SQLException ex) {
-            mostrarAlerta("Error", "No se pudo cambiar el estado.", Alert.AlertType.ERROR);
-        }
-    }
-
-    private Connection getConnection() throws SQLException {
-        try {
-            Connection cn = Conexion.conectar();
-            try (Statement st = cn.createStatement()) {
-                st.execute("ALTER SESSION SET CURRENT_SCHEMA=" + SCHEMA_OWNER);
+        CompletableFuture<Integer> cambio = DbExecutor.consultar(cn -> {
+            try (PreparedStatement ps = cn.prepareStatement(sql)) {
+                ps.setString(1, activo);
+                ps.setInt(2, id);
+                return ps.executeUpdate();
             }
-            return cn;
-        } catch (ClassNotFoundException e) {
-            throw new SQLException("Driver Oracle no encontrado", e);
-        }
+        });
+        DbExecutor.enFx(cambio, n -> Catalogos.UNIDADES_ADMIN.invalidar(),
+                e -> mostrarAlerta("Error", "No se pudo cambiar el estado.", Alert.AlertType.ERROR));
     }
 
     private void mostrarAlerta(String titulo, String mensaje, Alert.AlertType tipo) {
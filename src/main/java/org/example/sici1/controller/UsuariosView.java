@@ -1,5 +1,6 @@
 package org.example.sici1.controller;
 
+import javafx.beans.Observable;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -10,6 +11,7 @@ import javafx.scene.layout.VBox;
 
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 public class UsuariosView {
 
@@ -22,12 +24,13 @@ public class UsuariosView {
     @FXML private TextField txtBuscar;
     @FXML private Button btnAgregar, btnBuscar, btnEditar;
 
-    private final ObservableList<Usuario> usuarios = FXCollections.observableArrayList();
+    // Con extractor: editar una fila en sitio avisa a la lista (filtro y claves de búsqueda)
+    private final ObservableList<Usuario> usuarios = FXCollections.observableArrayList(
+            u -> new Observable[]{u.usuarioProperty(), u.nombreProperty(), u.estadoProperty()});
     private final FilteredList<Usuario> usuariosFiltrados = new FilteredList<>(usuarios, p -> true);
+    private BuscadorDiferido<Usuario> buscador;
 
-    private final String userRole = UserSession.getInstance().getRole();
-    private final boolean isAdmin = "ADMIN".equalsIgnoreCase(userRole);
-    private static final String SCHEMA_OWNER = "ADMIN";
+    private final boolean isAdmin = Sesion.actual().tiene(Sesion.Permiso.GESTIONAR_USUARIOS);
 
     @FXML
     public void initialize() {
@@ -67,9 +70,9 @@ public class UsuariosView {
         tableUsuarios.setItems(usuariosFiltrados);
         cargarUsuariosDB();
 
+        buscador = new BuscadorDiferido<>(txtBuscar, usuariosFiltrados, u -> new String[]{u.getUsuario(), u.getNombre()});
         btnBuscar.setOnAction(e -> buscarUsuarios());
         txtBuscar.setOnAction(e -> buscarUsuarios());
-        txtBuscar.textProperty().addListener((obs, o, n) -> buscarUsuarios());
 
         btnAgregar.setOnAction(e -> {
             if (!isAdmin) { mostrarAlerta("No autorizado", Alert.AlertType.WARNING); return; }
@@ -92,19 +95,24 @@ public class UsuariosView {
                   LEFT JOIN usuario_rol ur ON ur.id_usuario = u.id_usuario
                   LEFT JOIN roles r ON r.id_rol = ur.id_rol
               GROUP BY u.username, u.activo, e.nombre, e.apellido_p, e.apellido_m
-              ORDER BY u.username
+              ORDER BY UPPER(u.username), u.username
                 """;
-        try (Connection cn = getConnection(); Statement st = cn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
-            while (rs.next()) {
-                String username = rs.getString("username");
-                String nombre = Optional.ofNullable(rs.getString("nombre")).orElse("").replaceAll("\\s+", " ").trim();
-                String rol = rs.getString("rol");
-                String estado = "S".equals(rs.getString("activo")) ? "Activo" : "Inactivo";
-                usuarios.add(new Usuario(username, nombre, rol, estado));
+        CompletableFuture<List<Usuario>> carga = DbExecutor.consultar(cn -> {
+            List<Usuario> lista = new ArrayList<>();
+            try (Statement st = cn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+                while (rs.next()) {
+                    String username = rs.getString("username");
+                    String nombre = Optional.ofNullable(rs.getString("nombre")).orElse("").replaceAll("\\s+", " ").trim();
+                    String rol = rs.getString("rol");
+                    String estado = "S".equals(rs.getString("activo")) ? "Activo" : "Inactivo";
+                    lista.add(new Usuario(username, nombre, rol, estado));
+                }
             }
-        } catch (SQLException e) {
-            mostrarAlerta("Error al cargar usuarios desde BD.", Alert.AlertType.ERROR);
-        }
+            lista.sort(Filas.porTexto(Usuario::getUsuario));
+            return lista;
+        });
+        DbExecutor.enFx(DbExecutor.conIndicador(tableUsuarios, carga), usuarios::setAll,
+                e -> mostrarAlerta("Error al cargar usuarios desde BD.", Alert.AlertType.ERROR));
     }
 
     private void mostrarDialogoAgregarUsuario() {
@@ -152,10 +160,6 @@ public class UsuariosView {
                 mostrarAlerta("Debes llenar todos los campos.", Alert.AlertType.WARNING);
                 return;
             }
-            if (existeUsuario(data.username())) {
-                mostrarAlerta("Ese usuario ya existe.", Alert.AlertType.WARNING);
-                return;
-            }
             crearUsuarioEnBD(data);
         });
     }
@@ -165,83 +169,96 @@ public class UsuariosView {
         String insertEmpleado = "INSERT INTO empleados (nombre) VALUES (?)";
         String insertUsuario = "INSERT INTO usuarios (id_empleado, username, hash_password, activo) VALUES (?, ?, ?, ?)";
         String insertUsuarioRol = "INSERT INTO usuario_rol (id_usuario, id_rol) VALUES (?, (SELECT id_rol FROM roles WHERE UPPER(nombre)=UPPER(?)))";
-        try (Connection cn = getConnection()) {
+        CompletableFuture<Boolean> alta = DbExecutor.consultar(cn -> {
+            if (existeUsuario(cn, data.username())) return false;
             cn.setAutoCommit(false);
-            Integer idEmpleado;
-            try (PreparedStatement ps = cn.prepareStatement(insertEmpleado, new String[]{"ID_EMPLEADO"})) {
-                ps.setString(1, data.nombreCompleto());
-                ps.executeUpdate();
-                try (ResultSet gk = ps.getGeneratedKeys()) {
-                    if (!gk.next()) throw new SQLException("No se obtuvo ID_EMPLEADO");
-                    idEmpleado = gk.getInt(1);
+            try {
+                int idEmpleado;
+                try (PreparedStatement ps = cn.prepareStatement(insertEmpleado, new String[]{"ID_EMPLEADO"})) {
+                    ps.setString(1, data.nombreCompleto());
+                    ps.executeUpdate();
+                    try (ResultSet gk = ps.getGeneratedKeys()) {
+                        if (!gk.next()) throw new SQLException("No se obtuvo ID_EMPLEADO");
+                        idEmpleado = gk.getInt(1);
+                    }
                 }
-            }
-            Integer idUsuario;
-            try (PreparedStatement ps = cn.prepareStatement(insertUsuario, new String[]{"ID_USUARIO"})) {
-                ps.setInt(1, idEmpleado);
-                ps.setString(2, data.username());
-                ps.setString(3, "123456");
-                ps.setString(4, estadoChar);
-                ps.executeUpdate();
-                try (ResultSet gk = ps.getGeneratedKeys()) {
-                    if (!gk.next()) throw new SQLException("No se obtuvo ID_USUARIO");
-                    idUsuario = gk.getInt(1);
+                int idUsuario;
+                try (PreparedStatement ps = cn.prepareStatement(insertUsuario, new String[]{"ID_USUARIO"})) {
+                    ps.setInt(1, idEmpleado);
+                    ps.setString(2, data.username());
+                    ps.setString(3, "123456");
+                    ps.setString(4, estadoChar);
+                    ps.executeUpdate();
+                    try (ResultSet gk = ps.getGeneratedKeys()) {
+                        if (!gk.next()) throw new SQLException("No se obtuvo ID_USUARIO");
+                        idUsuario = gk.getInt(1);
+                    }
+                }
+                try (PreparedStatement ps = cn.prepareStatement(insertUsuarioRol)) {
+                    ps.setInt(1, idUsuario);
+                    ps.setString(2, data.rolNombre());
+                    int n = ps.executeUpdate();
+                    if (n == 0) throw new SQLException("Rol no encontrado: " + data.rolNombre());
                 }
+                cn.commit();
+                return true;
+            } catch (SQLException e) {
+                cn.rollback();
+                throw e;
+            } finally {
+                // La conexión vuelve al pool: no dejarla en modo transaccional
+                cn.setAutoCommit(true);
             }
-            try (PreparedStatement ps = cn.prepareStatement(insertUsuarioRol)) {
-                ps.setInt(1, idUsuario);
-                ps.setString(2, data.rolNombre());
-                int n = ps.executeUpdate();
-                if (n == 0) throw new SQLException("Rol no encontrado: " + data.rolNombre());
+        });
+        DbExecutor.enFx(alta, creado -> {
+            if (!creado) {
+                mostrarAlerta("Ese usuario ya existe.", Alert.AlertType.WARNING);
+                return;
             }
-            cn.commit();
-            cargarUsuariosDB();
-        } catch (SQLException e) {
-            mostrarAlerta("No se pudo crear el usuario.", Alert.AlertType.ERROR);
-        }
+            // Parche en sitio con lo que acabamos de escribir, sin recargar la tabla
+            Usuario nuevo = new Usuario(data.username(), data.nombreCompleto(), data.rolNombre(),
+                    "S".equals(estadoChar) ? "Activo" : "Inactivo");
+            Filas.insertarOrdenado(usuarios, nuevo, Filas.porTexto(Usuario::getUsuario));
+            tableUsuarios.getSelectionModel().select(nuevo);
+        }, e -> mostrarAlerta("No se pudo crear el usuario.", Alert.AlertType.ERROR));
     }
 
     private void buscarUsuarios() {
-        String textoBusqueda = txtBuscar.getText() == null ? "" : txtBuscar.getText().trim().toLowerCase();
-        usuariosFiltrados.setPredicate(u -> textoBusqueda.isEmpty() ||
-                (u.getUsuario() != null && u.getUsuario().toLowerCase().contains(textoBusqueda)) ||
-                (u.getNombre() != null && u.getNombre().toLowerCase().contains(textoBusqueda)));
+        buscador.buscarAhora();
     }
 
-    private boolean existeUsuario(String username) {
+    private boolean existeUsuario(Connection cn, String username) throws SQLException {
         String sql = "SELECT COUNT(*) FROM usuarios WHERE UPPER(username) = UPPER(?)";
-        try (Connection cn = getConnection(); PreparedStatement ps = cn.prepareStatement(sql)) {
+        try (PreparedStatement ps = cn.prepareStatement(sql)) {
             ps.setString(1, username);
             try (ResultSet rs = ps.executeQuery()) {
                 return rs.next() && rs.getInt(1) > 0;
             }
-        } catch (SQLException e) {
-            return false;
         }
     }
 
     private void actualizarActivo(String username, String estadoUi) {
         if (!isAdmin) { mostrarAlerta("No autorizado", Alert.AlertType.WARNING); return; }
         String sql = "UPDATE usuarios SET activo = ?, actualizado_en = SYSTIMESTAMP WHERE UPPER(username) = UPPER(?)";
-        try (Connection cn = getConnection(); PreparedStatement ps = cn.prepareStatement(sql)) {
-            ps.setString(1, "Activo".equalsIgnoreCase(estadoUi) ? "S" : "N");
-            ps.setString(2, username);
-            ps.executeUpdate();
-        } catch (SQLException e) {
-            mostrarAlerta("No se pudo actualizar el estado.", Alert.AlertType.ERROR);
-        }
+        CompletableFuture<Integer> cambio = DbExecutor.consultar(cn -> {
+            try (PreparedStatement ps = cn.prepareStatement(sql)) {
+                ps.setString(1, "Activo".equalsIgnoreCase(estadoUi) ? "S" : "N");
+                ps.setString(2, username);
+                return ps.executeUpdate();
+            }
+        });
+        DbExecutor.enFx(cambio, n -> {},
+                e -> mostrarAlerta("No se pudo actualizar el estado.", Alert.AlertType.ERROR));
     }
 
     private void cargarRoles(ComboBox<String> rolCombo) {
-        rolCombo.getItems().clear();
-        String sql = "SELECT nombre FROM roles ORDER BY nombre";
-        try (Connection cn = getConnection(); Statement st = cn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
-            while (rs.next()) rolCombo.getItems().add(rs.getString("nombre"));
-            if (!rolCombo.getItems().isEmpty()) rolCombo.setValue(rolCombo.getItems().get(0));
-        } catch (SQLException e) {
-            rolCombo.getItems().addAll("ADMIN", "USUARIO");
+        DbExecutor.enFx(Catalogos.ROLES.obtener(), roles -> {
+            rolCombo.setItems(roles);
+            if (!roles.isEmpty()) rolCombo.setValue(roles.get(0));
+        }, e -> {
+            rolCombo.getItems().setAll("ADMIN", "USUARIO");
             rolCombo.setValue("USUARIO");
-        }
+        });
     }
 
     private void mostrarAlerta(String mensaje, Alert.AlertType tipo) {
@@ -256,18 +273,6 @@ public class UsuariosView {
         alert.showAndWait();
     }
 
-    private Connection getConnection() throws SQLException {
-        try {
-            Connection cn = Conexion.conectar();
-            try (Statement st = cn.createStatement()) {
-                st.execute("ALTER SESSION SET CURRENT_SCHEMA=" + SCHEMA_OWNER);
-            }
-            return cn;
-        } catch (ClassNotFoundException e) {
-            throw new SQLException("Driver Oracle no encontrado", e);
-        }
-    }
-
     public static class Usuario {
         private final SimpleStringProperty usuario, nombre, rol, estado;
         public Usuario(String usuario, String nombre, String rol, String estado) {
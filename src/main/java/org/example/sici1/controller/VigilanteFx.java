@@ -0,0 +1,169 @@
+package org.example.sici1.controller;
+
+import javafx.application.Platform;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Vigilante del hilo de JavaFX. Un hilo aparte le manda un latido ({@code Platform.runLater}) y, si el latido
+ * tarda más que el umbral, muestrea la pila del hilo de JavaFX mientras siga ocupado. Al terminar el bloqueo
+ * se atribuye al sitio de la aplicación que más apareció en las muestras ({@code Clase.metodo(Archivo:línea)}).
+ * Aparte registra cada conexión pedida desde el hilo de JavaFX; con {@code -Dsici.fx.bdEstricto=true} ese acceso
+ * lanza excepción, para que una prueba automatizada falle en vez de solo congelar la pantalla.
+ * <p>
+ * Configuración: {@code -Dsici.fx.umbralMs=200} (umbral de bloqueo), {@code -Dsici.fx.vigilante=false} (apagado).
+ */
+public final class VigilanteFx {
+
+    public static final long UMBRAL_MS = Long.getLong("sici.fx.umbralMs", 200);
+    public static final boolean ESTRICTO = Boolean.getBoolean("sici.fx.bdEstricto");
+    private static final boolean ACTIVO = !"false".equalsIgnoreCase(System.getProperty("sici.fx.vigilante"));
+
+    private static final String PAQUETE = "org.example.sici1.";
+    private static final int MAX_MARCOS = 40;
+
+    public enum Tipo { BLOQUEO, BD_EN_FX }
+
+    /** Lo acumulado para un sitio de la aplicación. */
+    static final class Sitio {
+        final LongAdder veces = new LongAdder();
+        final LongAdder totalMs = new LongAdder();
+        final AtomicLong maxMs = new AtomicLong();
+        volatile String pila;
+
+        void registrar(long ms, StackTraceElement[] marcos) {
+            veces.increment();
+            totalMs.add(ms);
+            maxMs.accumulateAndGet(ms, Math::max);
+            if (pila == null) pila = formatear(marcos);
+        }
+    }
+
+    public record Resumen(Tipo tipo, String sitio, long veces, long totalMs, long maxMs, String pila) {}
+
+    private static final Map<String, Sitio> BLOQUEOS = new ConcurrentHashMap<>();
+    private static final Map<String, Sitio> ACCESOS_BD = new ConcurrentHashMap<>();
+
+    private static Thread vigilante;
+    private static volatile Thread hiloFx;
+    /** nanoTime del latido en vuelo; 0 si ya llegó. */
+    private static volatile long latidoEnviado;
+    private static volatile long ultimoRetrasoNs;
+
+    private VigilanteFx() {}
+
+    /** Llamar desde el hilo de JavaFX al arrancar. Idempotente. */
+    public static synchronized void iniciar() {
+        if (!ACTIVO || vigilante != null) return;
+        if (!Platform.isFxApplicationThread()) throw new IllegalStateException("VigilanteFx.iniciar() fuera del hilo de JavaFX");
+        hiloFx = Thread.currentThread();
+        vigilante = Thread.ofPlatform().daemon().name("sici-vigilante-fx").start(VigilanteFx::vigilar);
+    }
+
+    private static void vigilar() {
+        long intervaloMs = Math.max(10, UMBRAL_MS / 4);
+        Map<String, Integer> muestras = new HashMap<>();
+        Map<String, StackTraceElement[]> pilas = new HashMap<>();
+        while (true) {
+            try {
+                Thread.sleep(intervaloMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+            long enviado = latidoEnviado;
+            if (enviado != 0) {
+                // Latido aún sin atender: si ya pasó el umbral, una muestra más de la pila
+                if ((System.nanoTime() - enviado) / 1_000_000 >= UMBRAL_MS) {
+                    StackTraceElement[] marcos = hiloFx.getStackTrace();
+                    String sitio = sitio(marcos, true);
+                    muestras.merge(sitio, 1, Integer::sum);
+                    pilas.putIfAbsent(sitio, marcos);
+                }
+                continue;
+            }
+            if (!muestras.isEmpty()) {
+                long ms = ultimoRetrasoNs / 1_000_000;
+                String sitio = muestras.entrySet().stream().max(Map.Entry.comparingByValue()).get().getKey();
+                BLOQUEOS.computeIfAbsent(sitio, k -> new Sitio()).registrar(ms, pilas.get(sitio));
+                muestras.clear();
+                pilas.clear();
+            }
+            long ahora = System.nanoTime();
+            latidoEnviado = ahora;
+            try {
+                Platform.runLater(() -> {
+                    ultimoRetrasoNs = System.nanoTime() - ahora;
+                    latidoEnviado = 0;
+                });
+            } catch (IllegalStateException e) {
+                return; // JavaFX ya terminó
+            }
+        }
+    }
+
+    /** Lo llama {@link Conexion#conectar()}: pedir una conexión desde el hilo de JavaFX congela la pantalla. */
+    static void alPedirConexion() {
+        if (!Platform.isFxApplicationThread()) return;
+        StackTraceElement[] marcos = new Throwable().getStackTrace();
+        String sitio = sitio(marcos, false);
+        ACCESOS_BD.computeIfAbsent(sitio, k -> new Sitio()).registrar(0, marcos);
+        if (ESTRICTO) throw new IllegalStateException("Acceso a BD en el hilo de JavaFX desde " + sitio);
+    }
+
+    /** Para pruebas automatizadas: falla si hubo algún acceso a BD desde el hilo de JavaFX. */
+    public static void exigirSinAccesosBd() {
+        if (!ACCESOS_BD.isEmpty()) {
+            throw new AssertionError("Accesos a BD en el hilo de JavaFX: " + ACCESOS_BD.keySet());
+        }
+    }
+
+    /** Bloqueos y accesos a BD en FX por sitio, los de más tiempo primero. */
+    public static List<Resumen> resumen() {
+        List<Resumen> lista = new ArrayList<>();
+        BLOQUEOS.forEach((sitio, s) -> lista.add(resumir(Tipo.BLOQUEO, sitio, s)));
+        ACCESOS_BD.forEach((sitio, s) -> lista.add(resumir(Tipo.BD_EN_FX, sitio, s)));
+        lista.sort(Comparator.comparingLong(Resumen::totalMs).thenComparingLong(Resumen::veces).reversed());
+        return lista;
+    }
+
+    public static void reiniciar() {
+        BLOQUEOS.clear();
+        ACCESOS_BD.clear();
+    }
+
+    private static Resumen resumir(Tipo tipo, String sitio, Sitio s) {
+        return new Resumen(tipo, sitio, s.veces.sum(), s.totalMs.sum(), s.maxMs.get(), s.pila);
+    }
+
+    /**
+     * Primer marco de la aplicación (el más profundo en ejecución) fuera de la capa de datos;
+     * si no hay ninguno, el bloqueo es del propio JavaFX (layout, CSS, pintado) y se nombra por su marco superior.
+     */
+    private static String sitio(StackTraceElement[] marcos, boolean incluirJavaFx) {
+        for (StackTraceElement m : marcos) {
+            String clase = m.getClassName();
+            if (!clase.startsWith(PAQUETE)) continue;
+            String corto = clase.substring(clase.lastIndexOf('.') + 1);
+            if (corto.startsWith("VigilanteFx") || corto.startsWith("Conexion") || corto.startsWith("DbExecutor")
+                    || corto.startsWith("Metricas")) continue;
+            return corto + "." + m.getMethodName() + "(" + m.getFileName() + ":" + m.getLineNumber() + ")";
+        }
+        if (incluirJavaFx && marcos.length > 0) return "JavaFX " + marcos[0].getClassName() + "." + marcos[0].getMethodName();
+        return "desconocido";
+    }
+
+    private static String formatear(StackTraceElement[] marcos) {
+        if (marcos == null) return "";
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < Math.min(marcos.length, MAX_MARCOS); i++) sb.append("\tat ").append(marcos[i]).append('\n');
+        if (marcos.length > MAX_MARCOS) sb.append("\t... ").append(marcos.length - MAX_MARCOS).append(" más\n");
+        return sb.toString();
+    }
+}
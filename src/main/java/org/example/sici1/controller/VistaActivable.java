@@ -0,0 +1,25 @@
+package org.example.sici1.controller;
+
+/**
+ * Ciclo de vida de una vista que {@link GestorVistas} mantiene en caché.
+ * El controlador se crea una sola vez; al navegar se desactiva/activa en lugar de recargarse.
+ */
+public interface VistaActivable {
+
+    /** Estimación del árbol de nodos de una vista sin datos. */
+    long BYTES_BASE = 2L * 1024 * 1024;
+    /** Estimación por fila residente (modelo + propiedades observables). */
+    long BYTES_POR_FILA = 512;
+
+    /** La vista vuelve a mostrarse: ponerse al día de forma incremental, no recargar todo. */
+    default void alActivar() {}
+
+    /** La vista deja de mostrarse pero sigue en caché: suspender sondeos y trabajo de fondo. */
+    default void alDesactivar() {}
+
+    /** La vista sale de la caché y no volverá a usarse: cancelar suscripciones y soltar datos. */
+    default void alDescartar() {}
+
+    /** Memoria aproximada que retiene la vista; la caché se acota con la suma de estas estimaciones. */
+    default long memoriaEstimada() { return BYTES_BASE; }
+}